@@ -0,0 +1,99 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import matrix.Kernels;
+
+/**
+ * The element-wise kernels on the weights of the first layer of a net and the
+ * activations on its weighted sums of one batch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class KernelBenchmark {
+	@Param({ "XOR", "VIERBITXOR", "HAMMING", "MNIST" })
+	public Shape shape;
+	@Param({ "true", "false" })
+	public boolean simd;
+
+	private Kernels kernels;
+	private int weights;
+	private int activations;
+	private double[] x;
+	private double[] y;
+	private double[] z;
+	private double[] sums;
+	private double[] outputs;
+
+	@Setup
+	public void setup() {
+		Shape.useKernels(this.simd);
+		this.kernels = Kernels.get();
+		Random r = new Random(42);
+		this.weights = this.shape.hidden[0] * (this.shape.inputs + 1);
+		this.activations = this.shape.batch * this.shape.hidden[0];
+		this.x = Shape.random(1, this.weights, r).getData();
+		this.y = Shape.random(1, this.weights, r).getData();
+		this.z = new double[this.weights];
+		this.sums = Shape.random(1, this.activations, r).getData();
+		this.outputs = new double[this.activations];
+	}
+
+	@Benchmark
+	public double[] add() {
+		this.kernels.add(this.x, 0, this.y, 0, this.z, 0, this.weights);
+		return this.z;
+	}
+
+	@Benchmark
+	public double[] scale() {
+		this.kernels.scale(0.5, this.x, 0, this.z, 0, this.weights);
+		return this.z;
+	}
+
+	@Benchmark
+	public double[] axpy() {
+		this.kernels.axpy(1e-3, this.x, 0, this.y, 0, this.weights);
+		return this.y;
+	}
+
+	@Benchmark
+	public double dot() {
+		return this.kernels.dot(this.x, 0, this.y, 0, this.shape.inputs + 1);
+	}
+
+	@Benchmark
+	public double[] sigmoid() {
+		this.kernels.sigmoid(this.sums, 0, this.outputs, 0, this.activations);
+		return this.outputs;
+	}
+
+	@Benchmark
+	public double[] sigmoidDerivative() {
+		this.kernels.sigmoidDerivative(this.sums, 0, this.outputs, 0, this.activations);
+		return this.outputs;
+	}
+
+	@Benchmark
+	public double[] relu() {
+		this.kernels.relu(this.sums, 0, this.outputs, 0, this.activations);
+		return this.outputs;
+	}
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import matrix.Matrix;
+
+/**
+ * The products of the first layer of a net: weights times one sample, the
+ * batched forward product and the batched gradient product
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class MatrixBenchmark {
+	@Param({ "XOR", "VIERBITXOR", "HAMMING", "MNIST" })
+	public Shape shape;
+	@Param({ "true", "false" })
+	public boolean simd;
+
+	private Matrix weights;
+	private Matrix column;
+	private Matrix batch;
+	private Matrix sums;
+	private Matrix gradient;
+
+	@Setup
+	public void setup() {
+		Shape.useKernels(this.simd);
+		Random r = new Random(42);
+		int neurons = this.shape.hidden[0];
+		this.weights = Shape.random(neurons, this.shape.inputs + 1, r);
+		this.column = Shape.random(this.shape.inputs + 1, 1, r);
+		this.batch = Shape.random(this.shape.batch, this.shape.inputs + 1, r);
+		this.sums = Shape.random(this.shape.batch, neurons, r);
+		this.gradient = new Matrix(neurons, this.shape.inputs + 1);
+	}
+
+	@Benchmark
+	public Matrix multiply() {
+		return this.weights.multiply(this.column);
+	}
+
+	@Benchmark
+	public Matrix multiplyTransposedInto() {
+		return this.batch.multiplyTransposedInto(this.weights, this.sums);
+	}
+
+	@Benchmark
+	public Matrix transposeMultiplyAddInto() {
+		return this.sums.transposeMultiplyAddInto(this.batch, this.gradient);
+	}
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import matrix.Matrix;
+import neuralnet.NeuralNet;
+
+/**
+ * Forward and backward passes of a single sample and of a batch, and one
+ * gradient descent step on a mini-batch on one core
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class NeuralNetBenchmark {
+	@Param({ "XOR", "VIERBITXOR", "HAMMING", "MNIST" })
+	public Shape shape;
+	@Param({ "true", "false" })
+	public boolean simd;
+
+	private NeuralNet nn;
+	private double[] input;
+	private double[] desired;
+	private Matrix inputs;
+	private Matrix labels;
+
+	@Setup
+	public void setup() {
+		Shape.useKernels(this.simd);
+		Random r = new Random(42);
+		this.nn = this.shape.newNet();
+		this.inputs = Shape.random(this.shape.batch, this.shape.inputs, r);
+		this.labels = Shape.random(this.shape.batch, this.shape.outputs, r);
+		this.input = this.inputs.getRow(0);
+		this.desired = this.labels.getRow(0);
+	}
+
+	@Benchmark
+	public Matrix feedForward() {
+		return this.nn.feedForward(this.input);
+	}
+
+	/**
+	 * Includes the forward pass backpropagate depends on
+	 */
+	@Benchmark
+	public ArrayList<Matrix> backpropagate() {
+		this.nn.feedForward(this.input);
+		return this.nn.backpropagate(this.desired);
+	}
+
+	@Benchmark
+	public Matrix feedForwardBatch() {
+		return this.nn.feedForwardBatch(this.inputs);
+	}
+
+	@Benchmark
+	public NeuralNet update_mini_batch() {
+		this.nn.update_mini_batch(this.inputs, this.labels, 0.01, 1);
+		return this.nn;
+	}
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.games.connect4.Connect4Neuro;
+import neuroevolution.ConnectionGene;
+import neuroevolution.Genome;
+import neuroevolution.NodeGene;
+import neuroevolution.NodeGene.Type;
+
+/**
+ * Genome.feedForward and whole games of Connect4Neuro against a random player
+ * on the 6x7 board, for genomes grown by hiddenNodes node mutations out of
+ * the fully connected start genome of Neuroevolution.init
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeuroevolutionBenchmark {
+	private static final int ROWS = 6;
+	private static final int COLUMNS = 7;
+
+	@Param({ "0", "10", "50" })
+	public int hiddenNodes;
+
+	private Genome genome;
+	private double[] input;
+
+	@Setup
+	public void setup() {
+		Random r = new Random(42);
+		int inputs = ROWS * COLUMNS;
+		this.genome = new Genome();
+		for (int j = 0; j < inputs; j++) {
+			this.genome.addNodeGene(new NodeGene(Type.INPUT, this.genome.getNodeGenes().size()));
+		}
+		for (int j = 0; j < COLUMNS; j++) {
+			this.genome.addNodeGene(new NodeGene(Type.OUTPUT, this.genome.getNodeGenes().size()));
+		}
+		for (int j = 0; j < inputs; j++) {
+			for (int k = 0; k < COLUMNS; k++) {
+				this.genome.connections.add(new ConnectionGene(this.genome.nodegenes.get(j),
+						this.genome.nodegenes.get(inputs + k), r.nextDouble() * 2 - 2, true,
+						Genome.getInnovation_number()));
+			}
+		}
+		for (int i = 0; i < this.hiddenNodes; i++) {
+			this.genome.add_node(r);
+		}
+		this.input = new double[inputs];
+		for (int i = 0; i < inputs; i++) {
+			this.input[i] = r.nextInt(3) - 1;
+		}
+	}
+
+	@Benchmark
+	public double[] feedForward() {
+		return this.genome.feedForward(this.input);
+	}
+
+	@Benchmark
+	public double play() {
+		Connect4Neuro game = new Connect4Neuro(ROWS, COLUMNS, this.genome);
+		game.play();
+		return game.score;
+	}
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import matrix.Matrix;
+import neuralnet.Network;
+import neuralnet.Precision;
+
+/**
+ * Batched forward pass and one epoch of training on 1024 samples in double
+ * and in float precision
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class PrecisionBenchmark {
+	private static final int SAMPLES = 1024;
+
+	@Param({ "XOR", "VIERBITXOR", "HAMMING", "MNIST" })
+	public Shape shape;
+	@Param({ "DOUBLE", "FLOAT" })
+	public Precision precision;
+
+	private Network net;
+	private Matrix inputs;
+	private Matrix labels;
+
+	@Setup
+	public void setup() {
+		Random r = new Random(42);
+		this.net = this.precision.convert(this.shape.newNet());
+		this.inputs = Shape.random(SAMPLES, this.shape.inputs, r);
+		this.labels = Shape.random(SAMPLES, this.shape.outputs, r);
+	}
+
+	@Benchmark
+	public Matrix feedForwardBatch() {
+		return this.net.feedForwardBatch(this.inputs);
+	}
+
+	@Benchmark
+	public Network epoch() {
+		this.net.SGD(this.inputs, this.labels, this.inputs, this.labels, this.shape.batch, 1, 1, 0.01, 1, false);
+		return this.net;
+	}
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import matrix.Matrix;
+import neuralnet.Activator;
+import neuralnet.NeuralNet;
+import neuralnet.Sigmoid;
+
+/**
+ * Net configurations of the training modes of the GUI, with the hidden
+ * layers used by the example nets and a typical batch size
+ */
+public enum Shape {
+	XOR(2, new int[] { 2 }, 1, 4),
+	VIERBITXOR(4, new int[] { 8 }, 1, 16),
+	HAMMING(11, new int[] { 20 }, 4, 32),
+	MNIST(784, new int[] { 100 }, 10, 32);
+
+	final int inputs;
+	final int[] hidden;
+	final int outputs;
+	final int batch;
+
+	Shape(int inputs, int[] hidden, int outputs, int batch) {
+		this.inputs = inputs;
+		this.hidden = hidden;
+		this.outputs = outputs;
+		this.batch = batch;
+	}
+
+	NeuralNet newNet() {
+		ArrayList<Integer> hiddenNeurons = new ArrayList<Integer>();
+		ArrayList<Activator> activators = new ArrayList<Activator>();
+		for (int h : this.hidden) {
+			hiddenNeurons.add(h);
+			activators.add(new Sigmoid());
+		}
+		activators.add(new Sigmoid());
+		return new NeuralNet(this.inputs, this.outputs, hiddenNeurons, activators);
+	}
+
+	static Matrix random(int hoehe, int breite, Random r) {
+		Matrix m = new Matrix(hoehe, breite);
+		double[] d = m.getData();
+		for (int i = 0; i < d.length; i++) {
+			d[i] = r.nextDouble();
+		}
+		return m;
+	}
+
+	/**
+	 * Picks the matrix kernels of this JVM, see matrix.Kernels. Has to be
+	 * called before the first matrix product, JMH forks a new JVM per set of
+	 * parameters.
+	 */
+	static void useKernels(boolean simd) {
+		System.setProperty("matrix.simd", Boolean.toString(simd));
+		if (simd && matrix.Kernels.get() == matrix.Kernels.scalar()) {
+			throw new IllegalStateException("Vector API kernels are not available in this JVM");
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package matrix;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels on the JDK Vector API.
+ * <p>
+ * Lies in its own source folder, since it needs
+ * {@code --add-modules jdk.incubator.vector} to compile and to run;
+ * {@link Kernels} loads it reflectively and falls back to the scalar loops if
+ * that fails. The element-wise kernels use the widest vectors of the CPU, the
+ * micro kernel holds one packed row of {@value Gemm#NR} doubles of B in a 256
+ * bit vector and keeps the {@value Gemm#MR} rows of the tile in four vector
+ * accumulators, updated with fused multiply-adds. The single precision micro
+ * kernel does the same with 128 bit vectors of floats.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+final class VectorKernels extends Kernels {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Double> PANEL = DoubleVector.SPECIES_256;
+	private static final VectorSpecies<Float> FLOAT_PANEL = FloatVector.SPECIES_128;
+
+	VectorKernels() {
+		if (SPECIES.vectorBitSize() < 256 || PANEL.length() != Gemm.NR || Gemm.MR != 4) {
+			throw new UnsupportedOperationException(
+					"No 256 bit vectors for a " + Gemm.MR + "x" + Gemm.NR + " tile");
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "vector" + SPECIES.vectorBitSize();
+	}
+
+	@Override
+	public void add(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int length) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+			DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+			va.add(vb).intoArray(c, cOff + i);
+		}
+		for (; i < length; i++) {
+			c[cOff + i] = a[aOff + i] + b[bOff + i];
+		}
+	}
+
+	@Override
+	public void scale(double alpha, double[] a, int aOff, double[] c, int cOff, int length) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector.fromArray(SPECIES, a, aOff + i).mul(alpha).intoArray(c, cOff + i);
+		}
+		for (; i < length; i++) {
+			c[cOff + i] = a[aOff + i] * alpha;
+		}
+	}
+
+	@Override
+	public void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length) {
+		DoubleVector va = DoubleVector.broadcast(SPECIES, alpha);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector vx = DoubleVector.fromArray(SPECIES, x, xOff + i);
+			DoubleVector vy = DoubleVector.fromArray(SPECIES, y, yOff + i);
+			vx.fma(va, vy).intoArray(y, yOff + i);
+		}
+		for (; i < length; i++) {
+			y[yOff + i] += alpha * x[xOff + i];
+		}
+	}
+
+	@Override
+	public double dot(double[] a, int aOff, double[] b, int bOff, int length) {
+		DoubleVector acc = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+			DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+			acc = va.fma(vb, acc);
+		}
+		double sum = acc.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			sum += a[aOff + i] * b[bOff + i];
+		}
+		return sum;
+	}
+
+	@Override
+	void microKernel(int kb, double[] ap, int ai, double[] bp, int bi, double[] c, int ci, int cRs, int rows,
+			int cols) {
+		DoubleVector c0 = DoubleVector.zero(PANEL);
+		DoubleVector c1 = DoubleVector.zero(PANEL);
+		DoubleVector c2 = DoubleVector.zero(PANEL);
+		DoubleVector c3 = DoubleVector.zero(PANEL);
+		for (int p = 0; p < kb; p++) {
+			DoubleVector b = DoubleVector.fromArray(PANEL, bp, bi);
+			c0 = b.fma(DoubleVector.broadcast(PANEL, ap[ai]), c0);
+			c1 = b.fma(DoubleVector.broadcast(PANEL, ap[ai + 1]), c1);
+			c2 = b.fma(DoubleVector.broadcast(PANEL, ap[ai + 2]), c2);
+			c3 = b.fma(DoubleVector.broadcast(PANEL, ap[ai + 3]), c3);
+			ai += Gemm.MR;
+			bi += Gemm.NR;
+		}
+		if (cols == Gemm.NR) {
+			addRow(c0, c, ci);
+			if (rows > 1) {
+				addRow(c1, c, ci + cRs);
+			}
+			if (rows > 2) {
+				addRow(c2, c, ci + 2 * cRs);
+			}
+			if (rows > 3) {
+				addRow(c3, c, ci + 3 * cRs);
+			}
+			return;
+		}
+		// Edge tile
+		VectorMask<Double> m = PANEL.indexInRange(0, cols);
+		addRow(c0, c, ci, m);
+		if (rows > 1) {
+			addRow(c1, c, ci + cRs, m);
+		}
+		if (rows > 2) {
+			addRow(c2, c, ci + 2 * cRs, m);
+		}
+		if (rows > 3) {
+			addRow(c3, c, ci + 3 * cRs, m);
+		}
+	}
+
+	private static void addRow(DoubleVector v, double[] c, int ci) {
+		DoubleVector.fromArray(PANEL, c, ci).add(v).intoArray(c, ci);
+	}
+
+	private static void addRow(DoubleVector v, double[] c, int ci, VectorMask<Double> m) {
+		DoubleVector.fromArray(PANEL, c, ci, m).add(v).intoArray(c, ci, m);
+	}
+
+	@Override
+	void microKernel(int kb, float[] ap, int ai, float[] bp, int bi, float[] c, int ci, int cRs, int rows,
+			int cols) {
+		FloatVector c0 = FloatVector.zero(FLOAT_PANEL);
+		FloatVector c1 = FloatVector.zero(FLOAT_PANEL);
+		FloatVector c2 = FloatVector.zero(FLOAT_PANEL);
+		FloatVector c3 = FloatVector.zero(FLOAT_PANEL);
+		for (int p = 0; p < kb; p++) {
+			FloatVector b = FloatVector.fromArray(FLOAT_PANEL, bp, bi);
+			c0 = b.fma(FloatVector.broadcast(FLOAT_PANEL, ap[ai]), c0);
+			c1 = b.fma(FloatVector.broadcast(FLOAT_PANEL, ap[ai + 1]), c1);
+			c2 = b.fma(FloatVector.broadcast(FLOAT_PANEL, ap[ai + 2]), c2);
+			c3 = b.fma(FloatVector.broadcast(FLOAT_PANEL, ap[ai + 3]), c3);
+			ai += Gemm.MR;
+			bi += Gemm.NR;
+		}
+		if (cols == Gemm.NR) {
+			addRow(c0, c, ci);
+			if (rows > 1) {
+				addRow(c1, c, ci + cRs);
+			}
+			if (rows > 2) {
+				addRow(c2, c, ci + 2 * cRs);
+			}
+			if (rows > 3) {
+				addRow(c3, c, ci + 3 * cRs);
+			}
+			return;
+		}
+		// Edge tile
+		VectorMask<Float> m = FLOAT_PANEL.indexInRange(0, cols);
+		addRow(c0, c, ci, m);
+		if (rows > 1) {
+			addRow(c1, c, ci + cRs, m);
+		}
+		if (rows > 2) {
+			addRow(c2, c, ci + 2 * cRs, m);
+		}
+		if (rows > 3) {
+			addRow(c3, c, ci + 3 * cRs, m);
+		}
+	}
+
+	private static void addRow(FloatVector v, float[] c, int ci) {
+		FloatVector.fromArray(FLOAT_PANEL, c, ci).add(v).intoArray(c, ci);
+	}
+
+	private static void addRow(FloatVector v, float[] c, int ci, VectorMask<Float> m) {
+		FloatVector.fromArray(FLOAT_PANEL, c, ci, m).add(v).intoArray(c, ci, m);
+	}
+
+	@Override
+	public void sigmoid(double[] in, int inOff, double[] out, int outOff, int length) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			sigmoid(DoubleVector.fromArray(SPECIES, in, inOff + i)).intoArray(out, outOff + i);
+		}
+		for (; i < length; i++) {
+			out[outOff + i] = 1 / (1 + Math.exp(-in[inOff + i]));
+		}
+	}
+
+	@Override
+	public void sigmoidDerivative(double[] in, int inOff, double[] out, int outOff, int length) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector s = sigmoid(DoubleVector.fromArray(SPECIES, in, inOff + i));
+			s.mul(s.neg().add(1)).intoArray(out, outOff + i);
+		}
+		for (; i < length; i++) {
+			double s = 1 / (1 + Math.exp(-in[inOff + i]));
+			out[outOff + i] = s * (1 - s);
+		}
+	}
+
+	@Override
+	public void tanh(double[] in, int inOff, double[] out, int outOff, int length) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			sigmoid(DoubleVector.fromArray(SPECIES, in, inOff + i)).mul(2).sub(1).intoArray(out, outOff + i);
+		}
+		for (; i < length; i++) {
+			out[outOff + i] = 2 * (1 / (1 + Math.exp(-in[inOff + i]))) - 1;
+		}
+	}
+
+	@Override
+	public void tanhDerivative(double[] in, int inOff, double[] out, int outOff, int length) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector t = sigmoid(DoubleVector.fromArray(SPECIES, in, inOff + i)).mul(2).sub(1);
+			t.mul(t).neg().add(1).intoArray(out, outOff + i);
+		}
+		for (; i < length; i++) {
+			double t = 2 * (1 / (1 + Math.exp(-in[inOff + i]))) - 1;
+			out[outOff + i] = 1 - t * t;
+		}
+	}
+
+	@Override
+	public void relu(double[] in, int inOff, double[] out, int outOff, int length) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector.fromArray(SPECIES, in, inOff + i).max(0).intoArray(out, outOff + i);
+		}
+		for (; i < length; i++) {
+			out[outOff + i] = Math.max(0, in[inOff + i]);
+		}
+	}
+
+	@Override
+	public void reluDerivative(double[] in, int inOff, double[] out, int outOff, int length) {
+		DoubleVector zero = DoubleVector.zero(SPECIES);
+		DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector x = DoubleVector.fromArray(SPECIES, in, inOff + i);
+			one.blend(zero, x.lt(0)).intoArray(out, outOff + i);
+		}
+		for (; i < length; i++) {
+			out[outOff + i] = in[inOff + i] < 0 ? 0.0 : 1.0;
+		}
+	}
+
+	private static DoubleVector sigmoid(DoubleVector x) {
+		DoubleVector d = x.neg().lanewise(VectorOperators.EXP).add(1);
+		return d.broadcast(1).div(d);
+	}
+}
@@ -0,0 +1,114 @@
+package backpropagation;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+import matrix.Matrix;
+import neuralnet.MiniBatchIterator;
+
+/**
+ * Samples of one part of a {@link Dataset}, for example its train data, with
+ * their labels.
+ * <p>
+ * Samples are fetched by index into buffers of the caller, so a source does
+ * not have to hold its samples in memory; the MNIST sources decode them from
+ * the memory mapped files on demand. {@link #of(Matrix, Matrix)} wraps data
+ * that is in memory anyway.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public interface DataSource {
+
+	/**
+	 * @return the amount of samples
+	 */
+	public int size();
+
+	/**
+	 * @return the length of an input
+	 */
+	public int inputSize();
+
+	/**
+	 * @return the length of a label
+	 */
+	public int labelSize();
+
+	/**
+	 * Writes input and label of sample row into the given arrays, starting at
+	 * the offsets
+	 */
+	public void fetch(int row, double[] input, int inputOffset, double[] label, int labelOffset);
+
+	/**
+	 * Fetches the samples indices[from], ..., indices[from + inputs.hoehe - 1]
+	 * into the rows of inputs and labels
+	 */
+	public default void fetchRowsInto(int[] indices, int from, Matrix inputs, Matrix labels) {
+		if (inputs.hoehe != labels.hoehe || inputs.breite != this.inputSize() || labels.breite != this.labelSize()
+				|| from + inputs.hoehe > indices.length) {
+			throw new IllegalArgumentException("Buffers do not fit " + inputs.hoehe + " samples");
+		}
+		for (int i = 0; i < inputs.hoehe; i++) {
+			this.fetch(indices[from + i], inputs.getData(), inputs.getOffset() + i * inputs.getStride(),
+					labels.getData(), labels.getOffset() + i * labels.getStride());
+		}
+	}
+
+	/**
+	 * Fetches the samples from, ..., from + inputs.hoehe - 1 into the rows of
+	 * inputs and labels
+	 */
+	public default void fetchRangeInto(int from, Matrix inputs, Matrix labels) {
+		if (inputs.hoehe != labels.hoehe || inputs.breite != this.inputSize() || labels.breite != this.labelSize()
+				|| from < 0 || from + inputs.hoehe > this.size()) {
+			throw new IllegalArgumentException("Samples " + from + " to " + (from + inputs.hoehe) + " do not fit");
+		}
+		for (int i = 0; i < inputs.hoehe; i++) {
+			this.fetch(from + i, inputs.getData(), inputs.getOffset() + i * inputs.getStride(), labels.getData(),
+					labels.getOffset() + i * labels.getStride());
+		}
+	}
+
+	/**
+	 * Iterates over all samples in order, chunkSize at a time. Every chunk is
+	 * a pair of inputs and labels that is only valid until the next call of
+	 * next(), see {@link MiniBatchIterator}.
+	 */
+	public default Iterator<Matrix[]> chunks(int chunkSize) {
+		return new MiniBatchIterator(this, chunkSize, false, null);
+	}
+
+	/**
+	 * @return CRC32 of all inputs and labels, to check that the data is still
+	 *         the same
+	 */
+	public default long checksum() {
+		CRC32 crc = new CRC32();
+		double[] input = new double[this.inputSize()];
+		double[] label = new double[this.labelSize()];
+		ByteBuffer bytes = ByteBuffer.allocate(8 * (input.length + label.length));
+		for (int i = 0; i < this.size(); i++) {
+			this.fetch(i, input, 0, label, 0);
+			bytes.clear();
+			for (double d : input) {
+				bytes.putDouble(d);
+			}
+			for (double d : label) {
+				bytes.putDouble(d);
+			}
+			crc.update(bytes.array());
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * @return the rows of inputs and labels as source, without copying them
+	 */
+	public static DataSource of(Matrix inputs, Matrix labels) {
+		return new MatrixDataSource(inputs, labels);
+	}
+}
@@ -45,5 +45,50 @@ public interface Dataset {
 	 * @see Matrix
 	 */
 	public abstract Matrix getTestLabels();
-	
+
+	/**
+	 * Returns the train data as {@link DataSource}. By default the matrices of
+	 * {@link #getTrainData()} and {@link #getTrainLabels()} are wrapped, which
+	 * suits the small generated datasets; datasets that should not be in
+	 * memory as a whole stream their samples instead.
+	 * 
+	 * @return train data and labels as source
+	 */
+	public default DataSource getTrainSource() {
+		return DataSource.of(this.getTrainData(), this.getTrainLabels());
+	}
+
+	/**
+	 * Returns the test data as {@link DataSource}, see
+	 * {@link #getTrainSource()}
+	 * 
+	 * @return test data and labels as source
+	 */
+	public default DataSource getTestSource() {
+		return DataSource.of(this.getTestData(), this.getTestLabels());
+	}
+
+	/**
+	 * Returns an estimate of the heap memory the data of this dataset takes,
+	 * by default the size of train and test data as doubles. Datasets that
+	 * are not in memory as a whole report what they hold.
+	 * 
+	 * @return estimated size in bytes
+	 */
+	public default long estimatedBytes() {
+		DataSource train = this.getTrainSource();
+		DataSource test = this.getTestSource();
+		return 8L * train.size() * (train.inputSize() + train.labelSize())
+				+ 8L * test.size() * (test.inputSize() + test.labelSize());
+	}
+
+	/**
+	 * Returns a fingerprint of train and test data, which changes if any
+	 * sample or label changes
+	 * 
+	 * @return checksums of train and test data in hex
+	 */
+	public default String fingerprint() {
+		return String.format("%08x%08x", this.getTrainSource().checksum(), this.getTestSource().checksum());
+	}
 }
@@ -0,0 +1,81 @@
+package backpropagation;
+
+import matrix.Matrix;
+
+/**
+ * {@link DataSource} over two matrices in memory. Rows are copied with
+ * {@link Matrix#gatherRowsInto(int[], int, Matrix)}, and sources over the
+ * same matrices are equal, so a cached iterator can be reused for them.
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class MatrixDataSource implements DataSource {
+	private final Matrix inputs;
+	private final Matrix labels;
+
+	public MatrixDataSource(Matrix inputs, Matrix labels) {
+		if (inputs.hoehe != labels.hoehe) {
+			throw new IllegalArgumentException("Inputs and labels do not have the same amount of rows!");
+		}
+		this.inputs = inputs;
+		this.labels = labels;
+	}
+
+	public Matrix getInputs() {
+		return this.inputs;
+	}
+
+	public Matrix getLabels() {
+		return this.labels;
+	}
+
+	@Override
+	public int size() {
+		return this.inputs.hoehe;
+	}
+
+	@Override
+	public int inputSize() {
+		return this.inputs.breite;
+	}
+
+	@Override
+	public int labelSize() {
+		return this.labels.breite;
+	}
+
+	@Override
+	public void fetch(int row, double[] input, int inputOffset, double[] label, int labelOffset) {
+		System.arraycopy(this.inputs.getData(), this.inputs.getOffset() + row * this.inputs.getStride(), input,
+				inputOffset, this.inputs.breite);
+		System.arraycopy(this.labels.getData(), this.labels.getOffset() + row * this.labels.getStride(), label,
+				labelOffset, this.labels.breite);
+	}
+
+	@Override
+	public void fetchRowsInto(int[] indices, int from, Matrix inputs, Matrix labels) {
+		this.inputs.gatherRowsInto(indices, from, inputs);
+		this.labels.gatherRowsInto(indices, from, labels);
+	}
+
+	@Override
+	public void fetchRangeInto(int from, Matrix inputs, Matrix labels) {
+		inputs.copyFrom(this.inputs.view(from, inputs.hoehe, 0, this.inputs.breite));
+		labels.copyFrom(this.labels.view(from, labels.hoehe, 0, this.labels.breite));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof MatrixDataSource)) {
+			return false;
+		}
+		MatrixDataSource other = (MatrixDataSource) o;
+		return this.inputs == other.inputs && this.labels == other.labels;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(this.inputs) + System.identityHashCode(this.labels);
+	}
+}
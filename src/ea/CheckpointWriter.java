@@ -0,0 +1,304 @@
+package ea;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import neuralnet.NeuralNet;
+
+/**
+ * Writes checkpoints of a training run to one path without stalling the
+ * training.
+ * <p>
+ * {@link #save(NeuralNet)} and {@link #save(Serializable)} only take a
+ * snapshot on the calling thread: the net is encoded in the binary model
+ * format, other objects are serialized, into one of two buffers that are
+ * reused. The snapshot is written by a background thread to a temporary file
+ * next to the path, forced to disk and renamed to the path atomically, so a
+ * crash while writing never leaves a broken checkpoint behind. If both
+ * buffers are still waiting to be written, saving blocks until one is free.
+ * </p>
+ * <p>
+ * The previous checkpoints are kept as path.1 (the newest), path.2, ..., up
+ * to keep - 1 of them.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class CheckpointWriter implements AutoCloseable {
+	public static final int DEFAULT_KEEP = 3;
+	private static final int SLOTS = 2;
+
+	private final Path path;
+	private final Path temporary;
+	private final int keep;
+	private final ArrayBlockingQueue<Slot> free = new ArrayBlockingQueue<Slot>(SLOTS);
+	private final ArrayBlockingQueue<Slot> filled = new ArrayBlockingQueue<Slot>(SLOTS + 1);
+	private final Slot stop = new Slot();
+	private final Thread writer;
+	private final Thread shutdownHook;
+	private int pending;
+	private IOException failure;
+	private boolean closed;
+
+	/**
+	 * @param path
+	 *            path the checkpoints are written to
+	 * @param keep
+	 *            amount of checkpoints that are kept, including the one at
+	 *            path
+	 */
+	public CheckpointWriter(String path, int keep) {
+		if (keep < 1) {
+			throw new IllegalArgumentException("At least one checkpoint has to be kept");
+		}
+		this.path = Paths.get(path).toAbsolutePath();
+		this.temporary = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+		this.keep = keep;
+		for (int i = 0; i < SLOTS; i++) {
+			this.free.add(new Slot());
+		}
+		this.writer = new Thread(this::run, "Checkpoint writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+		// Checkpoints that are still queued when the program exits are written
+		this.shutdownHook = new Thread(this::drain, "Checkpoint writer shutdown");
+		Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+	}
+
+	public String getPath() {
+		return this.path.toString();
+	}
+
+	/**
+	 * @return the path of the i-th previous checkpoint
+	 */
+	public Path backup(int i) {
+		return this.path.resolveSibling(this.path.getFileName() + "." + i);
+	}
+
+	/**
+	 * Snapshots nn in the binary model format and queues it to be written
+	 *
+	 * @throws IOException
+	 *             if writing an earlier checkpoint failed
+	 */
+	public void save(NeuralNet nn) throws IOException {
+		Slot slot = this.take();
+		try {
+			slot.bytes = ModelWriter.encode(nn, slot.bytes);
+		} catch (RuntimeException e) {
+			this.free.add(slot);
+			throw e;
+		}
+		this.queue(slot);
+	}
+
+	/**
+	 * Snapshots o by serializing it and queues it to be written
+	 *
+	 * @throws IOException
+	 *             if o can not be serialized, or if writing an earlier
+	 *             checkpoint failed
+	 */
+	public void save(Serializable o) throws IOException {
+		Slot slot = this.take();
+		try {
+			slot.reset();
+			try (ObjectOutputStream oos = new ObjectOutputStream(slot)) {
+				oos.writeObject(o);
+			}
+		} catch (IOException | RuntimeException e) {
+			this.free.add(slot);
+			throw e;
+		}
+		slot.bytes = slot.toByteBuffer();
+		this.queue(slot);
+	}
+
+	/**
+	 * Waits until every queued checkpoint is written
+	 *
+	 * @throws IOException
+	 *             if writing one of them failed
+	 */
+	public synchronized void flush() throws IOException {
+		try {
+			while (this.pending > 0) {
+				this.wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for checkpoints");
+		}
+		this.rethrow();
+	}
+
+	/**
+	 * Writes the queued checkpoints and stops the background thread
+	 *
+	 * @throws IOException
+	 *             if writing one of the checkpoints failed
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+		}
+		try {
+			this.flush();
+		} finally {
+			this.filled.add(this.stop);
+			try {
+				Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+			} catch (IllegalStateException e) {
+				// The program is exiting, the hook drains the queue
+			}
+		}
+	}
+
+	private Slot take() throws IOException {
+		synchronized (this) {
+			if (this.closed) {
+				throw new IOException("Checkpoint writer is closed");
+			}
+			this.rethrow();
+		}
+		try {
+			return this.free.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a checkpoint buffer");
+		}
+	}
+
+	private void queue(Slot slot) {
+		synchronized (this) {
+			this.pending++;
+		}
+		this.filled.add(slot);
+	}
+
+	private void rethrow() throws IOException {
+		IOException e = this.failure;
+		this.failure = null;
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	private void drain() {
+		try {
+			this.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void run() {
+		while (true) {
+			Slot slot;
+			try {
+				slot = this.filled.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (slot == this.stop) {
+				return;
+			}
+			IOException failure = null;
+			try {
+				this.write(slot.bytes);
+			} catch (IOException e) {
+				failure = e;
+			}
+			this.free.add(slot);
+			synchronized (this) {
+				if (failure != null) {
+					this.failure = failure;
+				}
+				this.pending--;
+				this.notifyAll();
+			}
+		}
+	}
+
+	private void write(ByteBuffer bytes) throws IOException {
+		try (FileChannel channel = FileChannel.open(this.temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			channel.force(true);
+		}
+		this.rotate();
+		try {
+			Files.move(this.temporary, this.path, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(this.temporary, this.path, StandardCopyOption.REPLACE_EXISTING);
+		}
+		this.forceDirectory();
+	}
+
+	/**
+	 * Shifts the previous checkpoints by one and keeps the current one as
+	 * path.1. A hard link is enough for that, since the new checkpoint
+	 * replaces the path instead of being written into it.
+	 */
+	private void rotate() throws IOException {
+		if (this.keep < 2 || !Files.exists(this.path)) {
+			return;
+		}
+		Files.deleteIfExists(this.backup(this.keep - 1));
+		for (int i = this.keep - 2; i >= 1; i--) {
+			if (Files.exists(this.backup(i))) {
+				Files.move(this.backup(i), this.backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		try {
+			Files.createLink(this.backup(1), this.path);
+		} catch (UnsupportedOperationException | IOException e) {
+			Files.copy(this.path, this.backup(1), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Forces the rename to disk. Not every platform can open directories, the
+	 * rename is still atomic there.
+	 */
+	private void forceDirectory() {
+		try (FileChannel dir = FileChannel.open(this.path.getParent(), StandardOpenOption.READ)) {
+			dir.force(true);
+		} catch (IOException e) {
+			// Directories can not be opened on this platform
+		}
+	}
+
+	/**
+	 * One snapshot buffer; objects are serialized into the stream, nets are
+	 * encoded into {@link #bytes}, which is reused if it is large enough
+	 */
+	private static final class Slot extends ByteArrayOutputStream {
+		ByteBuffer bytes;
+
+		ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(this.buf, 0, this.count);
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package ea;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import matrix.Matrix;
+import neuralnet.Activator;
+import neuralnet.Adam;
+import neuralnet.CategoricalCrossEntropy;
+import neuralnet.NeuralNet;
+import neuralnet.Relu;
+import neuralnet.Sigmoid;
+import neuralnet.Softmax;
+
+/**
+ * Manual correctness check of the binary model format of {@link ModelWriter}
+ * and {@link ModelLoader}.
+ * <p>
+ * Covers a net with optimizer state and loss written and read back, files
+ * with corrupted weights, checksum or header being rejected, and the
+ * conversion of a serialized net of the old format by
+ * {@link ModelMigration}. Output is to be found on the command line, the exit
+ * code is 1 if any check fails.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class ModelFormatTest {
+	private static final Random r = new Random(42);
+	private static int failed = 0;
+
+	public static void main(String[] args) throws IOException {
+		checkRoundTrip();
+		checkCorrupted();
+		checkMigration();
+		if (failed == 0) {
+			System.out.println("All checks passed");
+		} else {
+			System.out.println(failed + " checks failed");
+			System.exit(1);
+		}
+	}
+
+	private static void checkRoundTrip() throws IOException {
+		NeuralNet nn = net(new Relu(), new Softmax());
+		nn.setOptimizer(new Adam());
+		nn.setLoss(new CategoricalCrossEntropy());
+		Matrix x = random(20, 4);
+		Matrix y = labels(20, 3);
+		for (int step = 0; step < 3; step++) {
+			nn.update_mini_batch(x, y, 0.01, 1);
+		}
+		NeuralNet loaded = ModelLoader.decode(ModelWriter.encode(nn));
+		check("weights", sameWeights(nn.weights, loaded.weights));
+		check("optimizer", loaded.getOptimizer() instanceof Adam);
+		check("optimizer steps", nn.getOptimizer().getSteps() == loaded.getOptimizer().getSteps());
+		boolean sameState = true;
+		for (int i = 0; i < nn.weights.size(); i++) {
+			Matrix[] a = nn.getOptimizer().getState().get(i);
+			Matrix[] b = loaded.getOptimizer().getState().get(i);
+			for (int j = 0; j < a.length; j++) {
+				sameState &= Arrays.equals(a[j].copy().getData(), b[j].copy().getData());
+			}
+		}
+		check("optimizer state", sameState);
+		check("loss", loaded.getLoss() instanceof CategoricalCrossEntropy);
+		check("loss value", nn.evaluate(x, y) == loaded.evaluate(x, y));
+		nn.update_mini_batch(x, y, 0.01, 1);
+		loaded.update_mini_batch(x, y, 0.01, 1);
+		check("training continues the same", sameWeights(nn.weights, loaded.weights));
+	}
+
+	private static void checkCorrupted() {
+		ByteBuffer encoded = ModelWriter.encode(net(new Sigmoid(), new Sigmoid()));
+		int headerLength = encoded.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(8);
+		byte[] bytes = new byte[encoded.remaining()];
+		encoded.duplicate().get(bytes);
+
+		byte[] weights = bytes.clone();
+		weights[headerLength + 5] ^= 1;
+		check("corrupted weights are rejected", rejected(weights));
+		CRC32 checksum = new CRC32();
+		checksum.update(bytes, headerLength, bytes.length - headerLength);
+		byte[] crc = bytes.clone();
+		// The checksum is the last field before the padding of the header
+		int at = headerLength - 4;
+		while (ByteBuffer.wrap(bytes, at, 4).order(ByteOrder.LITTLE_ENDIAN).getInt() != (int) checksum.getValue()) {
+			at--;
+		}
+		crc[at] ^= 1;
+		check("corrupted checksum is rejected", rejected(crc));
+		check("truncated weights are rejected", rejected(Arrays.copyOf(bytes, bytes.length - 8)));
+		check("truncated header is rejected", rejected(Arrays.copyOf(bytes, 30)));
+		byte[] name = bytes.clone();
+		// The length of the name of the first activation function
+		name[6 * 4 + 4] = (byte) 0xff;
+		name[6 * 4 + 5] = (byte) 0xff;
+		check("negative name length is rejected", rejected(name));
+		byte[] unknown = bytes.clone();
+		byte[] sigmoid = Sigmoid.class.getName().getBytes(StandardCharsets.UTF_8);
+		byte[] other = "java.lang.Runtime".getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(other, 0, unknown, 6 * 4 + 6, other.length);
+		check("names of other classes are rejected", sigmoid.length == other.length && rejected(unknown));
+	}
+
+	private static boolean rejected(byte[] bytes) {
+		try {
+			ModelLoader.decode(ByteBuffer.wrap(bytes));
+			return false;
+		} catch (IOException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Writes a stand-in with the fields of the serialized NeuralNet before the
+	 * binary format existed under its name, converts it and compares the
+	 * weights of the result
+	 */
+	private static void checkMigration() throws IOException {
+		LegacyNet legacy = new LegacyNet();
+		NeuralNet nn = net(new Sigmoid(), new Sigmoid());
+		legacy.inputNeurons = nn.inputNeurons;
+		legacy.outputNeurons = nn.outputNeurons;
+		legacy.hiddenNeurons = nn.hiddenNeurons;
+		legacy.sumOfNeurons = 4 + 5 + 3;
+		legacy.activationFunctions = nn.activationFunctions;
+		legacy.weights = nn.weights;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+			oos.writeObject(legacy);
+		}
+		byte[] stream = rename(out.toByteArray(), LegacyNet.class.getName(), NeuralNet.class.getName());
+		File source = File.createTempFile("legacy", ".nn");
+		File target = new File(ModelMigration.target(source.getPath()));
+		try {
+			Files.write(source.toPath(), stream);
+			NeuralNet serialized = ModelLoader.read(source.getPath());
+			check("legacy net loads", sameWeights(nn.weights, serialized.weights));
+			ModelMigration.main(new String[] { source.getPath() });
+			NeuralNet migrated = ModelLoader.read(target.getPath());
+			check("migrated weights", sameWeights(nn.weights, migrated.weights));
+			Matrix x = random(10, 4);
+			Matrix y = labels(10, 3);
+			check("migrated net evaluates the same", nn.evaluate(x, y) == migrated.evaluate(x, y));
+		} finally {
+			source.delete();
+			target.delete();
+		}
+	}
+
+	/**
+	 * Replaces the class name from by to in a serialization stream, where it
+	 * is written with its length in front
+	 */
+	private static byte[] rename(byte[] stream, String from, String to) {
+		byte[] f = utf(from);
+		byte[] t = utf(to);
+		for (int i = 0; i + f.length <= stream.length; i++) {
+			if (Arrays.equals(Arrays.copyOfRange(stream, i, i + f.length), f)) {
+				byte[] res = new byte[stream.length - f.length + t.length];
+				System.arraycopy(stream, 0, res, 0, i);
+				System.arraycopy(t, 0, res, i, t.length);
+				System.arraycopy(stream, i + f.length, res, i + t.length, stream.length - i - f.length);
+				return res;
+			}
+		}
+		throw new IllegalArgumentException(from + " is not in the stream");
+	}
+
+	private static byte[] utf(String s) {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		byte[] res = new byte[b.length + 2];
+		res[0] = (byte) (b.length >> 8);
+		res[1] = (byte) b.length;
+		System.arraycopy(b, 0, res, 2, b.length);
+		return res;
+	}
+
+	/**
+	 * The serialized fields of NeuralNet before there were sequential models
+	 */
+	private static class LegacyNet implements Serializable {
+		private static final long serialVersionUID = 1L;
+		public int inputNeurons;
+		public int outputNeurons;
+		public ArrayList<Integer> hiddenNeurons;
+		int sumOfNeurons;
+		public ArrayList<Activator> activationFunctions;
+		private ArrayList<Matrix> eingaben;
+		private ArrayList<Matrix> ausgaben;
+		public ArrayList<Matrix> weights;
+	}
+
+	private static NeuralNet net(Activator hidden, Activator output) {
+		ArrayList<Integer> hiddenNeurons = new ArrayList<Integer>();
+		hiddenNeurons.add(5);
+		ArrayList<Activator> activationFunctions = new ArrayList<Activator>();
+		activationFunctions.add(hidden);
+		activationFunctions.add(output);
+		return new NeuralNet(4, 3, hiddenNeurons, activationFunctions);
+	}
+
+	private static void check(String name, boolean ok) {
+		if (!ok) {
+			failed++;
+		}
+		System.out.println((ok ? "ok     " : "FAILED ") + name);
+	}
+
+	private static boolean sameWeights(ArrayList<Matrix> a, ArrayList<Matrix> b) {
+		if (a.size() != b.size()) {
+			return false;
+		}
+		for (int i = 0; i < a.size(); i++) {
+			if (!Arrays.equals(a.get(i).copy().getData(), b.get(i).copy().getData())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Matrix random(int hoehe, int breite) {
+		Matrix m = new Matrix(hoehe, breite);
+		for (int i = 0; i < hoehe; i++) {
+			for (int j = 0; j < breite; j++) {
+				m.set(i, j, r.nextGaussian());
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * One-hot labels
+	 */
+	private static Matrix labels(int hoehe, int breite) {
+		Matrix m = new Matrix(hoehe, breite);
+		for (int i = 0; i < hoehe; i++) {
+			m.set(i, r.nextInt(breite), 1);
+		}
+		return m;
+	}
+}
@@ -0,0 +1,247 @@
+package ea;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import matrix.Matrix;
+import neuralnet.Activator;
+import neuralnet.Loss;
+import neuralnet.NeuralNet;
+import neuralnet.Optimizer;
+
+/**
+ * Class used to load neural nets written by {@link ModelWriter}
+ * <p>
+ * The file is memory mapped and the weight blocks are copied straight from
+ * the mapping into the matrices of the net. Files that start like a Java
+ * serialization stream are old .nn files written by {@link ObjectWriter};
+ * they are loaded through {@link ObjectLoader}, so both formats can be
+ * opened the same way, see {@link ModelMigration}.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class ModelLoader {
+	private static final int SERIALIZATION_MAGIC = 0xACED;
+	private static final int CRC_CHUNK = 1 << 16;
+
+	/**
+	 * Loads a neural net from a path
+	 * <p>
+	 * Note that this method does not throw errors, it just prints any to the
+	 * console. If an error occurs, null will be returned
+	 * </p>
+	 *
+	 * @param path
+	 *            relative path where the net that is to be loaded is stored
+	 * @return the net at the path, or null if an error occurs
+	 */
+	public static NeuralNet loadModel(String path) {
+		try {
+			return read(path);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Loads a neural net from a path, in the binary model format or as
+	 * serialized object
+	 *
+	 * @throws IOException
+	 *             if the file can not be read or is no valid model
+	 */
+	public static NeuralNet read(String path) throws IOException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(path + " is too large to be a model");
+			}
+			buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.capacity() >= 2 && (buffer.getShort(0) & 0xffff) == SERIALIZATION_MAGIC) {
+			Object o = ObjectLoader.loadObject(path);
+			if (!(o instanceof NeuralNet)) {
+				throw new IOException(path + " does not contain a serialized NeuralNet");
+			}
+			return (NeuralNet) o;
+		}
+		try {
+			return decode(buffer);
+		} catch (IOException e) {
+			throw new IOException(path + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads a net in the binary model format from buffer, starting at its
+	 * position
+	 *
+	 * @throws IOException
+	 *             if buffer holds no valid model or ends before it does
+	 */
+	public static NeuralNet decode(ByteBuffer buffer) throws IOException {
+		try {
+			return decodeModel(buffer);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new IOException("Model is truncated", e);
+		}
+	}
+
+	private static NeuralNet decodeModel(ByteBuffer buffer) throws IOException {
+		ByteBuffer b = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		byte[] magic = new byte[ModelWriter.MAGIC.length];
+		b.get(magic);
+		if (!Arrays.equals(magic, ModelWriter.MAGIC)) {
+			throw new IOException("No model file");
+		}
+		int version = b.getInt();
+		if (version != ModelWriter.VERSION) {
+			throw new IOException("Unsupported model version " + version);
+		}
+		int headerLength = b.getInt();
+		int inputNeurons = b.getInt();
+		int outputNeurons = b.getInt();
+		int layers = b.getInt();
+		if (layers < 1) {
+			throw new IOException("Model without layers");
+		}
+		ArrayList<Integer> hiddenNeurons = new ArrayList<Integer>();
+		for (int i = 0; i + 1 < layers; i++) {
+			hiddenNeurons.add(b.getInt());
+		}
+		ArrayList<Activator> activationFunctions = new ArrayList<Activator>();
+		for (int i = 0; i < layers; i++) {
+			byte[] name = new byte[b.getShort()];
+			b.get(name);
+			activationFunctions.add(activator(new String(name, StandardCharsets.UTF_8)));
+		}
+		int[] rows = new int[layers];
+		int[] columns = new int[layers];
+		for (int i = 0; i < layers; i++) {
+			rows[i] = b.getInt();
+			columns[i] = b.getInt();
+			int in = i == 0 ? inputNeurons : hiddenNeurons.get(i - 1);
+			int out = i + 1 == layers ? outputNeurons : hiddenNeurons.get(i);
+			if (rows[i] != out || columns[i] != in + 1) {
+				throw new IOException("Weights of layer " + i + " do not match the topology");
+			}
+		}
+		byte[] optimizerName = new byte[b.getShort()];
+		b.get(optimizerName);
+		Optimizer optimizer = optimizer(new String(optimizerName, StandardCharsets.UTF_8));
+		double[] parameters = new double[b.getInt()];
+		for (int i = 0; i < parameters.length; i++) {
+			parameters[i] = b.getDouble();
+		}
+		try {
+			optimizer.setParameters(parameters);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		long steps = b.getLong();
+		int buffers = b.getInt();
+		if (buffers != 0 && buffers != optimizer.getBuffers()) {
+			throw new IOException("Optimizer state does not match " + optimizer.getName());
+		}
+		byte[] lossName = new byte[b.getShort()];
+		b.get(lossName);
+		Loss loss = loss(new String(lossName, StandardCharsets.UTF_8));
+		int crc = b.getInt();
+		if (b.position() > headerLength) {
+			throw new IOException("Header is longer than its length says");
+		}
+		b.position(headerLength);
+		checkCrc(b, crc);
+		b.position(headerLength);
+		ArrayList<Matrix> weights = new ArrayList<Matrix>();
+		for (int i = 0; i < layers; i++) {
+			weights.add(get(b, rows[i], columns[i]));
+		}
+		NeuralNet nn;
+		try {
+			nn = new NeuralNet(inputNeurons, outputNeurons, hiddenNeurons, activationFunctions, weights);
+			nn.setLoss(loss);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		if (buffers > 0) {
+			ArrayList<Matrix[]> state = new ArrayList<Matrix[]>();
+			for (int i = 0; i < layers; i++) {
+				Matrix[] s = new Matrix[buffers];
+				for (int j = 0; j < buffers; j++) {
+					s[j] = get(b, rows[i], columns[i]);
+				}
+				state.add(s);
+			}
+			optimizer.setState(steps, state);
+		}
+		nn.setOptimizer(optimizer);
+		return nn;
+	}
+
+	private static Matrix get(ByteBuffer b, int rows, int columns) {
+		Matrix m = new Matrix(rows, columns);
+		b.asDoubleBuffer().get(m.getData());
+		b.position(b.position() + 8 * rows * columns);
+		return m;
+	}
+
+	private static Optimizer optimizer(String name) throws IOException {
+		return instance(name, Optimizer.class, "optimizer");
+	}
+
+	private static Loss loss(String name) throws IOException {
+		return instance(name, Loss.class, "loss");
+	}
+
+	private static Activator activator(String name) throws IOException {
+		return instance(name, Activator.class, "activation function");
+	}
+
+	/**
+	 * Creates an instance of the class name with its constructor without
+	 * arguments. The class is only initialized once it is known to be a type,
+	 * so a file can not make static initializers of other classes run.
+	 */
+	private static <T> T instance(String name, Class<T> type, String kind) throws IOException {
+		try {
+			Class<?> c = Class.forName(name, false, ModelLoader.class.getClassLoader());
+			if (!type.isAssignableFrom(c)) {
+				throw new IOException("Unknown " + kind + " " + name);
+			}
+			return c.asSubclass(type).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			throw new IOException("Unknown " + kind + " " + name, e);
+		}
+	}
+
+	/**
+	 * Checks the CRC32 of the rest of b, reading it chunk by chunk, since a
+	 * mapping has no array
+	 */
+	private static void checkCrc(ByteBuffer b, int expected) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[CRC_CHUNK];
+		while (b.hasRemaining()) {
+			int n = Math.min(chunk.length, b.remaining());
+			b.get(chunk, 0, n);
+			crc.update(chunk, 0, n);
+		}
+		if ((int) crc.getValue() != expected) {
+			throw new IOException("Weights are corrupted, checksum does not match");
+		}
+	}
+}
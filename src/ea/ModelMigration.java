@@ -0,0 +1,72 @@
+package ea;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import matrix.Matrix;
+import neuralnet.NeuralNet;
+
+/**
+ * Converts serialized .nn files to the binary model format.
+ * <p>
+ * Every file given as argument is loaded, written next to it with the
+ * extension .nnb and read back; the conversion only counts as done if the
+ * weights read back are exactly the loaded ones. The .nn files are left as
+ * they are.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class ModelMigration {
+	public static final String EXTENSION = ".nnb";
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.out.println("Usage: java ea.ModelMigration file.nn...");
+			return;
+		}
+		int failed = 0;
+		for (String path : args) {
+			String target = target(path);
+			try {
+				NeuralNet nn = ModelLoader.read(path);
+				ModelWriter.write(target, nn);
+				if (!sameWeights(nn, ModelLoader.read(target))) {
+					throw new IOException("Weights changed while converting");
+				}
+				System.out.println(path + " -> " + target);
+			} catch (IOException e) {
+				System.out.println(path + " failed: " + e.getMessage());
+				failed++;
+			}
+		}
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @return path with the extension .nnb instead of .nn
+	 */
+	public static String target(String path) {
+		if (path.endsWith(".nn")) {
+			return path.substring(0, path.length() - 3) + EXTENSION;
+		}
+		return path + EXTENSION;
+	}
+
+	private static boolean sameWeights(NeuralNet a, NeuralNet b) {
+		if (a.weights.size() != b.weights.size()) {
+			return false;
+		}
+		for (int i = 0; i < a.weights.size(); i++) {
+			Matrix x = a.weights.get(i);
+			Matrix y = b.weights.get(i);
+			if (!Arrays.equals(x.copy().getData(), y.copy().getData())) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,174 @@
+package ea;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+import matrix.Matrix;
+import neuralnet.NeuralNet;
+import neuralnet.Optimizer;
+
+/**
+ * Class used to write neural nets to files in the binary model format
+ * <p>
+ * All numbers are little-endian. The header holds the topology and is padded
+ * to a multiple of 8 bytes, so the weights that follow it are aligned:
+ * </p>
+ *
+ * <pre>
+ * magic "FMLN", int version, int header length
+ * int input neurons, int output neurons, int layers
+ * int neurons of every hidden layer
+ * per layer: short length and UTF-8 class name of the activation function
+ * per layer: int rows, int columns of the weight matrix
+ * short length and UTF-8 class name of the optimizer
+ * int amount of its parameters, the parameters as doubles
+ * long steps of the optimizer, int state buffers per layer (0 without state)
+ * short length and UTF-8 class name of the loss
+ * int CRC32 of everything after the header
+ * padding
+ * per layer: rows * columns doubles, row by row
+ * per layer and state buffer: rows * columns doubles, row by row
+ * </pre>
+ * <p>
+ * Unlike Java serialization the file does not depend on the fields of the
+ * classes, and the weights are contiguous blocks that
+ * {@link ModelLoader#loadModel(String)} can read straight from a memory
+ * mapping.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class ModelWriter {
+	static final byte[] MAGIC = { 'F', 'M', 'L', 'N' };
+	static final int VERSION = 1;
+
+	/**
+	 * Writes nn to a file in the binary model format
+	 * <p>
+	 * Note that this method does not throw errors, it just prints any to the
+	 * console.
+	 * </p>
+	 *
+	 * @param path
+	 *            relative path where the net should be written to
+	 * @param nn
+	 *            the to be written net
+	 * @return true if saving was successful, false if an error occurred
+	 */
+	public static boolean saveModel(String path, NeuralNet nn) {
+		try {
+			write(path, nn);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Writes nn to a file in the binary model format
+	 *
+	 * @throws IOException
+	 *             if the file can not be written
+	 */
+	public static void write(String path, NeuralNet nn) throws IOException {
+		ByteBuffer buffer = encode(nn);
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * @return nn in the binary model format, ready to be written
+	 */
+	public static ByteBuffer encode(NeuralNet nn) {
+		return encode(nn, null);
+	}
+
+	/**
+	 * Encodes nn into reuse if it has an array and is large enough, otherwise
+	 * into a new buffer
+	 *
+	 * @return nn in the binary model format, ready to be written
+	 */
+	public static ByteBuffer encode(NeuralNet nn, ByteBuffer reuse) {
+		int layers = nn.weights.size();
+		byte[][] names = new byte[layers][];
+		int headerLength = 6 * 4 + 4 * nn.hiddenNeurons.size() + 8 * layers + 4;
+		for (int i = 0; i < layers; i++) {
+			names[i] = nn.activationFunctions.get(i).getClass().getName().getBytes(StandardCharsets.UTF_8);
+			headerLength += 2 + names[i].length;
+		}
+		Optimizer optimizer = nn.getOptimizer();
+		byte[] optimizerName = optimizer.getClass().getName().getBytes(StandardCharsets.UTF_8);
+		double[] parameters = optimizer.getParameters();
+		ArrayList<Matrix[]> state = optimizer.getState();
+		int buffers = state == null ? 0 : optimizer.getBuffers();
+		byte[] lossName = nn.getLoss().getClass().getName().getBytes(StandardCharsets.UTF_8);
+		headerLength += 2 + optimizerName.length + 4 + 8 * parameters.length + 8 + 4 + 2 + lossName.length;
+		headerLength = (headerLength + 7) & ~7;
+		long length = headerLength;
+		for (Matrix w : nn.weights) {
+			length += 8L * w.hoehe * w.breite * (1 + buffers);
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Net is too large for the model format");
+		}
+		ByteBuffer buffer = reuse;
+		if (buffer == null || !buffer.hasArray() || buffer.capacity() < length) {
+			buffer = ByteBuffer.allocate((int) length);
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN).clear().limit((int) length);
+		buffer.position(headerLength);
+		for (Matrix w : nn.weights) {
+			put(buffer, w);
+		}
+		for (int i = 0; i < layers && buffers > 0; i++) {
+			for (Matrix m : state.get(i)) {
+				put(buffer, m);
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), buffer.arrayOffset() + headerLength, (int) length - headerLength);
+		buffer.position(0);
+		buffer.put(MAGIC).putInt(VERSION).putInt(headerLength);
+		buffer.putInt(nn.inputNeurons).putInt(nn.outputNeurons).putInt(layers);
+		for (int neurons : nn.hiddenNeurons) {
+			buffer.putInt(neurons);
+		}
+		for (byte[] name : names) {
+			buffer.putShort((short) name.length).put(name);
+		}
+		for (Matrix w : nn.weights) {
+			buffer.putInt(w.hoehe).putInt(w.breite);
+		}
+		buffer.putShort((short) optimizerName.length).put(optimizerName);
+		buffer.putInt(parameters.length);
+		for (double p : parameters) {
+			buffer.putDouble(p);
+		}
+		buffer.putLong(optimizer.getSteps()).putInt(buffers);
+		buffer.putShort((short) lossName.length).put(lossName);
+		buffer.putInt((int) crc.getValue());
+		buffer.position(0);
+		return buffer;
+	}
+
+	private static void put(ByteBuffer buffer, Matrix m) {
+		for (int i = 0; i < m.hoehe; i++) {
+			buffer.asDoubleBuffer().put(m.getData(), m.getOffset() + i * m.getStride(), m.breite);
+			buffer.position(buffer.position() + 8 * m.breite);
+		}
+	}
+}
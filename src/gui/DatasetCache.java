@@ -0,0 +1,193 @@
+package gui;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import backpropagation.Dataset;
+import backpropagation.HammingCodeDataset;
+import backpropagation.VierBitXorDataSet;
+import backpropagation.XORDataset;
+import mnist.MnistDataset;
+
+/**
+ * Registry of the datasets of the modes, shared by all
+ * {@link ModeDataLoader}s.
+ * <p>
+ * Every mode is registered with a {@link Factory}. A dataset is created and
+ * fingerprinted once per mode and seed and then cached, so creating or
+ * loading several nets of a mode, or switching back to a mode, does not read
+ * or generate the data again. Only the Hamming mode has a seed, the split
+ * into train and test data; the other modes always create the same data and
+ * use seed 0.
+ * </p>
+ * <p>
+ * The cache is bounded by a byte budget, a quarter of the maximum heap unless
+ * the system property dataset.cache.bytes says otherwise. The datasets that
+ * were used least recently are evicted once their
+ * {@link Dataset#estimatedBytes()} exceed it. Evicted datasets are only
+ * softly referenced, so they are reused if the garbage collector has not
+ * needed their memory yet.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public final class DatasetCache {
+	/**
+	 * Creates the dataset of a mode
+	 */
+	public interface Factory {
+		public Dataset create(long seed);
+	}
+
+	private static final HashMap<String, Factory> factories = new HashMap<String, Factory>();
+	private static final HashMap<String, Boolean> deterministic = new HashMap<String, Boolean>();
+	private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private static final HashMap<String, SoftReference<Entry>> evicted = new HashMap<String, SoftReference<Entry>>();
+	private static long budget = Long.getLong("dataset.cache.bytes", Runtime.getRuntime().maxMemory() / 4);
+
+	static {
+		register("XOR", true, seed -> new XORDataset());
+		register("4BitXOR", true, seed -> new VierBitXorDataSet());
+		register("Hamming", false, HammingCodeDataset::new);
+		register("MNIST", true, seed -> new MnistDataset());
+	}
+
+	private DatasetCache() {
+	}
+
+	/**
+	 * Registers the factory of a mode, replacing the one it had
+	 *
+	 * @param deterministic
+	 *            whether factory creates the same data for every seed
+	 */
+	public static synchronized void register(String mode, boolean deterministic, Factory factory) {
+		factories.put(mode, factory);
+		DatasetCache.deterministic.put(mode, deterministic);
+		clear(mode);
+	}
+
+	/**
+	 * @return a reference to the dataset of mode with the given seed, creating
+	 *         the dataset if it is not cached yet
+	 */
+	public static synchronized DatasetReference reference(String mode, long seed) {
+		return entry(mode, seed).reference;
+	}
+
+	/**
+	 * Returns the dataset a reference names, creating it if it is not cached
+	 * yet
+	 *
+	 * @throws IllegalStateException
+	 *             if the data of the dataset has changed since the reference
+	 *             was created
+	 */
+	public static synchronized Dataset resolve(DatasetReference reference) {
+		Entry e = entry(reference.getMode(), reference.getSeed());
+		if (!e.reference.getFingerprint().equals(reference.getFingerprint())) {
+			throw new IllegalStateException("Dataset " + reference.getMode() + " has changed, fingerprint is "
+					+ e.reference.getFingerprint() + " instead of " + reference.getFingerprint());
+		}
+		return e.dataset;
+	}
+
+	/**
+	 * @return whether mode creates the same data for every seed
+	 */
+	public static synchronized boolean isDeterministic(String mode) {
+		Boolean d = deterministic.get(mode);
+		if (d == null) {
+			throw new IllegalArgumentException("Unknown mode " + mode);
+		}
+		return d;
+	}
+
+	/**
+	 * Sets the byte budget and evicts datasets that do not fit any more
+	 */
+	public static synchronized void setBudget(long bytes) {
+		budget = bytes;
+		trim(null);
+	}
+
+	/**
+	 * @return the estimated bytes of the cached datasets
+	 */
+	public static synchronized long cachedBytes() {
+		long bytes = 0;
+		for (Entry e : entries.values()) {
+			bytes += e.dataset.estimatedBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return the amount of cached datasets, not counting evicted ones
+	 */
+	public static synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes the datasets of mode, so they are created again
+	 */
+	public static synchronized void clear(String mode) {
+		String prefix = mode + "#";
+		entries.keySet().removeIf(key -> key.startsWith(prefix));
+		evicted.keySet().removeIf(key -> key.startsWith(prefix));
+	}
+
+	private static Entry entry(String mode, long seed) {
+		if (isDeterministic(mode)) {
+			seed = 0;
+		}
+		String key = mode + "#" + seed;
+		Entry e = entries.get(key);
+		if (e == null) {
+			SoftReference<Entry> soft = evicted.remove(key);
+			e = soft != null ? soft.get() : null;
+			if (e == null) {
+				Dataset dataset = factories.get(mode).create(seed);
+				e = new Entry(dataset, new DatasetReference(mode, seed, dataset.fingerprint()));
+			}
+			entries.put(key, e);
+		}
+		trim(key);
+		return e;
+	}
+
+	/**
+	 * Evicts the least recently used datasets until the rest fits the budget,
+	 * except the dataset of keep. The sizes are estimated again every time,
+	 * since datasets like MNIST decode their data lazily.
+	 */
+	private static void trim(String keep) {
+		long bytes = cachedBytes();
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (bytes > budget && it.hasNext()) {
+			Map.Entry<String, Entry> e = it.next();
+			if (e.getKey().equals(keep)) {
+				continue;
+			}
+			bytes -= e.getValue().dataset.estimatedBytes();
+			evicted.put(e.getKey(), new SoftReference<Entry>(e.getValue()));
+			it.remove();
+		}
+		evicted.values().removeIf(soft -> soft.get() == null);
+	}
+
+	private static final class Entry {
+		final Dataset dataset;
+		final DatasetReference reference;
+
+		Entry(Dataset dataset, DatasetReference reference) {
+			this.dataset = dataset;
+			this.reference = reference;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package gui;
+
+import java.io.Serializable;
+
+/**
+ * Names a dataset instead of holding its data, so objects that are saved
+ * with their dataset only store a few bytes for it.
+ * <p>
+ * A reference is the mode of the dataset, the seed it was created with and
+ * the fingerprint of its data at that time. {@link DatasetCache#resolve(DatasetReference)}
+ * creates the dataset again and refuses it if the data has changed since.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public final class DatasetReference implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private final String mode;
+	private final long seed;
+	private final String fingerprint;
+
+	public DatasetReference(String mode, long seed, String fingerprint) {
+		this.mode = mode;
+		this.seed = seed;
+		this.fingerprint = fingerprint;
+	}
+
+	public String getMode() {
+		return this.mode;
+	}
+
+	public long getSeed() {
+		return this.seed;
+	}
+
+	public String getFingerprint() {
+		return this.fingerprint;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof DatasetReference)) {
+			return false;
+		}
+		DatasetReference r = (DatasetReference) o;
+		return this.mode.equals(r.mode) && this.seed == r.seed && this.fingerprint.equals(r.fingerprint);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * this.mode.hashCode() + Long.hashCode(this.seed);
+	}
+
+	@Override
+	public String toString() {
+		return this.mode + (this.seed != 0 ? "#" + this.seed : "") + "@" + this.fingerprint;
+	}
+}
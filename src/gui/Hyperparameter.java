@@ -2,6 +2,9 @@ package gui;
 
 import java.io.Serializable;
 
+import neuralnet.Optimizer;
+import neuralnet.TrainingController;
+
 public class Hyperparameter implements Serializable {
 	private static final long serialVersionUID = 1L;
 	public int train_size;
@@ -10,13 +13,49 @@ public class Hyperparameter implements Serializable {
 	public int epochs;
 	public int cores;
 	public double learning_rate;
+	// One of Optimizer.NAMES, null in hyper parameters saved before there
+	// were optimizers
+	public String optimizer;
+	// Epochs without improvement before the training stops, 0 to never stop
+	// early
+	public int patience;
+	// One of TrainingController.SCHEDULES, null like optimizer
+	public String schedule;
 
 	public Hyperparameter(int train_size, int test_size, int batch_size, int epochs, int cores, double learning_rate) {
+		this(train_size, test_size, batch_size, epochs, cores, learning_rate, "SGD");
+	}
+
+	public Hyperparameter(int train_size, int test_size, int batch_size, int epochs, int cores, double learning_rate,
+			String optimizer) {
+		this(train_size, test_size, batch_size, epochs, cores, learning_rate, optimizer, 0, "Constant");
+	}
+
+	public Hyperparameter(int train_size, int test_size, int batch_size, int epochs, int cores, double learning_rate,
+			String optimizer, int patience, String schedule) {
 		this.train_size = train_size;
 		this.test_size = test_size;
 		this.batch_size = batch_size;
 		this.epochs = epochs;
 		this.cores = cores;
 		this.learning_rate = learning_rate;
+		this.optimizer = optimizer;
+		this.patience = patience;
+		this.schedule = schedule;
+	}
+
+	/**
+	 * @return the name of the optimizer, see {@link Optimizer#NAMES}
+	 */
+	public String getOptimizer() {
+		return this.optimizer == null ? "SGD" : this.optimizer;
+	}
+
+	/**
+	 * @return the name of the learning rate schedule, see
+	 *         {@link TrainingController#SCHEDULES}
+	 */
+	public String getSchedule() {
+		return this.schedule == null ? "Constant" : this.schedule;
 	}
 }
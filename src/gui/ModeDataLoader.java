@@ -1,39 +1,199 @@
 package gui;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Random;
 
+import backpropagation.DataSource;
 import backpropagation.Dataset;
-import backpropagation.HammingCodeDataset;
-import backpropagation.VierBitXorDataSet;
-import backpropagation.XORDataset;
+import backpropagation.MatrixDataSource;
 import matrix.Matrix;
-import mnist.MnistDataset;
+import neuralnet.Sequential;
 
+/**
+ * Train and test data of a mode.
+ * <p>
+ * Train and test data are only kept as matrices if the dataset has them in
+ * memory anyway; otherwise, as for MNIST, the matrices stay null. Training
+ * streams the samples from {@link #getTrainSource()}, and the GUI reads the
+ * test samples it shows one by one, see {@link #getTestSample(int)} and
+ * {@link #feedForwardTest(Sequential)}.
+ * </p>
+ * <p>
+ * Only a {@link DatasetReference} is saved with this object, the data is
+ * taken from the {@link DatasetCache} again when it is loaded. Older saves
+ * that contain the data itself can still be loaded, see
+ * {@link #referenceDataset(String)}.
+ * </p>
+ */
 public class ModeDataLoader implements Serializable {
 	private static final long serialVersionUID = 1L;
-	public Matrix trainData;
-	public Matrix trainLables;
-	public Matrix testData;
-	public Matrix testLabels;
+	// Test samples fed forward at once by feedForwardTest
+	private static final int TEST_BATCH = 256;
+	/**
+	 * The matrices are only saved for data of older saves that can not be
+	 * referenced
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("reference", DatasetReference.class),
+			new ObjectStreamField("trainData", Matrix.class), new ObjectStreamField("trainLables", Matrix.class),
+			new ObjectStreamField("testData", Matrix.class), new ObjectStreamField("testLabels", Matrix.class) };
+	public transient Matrix trainData;
+	public transient Matrix trainLables;
+	public transient Matrix testData;
+	public transient Matrix testLabels;
+	private transient DatasetReference reference;
+	private transient DataSource trainSource;
+	private transient DataSource testSource;
 
 	public ModeDataLoader(String mode) {
-		Dataset x;
-		if (mode.equals("XOR")) {
-			x = new XORDataset();
-		} else if (mode.equals("4BitXOR")) {
-			x = new VierBitXorDataSet();
-		} else if (mode.equals("Hamming")) {
-			x = new HammingCodeDataset();
-		} else if (mode.equals("MNIST")) {
-			x = new MnistDataset();
+		this(mode, DatasetCache.isDeterministic(mode) ? 0 : new Random().nextLong());
+	}
+
+	/**
+	 * @param seed
+	 *            seed of the dataset, only used by modes that create random
+	 *            data
+	 */
+	public ModeDataLoader(String mode, long seed) {
+		this.load(DatasetCache.reference(mode, seed));
+	}
+
+	private void load(DatasetReference reference) {
+		Dataset x = DatasetCache.resolve(reference);
+		this.reference = reference;
+		this.trainSource = x.getTrainSource();
+		this.testSource = x.getTestSource();
+		if (this.trainSource instanceof MatrixDataSource) {
+			this.trainData = ((MatrixDataSource) this.trainSource).getInputs();
+			this.trainLables = ((MatrixDataSource) this.trainSource).getLabels();
 		} else {
-			throw new RuntimeException();
+			this.trainData = null;
+			this.trainLables = null;
+		}
+		if (this.testSource instanceof MatrixDataSource) {
+			this.testData = ((MatrixDataSource) this.testSource).getInputs();
+			this.testLabels = ((MatrixDataSource) this.testSource).getLabels();
+		} else {
+			this.testData = null;
+			this.testLabels = null;
+		}
+	}
+
+	/**
+	 * Replaces data that an older save contains by a reference to the dataset
+	 * of mode, so it is not saved again. This only works for modes that always
+	 * create the same data; the random splits of the Hamming mode stay saved
+	 * with this object.
+	 *
+	 * @return whether the data is referenced now
+	 */
+	public boolean referenceDataset(String mode) {
+		if (this.reference == null && DatasetCache.isDeterministic(mode)) {
+			DatasetReference r = DatasetCache.reference(mode, 0);
+			DataSource test = DatasetCache.resolve(r).getTestSource();
+			if (this.testData != null && this.testData.hoehe == test.size() && this.testData.breite == test.inputSize()
+					&& this.testLabels.breite == test.labelSize()) {
+				this.load(r);
+			}
+		}
+		return this.reference != null;
+	}
+
+	public DatasetReference getReference() {
+		return this.reference;
+	}
+
+	public DataSource getTrainSource() {
+		if (this.trainSource == null) {
+			this.trainSource = DataSource.of(this.trainData, this.trainLables);
 		}
-		this.trainData = getTrainData(x);
-		this.trainLables = getTrainLabels(x);
-		this.testData = getTestData(x);
-		this.testLabels = getTestLabels(x);
+		return this.trainSource;
+	}
+
+	public DataSource getTestSource() {
+		if (this.testSource == null) {
+			this.testSource = DataSource.of(this.testData, this.testLabels);
+		}
+		return this.testSource;
+	}
+
+	/**
+	 * @return input and label of the test sample row
+	 */
+	public double[][] getTestSample(int row) {
+		DataSource test = this.getTestSource();
+		double[][] sample = { new double[test.inputSize()], new double[test.labelSize()] };
+		test.fetch(row, sample[0], 0, sample[1], 0);
+		return sample;
+	}
+
+	/**
+	 * Feeds the test samples forward a chunk at a time, so test data that is
+	 * streamed is never decoded as a whole
+	 *
+	 * @return the outputs of nn, shape(test samples, outputs)
+	 */
+	public Matrix feedForwardTest(Sequential nn) {
+		DataSource test = this.getTestSource();
+		Matrix outputs = null;
+		int row = 0;
+		Iterator<Matrix[]> chunks = test.chunks(TEST_BATCH);
+		while (chunks.hasNext()) {
+			Matrix out = nn.feedForwardBatch(chunks.next()[0]);
+			if (outputs == null) {
+				outputs = new Matrix(test.size(), out.breite);
+			}
+			for (int i = 0; i < out.hoehe; i++, row++) {
+				System.arraycopy(out.getData(), out.getOffset() + i * out.getStride(), outputs.getData(),
+						row * outputs.breite, outputs.breite);
+			}
+		}
+		return outputs;
+	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("reference", this.reference);
+		if (this.reference == null) {
+			fields.put("trainData", this.trainData);
+			fields.put("trainLables", this.trainLables);
+			fields.put("testData", this.testData);
+			fields.put("testLabels", this.testLabels);
+		}
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		try {
+			DatasetReference reference = (DatasetReference) fields.get("reference", null);
+			if (reference != null) {
+				this.load(reference);
+				return;
+			}
+			this.trainData = (Matrix) fields.get("trainData", null);
+			this.trainLables = (Matrix) fields.get("trainLables", null);
+			this.testData = (Matrix) fields.get("testData", null);
+			this.testLabels = (Matrix) fields.get("testLabels", null);
+			// Saves between streaming and references only name the mode
+			if (fields.getObjectStreamClass().getField("mode") != null) {
+				this.referenceDataset((String) fields.get("mode", null));
+			}
+		} catch (IllegalStateException e) {
+			throw (InvalidObjectException) new InvalidObjectException(e.getMessage()).initCause(e);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (this.trainData == null && this.reference == null) {
+			throw new InvalidObjectException("Train data is neither saved nor referenced");
+		}
 	}
 
 	public static Matrix getTrainData(Dataset t) {
@@ -10,24 +10,34 @@ import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JPanel;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
+import ea.CheckpointWriter;
 import gui.Hyperparameter;
 import gui.buttonmode.panelmode.ButtonPanel;
 import gui.nndomode.NeuralNetTrainDataObject;
 import gui.trainermode.Trainer;
+import matrix.Matrix;
 import neuralnet.Activator;
+import neuralnet.Loss;
 import neuralnet.NeuralNet;
+import neuralnet.Optimizer;
 import neuralnet.Relu;
 import neuralnet.Sigmoid;
+import neuralnet.Softmax;
 import neuralnet.TanH;
+import neuralnet.TrainingController;
 
 /**
  * This class is responsible for managing the normal button panel, which is to
@@ -89,6 +99,13 @@ public abstract class ButtonManager implements ActionListener {
 	 */
 	public Trainer currentTraining;
 
+	/**
+	 * Writes the checkpoints of {@link #nn}, recreated when its path changes.
+	 * Guarded by itself, since the trainers checkpoint from their thread.
+	 */
+	private CheckpointWriter checkpoints;
+	private final Object checkpointLock = new Object();
+
 	/**
 	 * The current save dialog, so the dialog that gets called when the user
 	 * wanted to go somewhere while there were unsaveds changes.
@@ -128,6 +145,20 @@ public abstract class ButtonManager implements ActionListener {
 	 */
 	JTextArea hiddenNeurons, activations, batchSize, anzahlCores;
 
+	/**
+	 * Label and choice of the optimizer when creating a neural network or when
+	 * changing it's hyperparameters
+	 */
+	JTextField optimizer;
+	JComboBox<String> userOptimizer;
+
+	/**
+	 * Early stopping patience and learning rate schedule when creating a neural
+	 * network or when changing it's hyperparameters
+	 */
+	JTextField patience, userPatience, schedule;
+	JComboBox<String> userSchedule;
+
 	/**
 	 * Sets the button panel
 	 * 
@@ -211,6 +242,9 @@ public abstract class ButtonManager implements ActionListener {
 		} else if (e.getSource().equals(bp.saveNeuralNet)) {
 			this.saveNN();
 		} else if (e.getSource().equals(bp.stopTraining)) {
+			if (this.currentTraining != null) {
+				this.currentTraining.close();
+			}
 			this.finishedTrainingEvent();
 		} else if (e.getSource().equals(bp.pauseTraining)) {
 			this.pausedTraining = true;
@@ -220,11 +254,13 @@ public abstract class ButtonManager implements ActionListener {
 			this.currentTraining.start();
 		} else if (e.getSource().equals(bp.seetestdata)) {
 			String[] labels = { "Input", "Output", "Desired Output" };
-			String[][] data = new String[this.nn.mdl.testData.hoehe][3];
-			for (int i = 0; i < this.nn.mdl.testData.hoehe; i++) {
-				double[] input = this.nn.mdl.testData.getMatrix()[i];
-				double[] output = this.nn.nn.feedForward(input).transpose().getMatrix()[0];
-				double[] label = this.nn.mdl.testLabels.getMatrix()[i];
+			Matrix outputs = this.nn.mdl.feedForwardTest(this.nn.nn);
+			String[][] data = new String[outputs.hoehe][3];
+			for (int i = 0; i < outputs.hoehe; i++) {
+				double[][] sample = this.nn.mdl.getTestSample(i);
+				double[] input = sample[0];
+				double[] output = outputs.getRow(i);
+				double[] label = sample[1];
 				data[i][0] = doubleArrToString(input);
 				data[i][1] = doubleArrToString(output);
 				data[i][2] = doubleArrToString(label);
@@ -314,12 +350,52 @@ public abstract class ButtonManager implements ActionListener {
 	public void saveNN() {
 		this.saved = true;
 		if (this.nn != null) {
-			ea.ObjectWriter.saveObject(this.nn.path, this.nn);
+			if (this.currentTraining != null) {
+				this.currentTraining.checkpoint();
+			} else {
+				this.checkpoint();
+			}
 		}
 		this.updateButtons();
 
 	}
 
+	/**
+	 * Snapshots the neural net, which is written to its path in the
+	 * background, see {@link CheckpointWriter}. May be called from the
+	 * training thread; errors and the buttons are updated on the event
+	 * dispatch thread.
+	 */
+	public void checkpoint() {
+		NeuralNetTrainDataObject nndo = this.nn;
+		IOException failure = null;
+		synchronized (this.checkpointLock) {
+			try {
+				String path = new File(nndo.path).getAbsolutePath();
+				if (this.checkpoints == null || !this.checkpoints.getPath().equals(path)) {
+					if (this.checkpoints != null) {
+						this.checkpoints.close();
+					}
+					this.checkpoints = new CheckpointWriter(nndo.path, CheckpointWriter.DEFAULT_KEEP);
+				}
+				this.checkpoints.save(nndo);
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		final IOException error = failure;
+		SwingUtilities.invokeLater(() -> {
+			if (error != null) {
+				error.printStackTrace();
+				this.saved = false;
+				this.erzeugeError("There was an error saving the file!", this.bp);
+			} else {
+				this.saved = true;
+			}
+			this.updateButtons();
+		});
+	}
+
 	/**
 	 * Internally changes the state to an unsaved state, or in other words:
 	 * there have been unsaved changes
@@ -369,6 +445,12 @@ public abstract class ButtonManager implements ActionListener {
 		jd.add(userCore_Size);
 		jd.add(learning_rate);
 		jd.add(userLearning_rate);
+		jd.add(optimizer);
+		jd.add(userOptimizer);
+		jd.add(patience);
+		jd.add(userPatience);
+		jd.add(schedule);
+		jd.add(userSchedule);
 	}
 
 	/**
@@ -385,7 +467,7 @@ public abstract class ButtonManager implements ActionListener {
 		okay.setFont(font);
 		cancel.setFont(font);
 		HyperparameterErzeuger hpe = new HyperparameterErzeuger(jd, this, userTrain_Size, userTest_Size, userBatch_Size,
-				userEpochs_Size, userCore_Size, userLearning_rate);
+				userEpochs_Size, userCore_Size, userLearning_rate, userOptimizer, userPatience, userSchedule);
 		okay.addActionListener(hpe);
 		cancel.addActionListener(new ActionListener() {
 
@@ -476,7 +558,7 @@ public abstract class ButtonManager implements ActionListener {
 			this.userHiddenNeurons.setEditable(false);
 			this.userHiddenNeurons.setBackground(Color.GRAY);
 
-			this.activations = new JTextArea("Activations (Available: Sigmoid, Tanh,Relu)(Seperate with comma): ");
+			this.activations = new JTextArea("Activations (Available: Sigmoid, Tanh,Relu, Softmax for the output layer)(Seperate with comma): ");
 			this.activations.setBorder(userHiddenNeurons.getBorder());
 			this.activations.setFont(font);
 			this.activations.setEditable(false);
@@ -497,6 +579,8 @@ public abstract class ButtonManager implements ActionListener {
 					s += "TanH";
 				} else if (a instanceof Relu) {
 					s += "Relu";
+				} else if (a instanceof Softmax) {
+					s += "Softmax";
 				}
 				counter++;
 
@@ -561,6 +645,36 @@ public abstract class ButtonManager implements ActionListener {
 		this.userLearning_rate = new JTextField();
 		this.userLearning_rate.setFont(font);
 
+		this.optimizer = new JTextField("Optimizer: ");
+		this.optimizer.setBackground(this.bp.getBackground());
+		this.optimizer.setEditable(false);
+		this.optimizer.setFont(font);
+
+		this.userOptimizer = new JComboBox<String>(Optimizer.NAMES);
+		this.userOptimizer.setFont(font);
+		if (configure) {
+			this.userOptimizer.setSelectedItem(this.nn.hp.getOptimizer());
+		}
+
+		this.patience = new JTextField("Stop after epochs without improvement (0: never): ");
+		this.patience.setBackground(this.bp.getBackground());
+		this.patience.setEditable(false);
+		this.patience.setFont(font);
+
+		this.userPatience = new JTextField(configure ? this.nn.hp.patience + "" : "0");
+		this.userPatience.setFont(font);
+
+		this.schedule = new JTextField("Learning rate schedule: ");
+		this.schedule.setBackground(this.bp.getBackground());
+		this.schedule.setEditable(false);
+		this.schedule.setFont(font);
+
+		this.userSchedule = new JComboBox<String>(TrainingController.SCHEDULES);
+		this.userSchedule.setFont(font);
+		if (configure) {
+			this.userSchedule.setSelectedItem(this.nn.hp.getSchedule());
+		}
+
 	}
 
 	/**
@@ -703,7 +817,7 @@ public abstract class ButtonManager implements ActionListener {
 		jd.add(hiddenNeurons);
 		jd.add(userHiddenNeurons);
 
-		JTextArea activations = new JTextArea("Activations (Available: Sigmoid, Tanh,Relu)(Seperate with comma): ");
+		JTextArea activations = new JTextArea("Activations (Available: Sigmoid, Tanh,Relu, Softmax for the output layer)(Seperate with comma): ");
 		activations.setBorder(userHiddenNeurons.getBorder());
 		activations.setFont(font);
 		activations.setEditable(false);
@@ -726,10 +840,20 @@ public abstract class ButtonManager implements ActionListener {
 		jd.add(activations);
 		jd.add(userActivations);
 
+		JTextField loss = new JTextField("Loss: ");
+		loss.setFont(font);
+		loss.setBackground(jd.getBackground());
+		loss.setEditable(false);
+
+		JComboBox<String> userLoss = new JComboBox<String>(Loss.NAMES);
+		userLoss.setFont(font);
+		jd.add(loss);
+		jd.add(userLoss);
+
 		JButton okay = new JButton("Okay");
 		okay.setFont(font);
 		NeuralNetErzeuger nne = new NeuralNetErzeuger(this, jd, userInputNeurons, userOutputNeurons, userHiddenNeurons,
-				userActivations);
+				userActivations, userLoss);
 		okay.addActionListener(nne);
 		JButton cancel = new JButton("Cancel");
 		cancel.setFont(font);
@@ -843,6 +967,11 @@ class NeuralNetErzeuger implements ActionListener {
 	 */
 	private JTextField userInputNeurons, userOutputNeurons, userHiddenNeurons, userActivations;
 
+	/**
+	 * Choice of the loss, always valid on its own
+	 */
+	private JComboBox<String> userLoss;
+
 	/**
 	 * NeuralNet that will be finished if all the inputs are correct
 	 */
@@ -863,15 +992,18 @@ class NeuralNetErzeuger implements ActionListener {
 	 *            {@link #userHiddenNeurons}
 	 * @param userActivations
 	 *            {@link #userActivations}
+	 * @param userLoss
+	 *            {@link #userLoss}
 	 */
 	public NeuralNetErzeuger(ButtonManager bm, JDialog jd, JTextField userInputNeurons, JTextField userOutputNeurons,
-			JTextField userHiddenNeurons, JTextField userActivations) {
+			JTextField userHiddenNeurons, JTextField userActivations, JComboBox<String> userLoss) {
 		this.bm = bm;
 		this.jd = jd;
 		this.userInputNeurons = userInputNeurons;
 		this.userOutputNeurons = userOutputNeurons;
 		this.userHiddenNeurons = userHiddenNeurons;
 		this.userActivations = userActivations;
+		this.userLoss = userLoss;
 	}
 
 	/**
@@ -940,6 +1072,8 @@ class NeuralNetErzeuger implements ActionListener {
 					activators.add(new TanH());
 				} else if (s.toLowerCase().equals("relu")) {
 					activators.add(new Relu());
+				} else if (s.toLowerCase().equals("softmax")) {
+					activators.add(new Softmax());
 				} else {
 					throw new RuntimeException("format");
 				}
@@ -947,6 +1081,7 @@ class NeuralNetErzeuger implements ActionListener {
 			if (activators.size() != hiddens.size() + 1) {
 				throw new RuntimeException("amount");
 			}
+			NeuralNet.checkActivations(activators);
 			userActivations.setBackground(Color.GREEN);
 		} catch (Exception excep) {
 			fehler++;
@@ -956,10 +1091,19 @@ class NeuralNetErzeuger implements ActionListener {
 						jd);
 			} else if (excep.getMessage().equals("format")) {
 				bm.erzeugeError("The activation functions are not in the correct format!", jd);
+			} else {
+				bm.erzeugeError(excep.getMessage(), jd);
 			}
 		}
+		Loss loss = Loss.create((String) userLoss.getSelectedItem());
+		if (fehler == 0 && !loss.accepts(activators.get(activators.size() - 1))) {
+			fehler++;
+			userActivations.setBackground(Color.RED);
+			bm.erzeugeError(loss.getName() + " needs a Sigmoid or Softmax output layer!", jd);
+		}
 		if (fehler == 0) {
 			this.nn = new NeuralNet(inputs, outputs, hiddens, activators);
+			this.nn.setLoss(loss);
 			jd.dispose();
 		}
 	}
@@ -988,6 +1132,16 @@ class HyperparameterErzeuger implements ActionListener {
 	 */
 	private JTextField userTrain_data, userTest_data, userMiniBatch_size, userEpochs, userCores, userLearning_rate;
 
+	/**
+	 * Text field that needs to be checked.
+	 */
+	private JTextField userPatience;
+
+	/**
+	 * Choice of the optimizer and the learning rate schedule, always valid
+	 */
+	private JComboBox<String> userOptimizer, userSchedule;
+
 	/**
 	 * Hyperparameter object that will be finished if all the inputs are
 	 * correct.
@@ -1013,9 +1167,16 @@ class HyperparameterErzeuger implements ActionListener {
 	 *            {@link #userCores}
 	 * @param userLearning_rate
 	 *            {@link #userLearning_rate}
+	 * @param userOptimizer
+	 *            {@link #userOptimizer}
+	 * @param userPatience
+	 *            {@link #userPatience}
+	 * @param userSchedule
+	 *            {@link #userSchedule}
 	 */
 	public HyperparameterErzeuger(JDialog jd, ButtonManager bm, JTextField userTrain_data, JTextField userTest_data,
-			JTextField userMiniBatch_size, JTextField userEpochs, JTextField userCores, JTextField userLearning_rate) {
+			JTextField userMiniBatch_size, JTextField userEpochs, JTextField userCores, JTextField userLearning_rate,
+			JComboBox<String> userOptimizer, JTextField userPatience, JComboBox<String> userSchedule) {
 		this.bm = bm;
 		this.jd = jd;
 		this.userTrain_data = userTrain_data;
@@ -1024,6 +1185,9 @@ class HyperparameterErzeuger implements ActionListener {
 		this.userEpochs = userEpochs;
 		this.userCores = userCores;
 		this.userLearning_rate = userLearning_rate;
+		this.userOptimizer = userOptimizer;
+		this.userPatience = userPatience;
+		this.userSchedule = userSchedule;
 	}
 
 	/**
@@ -1113,8 +1277,22 @@ class HyperparameterErzeuger implements ActionListener {
 			this.userLearning_rate.setBackground(Color.RED);
 			this.bm.erzeugeError("Learning rate was not given in the correct format!", jd);
 		}
+		int patience = -1;
+		try {
+			patience = Integer.parseInt(this.userPatience.getText());
+			if (patience < 0) {
+				throw new RuntimeException();
+			}
+			this.userPatience.setBackground(Color.GREEN);
+		} catch (Exception excep) {
+			fehler++;
+			this.userPatience.setBackground(Color.RED);
+			this.bm.erzeugeError("Early stopping patience was not given in the correct format!", jd);
+		}
 		if (fehler == 0) {
-			this.hp = new Hyperparameter(train_data, test_data, batch_size, epochs, cores, learning_rate);
+			this.hp = new Hyperparameter(train_data, test_data, batch_size, epochs, cores, learning_rate,
+					(String) this.userOptimizer.getSelectedItem(), patience,
+					(String) this.userSchedule.getSelectedItem());
 			jd.dispose();
 		}
 
@@ -90,6 +90,9 @@ public class HammingCodeManager extends ButtonManager {
 			}
 			try {
 				HammingCodeNNDO nn = (HammingCodeNNDO) ea.ObjectLoader.loadObject(file.getPath());
+				if (nn != null) {
+					nn.mdl.referenceDataset("Hamming");
+				}
 				return nn;
 			} catch (ClassCastException e) {
 				this.erzeugeError("The NeuralNet is not in the correct mode!", this.bp);
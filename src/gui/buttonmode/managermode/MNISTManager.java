@@ -19,6 +19,7 @@ import gui.mode.MNISTGUI;
 import gui.nndomode.MNISTNNDO;
 import gui.nndomode.NeuralNetTrainDataObject;
 import gui.trainermode.MNISTTrainer;
+import matrix.Matrix;
 import mnist.MnistVisualizer;
 import neuralnet.NeuralNet;
 import processing.core.PApplet;
@@ -63,19 +64,20 @@ public class MNISTManager extends ButtonManager {
 
 		if (e.getSource().equals(bp.seetestdata)) {
 			String[] labels = { "Input", "Output", "Desired Output" };
-			String[][] data = new String[this.nn.mdl.testData.hoehe][3];
-			boolean[] correct = new boolean[this.nn.mdl.testData.hoehe];
-			for (int i = 0; i < this.nn.mdl.testData.hoehe; i++) {
-				double[] input = this.nn.mdl.testData.getMatrix()[i];
-				MNISTNNDO mm = (MNISTNNDO) this.nn;
-				double[] output;
-				if (mm.lastTestData.equals(null)) {
-					output = this.nn.nn.feedForward(input).transpose().getMatrix()[0];
-				} else {
-					output = mm.lastTestData[i].transpose().getMatrix()[0];
-				}
+			MNISTNNDO mm = (MNISTNNDO) this.nn;
+			Matrix[] outputs;
+			synchronized (mm) {
+				mm.updateLastTestData();
+				outputs = mm.lastTestData;
+			}
+			String[][] data = new String[outputs.length][3];
+			boolean[] correct = new boolean[outputs.length];
+			for (int i = 0; i < outputs.length; i++) {
+				double[][] sample = this.nn.mdl.getTestSample(i);
+				double[] input = sample[0];
+				double[] output = outputs[i].transpose().getRow(0);
 
-				double[] label = this.nn.mdl.testLabels.getMatrix()[i];
+				double[] label = sample[1];
 				data[i][0] = doubleArrToString(input);
 				data[i][1] = doubleArrToString(output);
 				data[i][2] = doubleArrToString(label);
@@ -114,14 +116,22 @@ public class MNISTManager extends ButtonManager {
 			this.currentTraining = new MNISTTrainer(this, this.nn);
 		} else if (e.getSource().equals(mp.visualizeCorrects)) {
 			MNISTNNDO mm = (MNISTNNDO) this.nn;
+			Matrix[] outputs;
+			boolean[] correct;
+			synchronized (mm) {
+				mm.updateLastTestData();
+				outputs = mm.lastTestData;
+				correct = mm.lastTestDataCorrect;
+			}
 			ArrayList<double[]> corrects = new ArrayList<double[]>();
 			ArrayList<Integer> labels = new ArrayList<Integer>();
 			ArrayList<Integer> prediction = new ArrayList<Integer>();
 			ArrayList<Double> certainity = new ArrayList<Double>();
-			for (int i = 0; i < mm.lastTestData.length; i++) {
-				if (mm.lastTestDataCorrect[i]) {
-					corrects.add(mm.mdl.testData.getMatrix()[i]);
-					double[] label = mm.mdl.testLabels.getMatrix()[i];
+			for (int i = 0; i < outputs.length; i++) {
+				if (correct[i]) {
+					double[][] sample = mm.mdl.getTestSample(i);
+					corrects.add(sample[0]);
+					double[] label = sample[1];
 					int index = 0;
 					for (; index < label.length; index++) {
 						if (label[index] == 1) {
@@ -129,7 +139,7 @@ public class MNISTManager extends ButtonManager {
 						}
 					}
 					labels.add(index);
-					double[] output = mm.lastTestData[i].transpose().getMatrix()[0];
+					double[] output = outputs[i].transpose().getRow(0);
 					index = 0;
 					int maxIndex = -1;
 					double maxpred = -1;
@@ -148,14 +158,22 @@ public class MNISTManager extends ButtonManager {
 			PApplet.runSketch(new String[] { "Mnist.MnistVisualizer" }, mnv);
 		} else if (e.getSource().equals(mp.visualizeFalse)) {
 			MNISTNNDO mm = (MNISTNNDO) this.nn;
+			Matrix[] outputs;
+			boolean[] correct;
+			synchronized (mm) {
+				mm.updateLastTestData();
+				outputs = mm.lastTestData;
+				correct = mm.lastTestDataCorrect;
+			}
 			ArrayList<double[]> corrects = new ArrayList<double[]>();
 			ArrayList<Integer> labels = new ArrayList<Integer>();
 			ArrayList<Integer> prediction = new ArrayList<Integer>();
 			ArrayList<Double> certainity = new ArrayList<Double>();
-			for (int i = 0; i < mm.lastTestData.length; i++) {
-				if (!mm.lastTestDataCorrect[i]) {
-					corrects.add(mm.mdl.testData.getMatrix()[i]);
-					double[] label = mm.mdl.testLabels.getMatrix()[i];
+			for (int i = 0; i < outputs.length; i++) {
+				if (!correct[i]) {
+					double[][] sample = mm.mdl.getTestSample(i);
+					corrects.add(sample[0]);
+					double[] label = sample[1];
 					int index = 0;
 					for (; index < label.length; index++) {
 						if (label[index] == 1) {
@@ -163,7 +181,7 @@ public class MNISTManager extends ButtonManager {
 						}
 					}
 					labels.add(index);
-					double[] output = mm.lastTestData[i].transpose().getMatrix()[0];
+					double[] output = outputs[i].transpose().getRow(0);
 					index = 0;
 					int maxIndex = -1;
 					double maxpred = -1;
@@ -228,6 +246,9 @@ public class MNISTManager extends ButtonManager {
 			}
 			try {
 				MNISTNNDO nn = (MNISTNNDO) ea.ObjectLoader.loadObject(file.getPath());
+				if (nn != null) {
+					nn.mdl.referenceDataset("MNIST");
+				}
 				return nn;
 			} catch (ClassCastException e) {
 				this.erzeugeError("The NeuralNet is not in the correct mode!", this.bp);
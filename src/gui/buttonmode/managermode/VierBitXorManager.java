@@ -89,6 +89,9 @@ public class VierBitXorManager extends ButtonManager {
 			}
 			try {
 				VierBitXorNNDO nn = (VierBitXorNNDO) ea.ObjectLoader.loadObject(file.getPath());
+				if (nn != null) {
+					nn.mdl.referenceDataset("4BitXOR");
+				}
 				return nn;
 			} catch (ClassCastException e) {
 				this.erzeugeError("The NeuralNet is not in the correct mode!", this.bp);
@@ -79,6 +79,9 @@ public class XORManager extends ButtonManager {
 			}
 			try {
 				XORNNDO nn = (XORNNDO) ea.ObjectLoader.loadObject(file.getPath());
+				if (nn != null) {
+					nn.mdl.referenceDataset("XOR");
+				}
 				return nn;
 			}catch(ClassCastException e){
 				this.erzeugeError("The NeuralNet is not in the correct mode!", this.bp);
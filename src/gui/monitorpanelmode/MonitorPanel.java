@@ -359,7 +359,12 @@ public abstract class MonitorPanel extends JPanel {
 			this.unnepochs.setText("" + nndo.epoch);
 			if (this.nndo.data.containsKey("Epochs")
 					&& this.nndo.data.get("Epochs").containsKey(nndo.epoch - 1 + 0.0)) {
-				if (this.nndo.data.containsKey("Accuracy")) {
+				if (this.nndo.data.containsKey("Log-loss")
+						&& this.nndo.data.get("Log-loss").containsKey(nndo.epoch - 1 + 0.0)) {
+					this.ucost.setText("" + nndo.data.get("Epochs").get(nndo.epoch - 1 + 0.0) + "(Acc:"
+							+ 100 * this.nndo.data.get("Accuracy").get(nndo.epoch - 1 + 0.0) + "%, Log-loss:"
+							+ this.nndo.data.get("Log-loss").get(nndo.epoch - 1 + 0.0) + ")");
+				} else if (this.nndo.data.containsKey("Accuracy")) {
 					this.ucost.setText("" + nndo.data.get("Epochs").get(nndo.epoch - 1 + 0.0) + "(Acc:"
 							+ 100 * this.nndo.data.get("Accuracy").get(nndo.epoch - 1 + 0.0) + "%)");
 				} else {
@@ -15,7 +15,42 @@ public class MNISTNNDO extends NeuralNetTrainDataObject {
 		super(nn, path, hp);
 		this.data.put("Epochs", new HashMap<Double, Double>());
 		this.data.put("Accuracy", new HashMap<Double, Double>());
+		this.data.put("Log-loss", new HashMap<Double, Double>());
 		this.mdl = new ModeDataLoader("MNIST");
 	}
 
+	/**
+	 * Drops the test outputs, they belong to the weights before the last epoch
+	 */
+	public synchronized void clearLastTestData() {
+		this.lastTestData = null;
+		this.lastTestDataCorrect = null;
+	}
+
+	/**
+	 * Feeds the test data forward if its outputs are not there yet, so the
+	 * forward pass only runs when the outputs are displayed
+	 */
+	public synchronized void updateLastTestData() {
+		if (this.lastTestData != null) {
+			return;
+		}
+		Matrix batch = this.mdl.feedForwardTest(this.nn);
+		int insg = batch.hoehe;
+		Matrix[] outputs = new Matrix[insg];
+		boolean[] correct = new boolean[insg];
+		for (int j = 0; j < insg; j++) {
+			outputs[j] = new Matrix(10, 1, batch.getRow(j));
+			int mI = 0;
+			for (int m = 1; m < 10; m++) {
+				if (batch.get(j, m) > batch.get(j, mI)) {
+					mI = m;
+				}
+			}
+			correct[j] = this.mdl.getTestSample(j)[1][mI] == 1;
+		}
+		this.lastTestData = outputs;
+		this.lastTestDataCorrect = correct;
+	}
+
 }
@@ -14,26 +14,24 @@ public class HammingCodeTrainer extends Trainer {
 	@SuppressWarnings("unchecked")
 	@Override
 	public void run() {
-		while (this.nndo.epoch < this.endEpoch) {
+		while (this.hasEpochsLeft()) {
 			long start = System.currentTimeMillis();
 			if (bp.pausedTraining) {
 				long end = System.currentTimeMillis();
 				this.train_time += end - start;
 				this.nndo.overall_train_time += end - start;
+				this.leftRun();
 				return;
 			}
 			if (!bp.inTraining) {
 				long end = System.currentTimeMillis();
 				this.train_time += end - start;
 				this.nndo.overall_train_time += end - start;
+				this.leftRun();
 				return;
 			}
-			// this.nndo.nn.SGD(train_inputs, train_labels, test_inputs,
-			// test_labels, batch_size, epochs, test_every, learning_rate,
-			// anzahl_cores, ausgabe);
-			this.nndo.nn.SGD(nndo.mdl.trainData, nndo.mdl.trainLables, nndo.mdl.testData, nndo.mdl.testLabels,
-					nndo.hp.batch_size, 1, 2, nndo.hp.learning_rate, nndo.hp.cores, false);
-			double fehler = this.nndo.nn.evaluate(nndo.mdl.testData, nndo.mdl.testLabels);
+			this.startedEpoch();
+			double fehler = this.controller.epoch();
 			if (fehler < this.nndo.best_cost) {
 				this.nndo.best_cost = fehler;
 				this.nndo.best_epoch = this.nndo.epoch;
@@ -46,14 +44,13 @@ public class HammingCodeTrainer extends Trainer {
 			this.nndo.data.put("Epochs", bisherigeDaten);
 			this.nndo.epoch += 1;
 			this.bp.updateEpoch(copyData);
-			this.bp.unSaved();
+			this.finishedEpoch();
 			long end = System.currentTimeMillis();
 			this.train_time += end - start;
 			this.nndo.overall_train_time += end - start;
 
 		}
-		this.running = false;
-		this.bp.finishedTrainingEvent();
+		this.finishedTraining();
 
 	}
 
@@ -1,7 +1,14 @@
 package gui.trainermode;
 
+import javax.swing.SwingUtilities;
+
+import gui.Hyperparameter;
 import gui.buttonmode.managermode.ButtonManager;
 import gui.nndomode.NeuralNetTrainDataObject;
+import neuralnet.EarlyStopping;
+import neuralnet.Optimizer;
+import neuralnet.TrainingCallback;
+import neuralnet.TrainingController;
 
 public abstract class Trainer implements Runnable {
 
@@ -12,16 +19,72 @@ public abstract class Trainer implements Runnable {
 	public int endEpoch;
 	public int insgesamtEpochs;
 	public long train_time;
+	/**
+	 * Runs the epochs, stops early and schedules the learning rate as the
+	 * hyper parameters say
+	 */
+	protected TrainingController controller;
+	// Hyper parameters the controller was set up with and its callbacks
+	private Hyperparameter configured;
+	private TrainingCallback schedule;
+	private TrainingCallback earlyStopping;
+	private boolean inEpoch;
+	private boolean checkpointRequested;
+	// Whether run() is active and whether the training will not continue
+	private boolean looping;
+	private boolean closed;
 
 	public Trainer(ButtonManager bp, NeuralNetTrainDataObject nndo) {
 		this.bp = bp;
 		this.nndo = nndo;
 		this.endEpoch = this.nndo.hp.epochs + this.nndo.epoch;
 		this.insgesamtEpochs = this.nndo.hp.epochs;
+		this.configure();
 		this.start();
 	}
 
+	/**
+	 * Sets up optimizer and controller as the hyper parameters say. Hyper
+	 * parameters edited while training was paused are applied to the running
+	 * controller; only a changed schedule or patience replaces its callback,
+	 * so early stopping and the schedule keep their state otherwise.
+	 */
+	private void configure() {
+		Hyperparameter hp = this.nndo.hp;
+		// A changed optimizer starts with fresh state, the same one continues
+		if (!this.nndo.nn.getOptimizer().getName().equals(hp.getOptimizer())) {
+			this.nndo.nn.setOptimizer(Optimizer.create(hp.getOptimizer()));
+		}
+		Hyperparameter old = this.configured;
+		if (old == null) {
+			this.controller = new TrainingController(this.nndo.nn, this.nndo.mdl.getTrainSource(),
+					this.nndo.mdl.getTestSource(), hp.batch_size, hp.learning_rate, hp.cores);
+		} else {
+			this.controller.setBatchSize(hp.batch_size);
+			this.controller.setCores(hp.cores);
+			if (hp.learning_rate != old.learning_rate) {
+				this.controller.setInitialLearningRate(hp.learning_rate);
+			}
+		}
+		if (old == null || !hp.getSchedule().equals(old.getSchedule())) {
+			// The schedule spans the epochs that are left
+			this.controller.remove(this.schedule);
+			this.schedule = TrainingController.schedule(hp.getSchedule(), this.controller.getEpoch(),
+					this.endEpoch - this.nndo.epoch);
+			this.controller.add(this.schedule);
+		}
+		if (old == null || hp.patience != old.patience) {
+			this.controller.remove(this.earlyStopping);
+			this.earlyStopping = hp.patience > 0 ? new EarlyStopping(hp.patience, 0, true) : null;
+			this.controller.add(this.earlyStopping);
+		}
+		this.configured = hp;
+	}
+
 	public void start() {
+		synchronized (this) {
+			this.looping = true;
+		}
 		this.t = new Thread(this, "train");
 		t.start();
 	}
@@ -29,4 +92,97 @@ public abstract class Trainer implements Runnable {
 	@Override
 	public abstract void run();
 
+	/**
+	 * Saves the trained object: right away if no epoch is running, holding
+	 * the lock the next epoch waits for so its weights do not change during
+	 * the snapshot, otherwise after the current epoch, when they are
+	 * consistent again
+	 */
+	public synchronized void checkpoint() {
+		if (this.inEpoch) {
+			this.checkpointRequested = true;
+		} else {
+			this.bp.checkpoint();
+		}
+	}
+
+	/**
+	 * Has to be called by the trainers before they change the trained object
+	 */
+	protected synchronized void startedEpoch() {
+		this.inEpoch = true;
+		// The hyper parameters may have been edited while training was paused
+		if (this.nndo.hp != this.configured) {
+			this.configure();
+		}
+	}
+
+	/**
+	 * @return whether there are epochs left and the training was not stopped
+	 *         early
+	 */
+	protected boolean hasEpochsLeft() {
+		return this.nndo.epoch < this.endEpoch && !this.controller.isStopped();
+	}
+
+	/**
+	 * Has to be called by the trainers when all epochs are done, puts back
+	 * the best weights if the training stopped early
+	 */
+	protected void finishedTraining() {
+		synchronized (this) {
+			// Putting back the best weights must not overlap a snapshot
+			this.controller.finish();
+			this.looping = false;
+		}
+		this.running = false;
+		SwingUtilities.invokeLater(this.bp::finishedTrainingEvent);
+	}
+
+	/**
+	 * Has to be called by the trainers when run() returns because the
+	 * training was paused or stopped. A paused training keeps its batches
+	 * prefetched for when it continues.
+	 */
+	protected void leftRun() {
+		synchronized (this) {
+			this.looping = false;
+			if (!this.closed) {
+				return;
+			}
+		}
+		this.controller.close();
+	}
+
+	/**
+	 * Ends the training for good and releases its prefetched batches, right
+	 * away if run() is not active, otherwise once it returns
+	 */
+	public void close() {
+		synchronized (this) {
+			this.closed = true;
+			if (this.looping) {
+				return;
+			}
+		}
+		this.controller.close();
+	}
+
+	/**
+	 * Has to be called by the trainers after every epoch, writes a requested
+	 * checkpoint
+	 */
+	protected void finishedEpoch() {
+		boolean checkpoint;
+		synchronized (this) {
+			this.inEpoch = false;
+			checkpoint = this.checkpointRequested;
+			this.checkpointRequested = false;
+		}
+		SwingUtilities.invokeLater(this.bp::unSaved);
+		if (checkpoint) {
+			this.bp.checkpoint();
+		}
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package matrix;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Single precision twin of {@link Gemm} behind {@link FloatMatrix}.
+ * <p>
+ * Same packing, blocking and {@value #MR}x{@value #NR} micro kernel, but on
+ * {@code float[]} operands with float partial sums. Twice as many elements
+ * fit into every cache level, so the tiles are twice as large, and the
+ * products share the fork/join pool of {@link Gemm}.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+final class FloatGemm {
+	static final int MR = Gemm.MR;
+	static final int NR = Gemm.NR;
+	private static final int FLOATS_PER_DOUBLE = 2;
+	// Below this amount of multiply-adds packing costs more than it saves
+	private static final long SMALL_FLOPS = 16 * 1024;
+
+	private static final Kernels KERNELS = Kernels.get();
+
+	private static final ThreadLocal<float[][]> packBuffers = ThreadLocal.withInitial(() -> new float[2][0]);
+
+	private FloatGemm() {
+	}
+
+	/**
+	 * C = A*B, or C += A*B if accumulate is set, where A is (m,k), B is (k,n)
+	 * and C is (m,n). C must not overlap A or B.
+	 */
+	static void multiply(int m, int n, int k, float[] a, int aOff, int aRs, int aCs, float[] b, int bOff,
+			int bRs, int bCs, float[] c, int cOff, int cRs, boolean accumulate) {
+		if (m == 0 || n == 0) {
+			return;
+		}
+		if (!accumulate) {
+			for (int i = 0; i < m; i++) {
+				int row = cOff + i * cRs;
+				for (int j = 0; j < n; j++) {
+					c[row + j] = 0;
+				}
+			}
+		}
+		if (k == 0) {
+			return;
+		}
+		if ((long) m * n * k <= SMALL_FLOPS || n == 1) {
+			multiplySmall(m, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+			return;
+		}
+		Gemm.Tiles t = new Gemm.Tiles(m, n, k, FLOATS_PER_DOUBLE);
+		int blocks = Gemm.blocks(m, n, k);
+		if (blocks > 1) {
+			Gemm.invoke(
+					new RowBlockTask(t, 0, m, blocks, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs));
+			return;
+		}
+		multiplyBlocked(t, m, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+	}
+
+	/**
+	 * Halves its range of output rows and its amount of blocks until it is one
+	 * block, then runs the sequential blocked kernel on it
+	 */
+	private static final class RowBlockTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Gemm.Tiles t;
+		private final int from, to, blocks, n, k;
+		private final float[] a, b, c;
+		private final int aOff, aRs, aCs, bOff, bRs, bCs, cOff, cRs;
+
+		RowBlockTask(Gemm.Tiles t, int from, int to, int blocks, int n, int k, float[] a, int aOff, int aRs, int aCs,
+				float[] b, int bOff, int bRs, int bCs, float[] c, int cOff, int cRs) {
+			this.t = t;
+			this.from = from;
+			this.to = to;
+			this.blocks = blocks;
+			this.n = n;
+			this.k = k;
+			this.a = a;
+			this.aOff = aOff;
+			this.aRs = aRs;
+			this.aCs = aCs;
+			this.b = b;
+			this.bOff = bOff;
+			this.bRs = bRs;
+			this.bCs = bCs;
+			this.c = c;
+			this.cOff = cOff;
+			this.cRs = cRs;
+		}
+
+		@Override
+		protected void compute() {
+			int rows = this.to - this.from;
+			if (this.blocks <= 1) {
+				if (rows == 0) {
+					return;
+				}
+				multiplyBlocked(this.t, rows, this.n, this.k, this.a, this.aOff + this.from * this.aRs, this.aRs,
+						this.aCs, this.b, this.bOff, this.bRs, this.bCs, this.c, this.cOff + this.from * this.cRs,
+						this.cRs);
+				return;
+			}
+			int left = this.blocks / 2;
+			int mid = Gemm.split(this.from, rows, this.blocks, left);
+			invokeAll(
+					new RowBlockTask(this.t, this.from, mid, left, this.n, this.k, this.a, this.aOff,
+							this.aRs, this.aCs, this.b, this.bOff, this.bRs, this.bCs, this.c, this.cOff, this.cRs),
+					new RowBlockTask(this.t, mid, this.to, this.blocks - left, this.n, this.k, this.a, this.aOff, this.aRs,
+							this.aCs, this.b, this.bOff, this.bRs, this.bCs, this.c, this.cOff, this.cRs));
+		}
+	}
+
+	/**
+	 * Unpacked kernel for small products and matrix-vector products
+	 */
+	private static void multiplySmall(int m, int n, int k, float[] a, int aOff, int aRs, int aCs, float[] b,
+			int bOff, int bRs, int bCs, float[] c, int cOff, int cRs) {
+		if (n == 1) {
+			for (int i = 0; i < m; i++) {
+				int ai = aOff + i * aRs;
+				float sum = 0;
+				for (int p = 0; p < k; p++) {
+					sum += a[ai + p * aCs] * b[bOff + p * bRs];
+				}
+				c[cOff + i * cRs] += sum;
+			}
+			return;
+		}
+		for (int i = 0; i < m; i++) {
+			int ai = aOff + i * aRs;
+			int ci = cOff + i * cRs;
+			for (int p = 0; p < k; p++) {
+				float aip = a[ai + p * aCs];
+				if (aip == 0) {
+					continue;
+				}
+				int bp = bOff + p * bRs;
+				for (int j = 0; j < n; j++) {
+					c[ci + j] += aip * b[bp + j * bCs];
+				}
+			}
+		}
+	}
+
+	private static void multiplyBlocked(Gemm.Tiles t, int m, int n, int k, float[] a, int aOff, int aRs, int aCs,
+			float[] b, int bOff, int bRs, int bCs, float[] c, int cOff, int cRs) {
+		float[][] buffers = packBuffers.get();
+		if (buffers[0].length < t.mc * t.kc) {
+			buffers[0] = new float[t.mc * t.kc];
+		}
+		if (buffers[1].length < t.kc * t.nc) {
+			buffers[1] = new float[t.kc * t.nc];
+		}
+		float[] ap = buffers[0];
+		float[] bp = buffers[1];
+		for (int jc = 0; jc < n; jc += t.nc) {
+			int nb = Math.min(t.nc, n - jc);
+			for (int pc = 0; pc < k; pc += t.kc) {
+				int kb = Math.min(t.kc, k - pc);
+				packB(kb, nb, b, bOff + pc * bRs + jc * bCs, bRs, bCs, bp);
+				for (int ic = 0; ic < m; ic += t.mc) {
+					int mb = Math.min(t.mc, m - ic);
+					packA(mb, kb, a, aOff + ic * aRs + pc * aCs, aRs, aCs, ap);
+					macroKernel(mb, nb, kb, ap, bp, c, cOff + ic * cRs + jc, cRs);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Packs a (mb,kb) block of A into panels of MR rows, column after column.
+	 * Rows beyond mb are zero padded.
+	 */
+	private static void packA(int mb, int kb, float[] a, int off, int rs, int cs, float[] ap) {
+		int idx = 0;
+		for (int ir = 0; ir < mb; ir += MR) {
+			int rows = Math.min(MR, mb - ir);
+			for (int p = 0; p < kb; p++) {
+				int src = off + ir * rs + p * cs;
+				for (int r = 0; r < rows; r++) {
+					ap[idx + r] = a[src + r * rs];
+				}
+				for (int r = rows; r < MR; r++) {
+					ap[idx + r] = 0;
+				}
+				idx += MR;
+			}
+		}
+	}
+
+	/**
+	 * Packs a (kb,nb) block of B into panels of NR columns, row after row.
+	 * Columns beyond nb are zero padded.
+	 */
+	private static void packB(int kb, int nb, float[] b, int off, int rs, int cs, float[] bp) {
+		int idx = 0;
+		for (int jr = 0; jr < nb; jr += NR) {
+			int cols = Math.min(NR, nb - jr);
+			for (int p = 0; p < kb; p++) {
+				int src = off + p * rs + jr * cs;
+				for (int col = 0; col < cols; col++) {
+					bp[idx + col] = b[src + col * cs];
+				}
+				for (int col = cols; col < NR; col++) {
+					bp[idx + col] = 0;
+				}
+				idx += NR;
+			}
+		}
+	}
+
+	private static void macroKernel(int mb, int nb, int kb, float[] ap, float[] bp, float[] c, int cOff,
+			int cRs) {
+		for (int jr = 0; jr < nb; jr += NR) {
+			int cols = Math.min(NR, nb - jr);
+			int bPanel = jr / NR * kb * NR;
+			for (int ir = 0; ir < mb; ir += MR) {
+				int rows = Math.min(MR, mb - ir);
+				int aPanel = ir / MR * kb * MR;
+				KERNELS.microKernel(kb, ap, aPanel, bp, bPanel, c, cOff + ir * cRs + jr, cRs, rows, cols);
+			}
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package matrix;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Row-major single precision matrix backed by a single flat {@code float[]}.
+ * <p>
+ * Laid out like {@link Matrix}: element (i,j) lives at
+ * {@code data[offset + i * stride + j]} and views share the array of their
+ * parent. It offers the subset of operations a training loop needs, all of
+ * them in-place or writing into a given destination. Half the bytes per
+ * element halve the memory traffic of the products, which bounds them for
+ * the layer sizes of MNIST.
+ * </p>
+ * <p>
+ * {@link #of(Matrix)} and {@link #toMatrix()} convert from and to double
+ * precision.
+ * </p>
+ */
+public class FloatMatrix implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private transient float[] data;
+	private transient int offset;
+	private transient int stride;
+	public int hoehe;
+	public int breite;
+
+	public FloatMatrix(int hoehe, int breite) {
+		this(hoehe, breite, new float[hoehe * breite]);
+	}
+
+	public FloatMatrix(int hoehe, int breite, float[] data) {
+		if (data.length < hoehe * breite) {
+			throw new MatrixDimensionException(
+					"Array of length " + data.length + " is too small for dimensions " + hoehe + "," + breite);
+		}
+		this.hoehe = hoehe;
+		this.breite = breite;
+		this.data = data;
+		this.offset = 0;
+		this.stride = breite;
+	}
+
+	private FloatMatrix(int hoehe, int breite, float[] data, int offset, int stride) {
+		this.hoehe = hoehe;
+		this.breite = breite;
+		this.data = data;
+		this.offset = offset;
+		this.stride = stride;
+	}
+
+	/**
+	 * Rounds every element of m to the nearest float
+	 */
+	public static FloatMatrix of(Matrix m) {
+		FloatMatrix res = new FloatMatrix(m.hoehe, m.breite);
+		res.copyFrom(m);
+		return res;
+	}
+
+	public Matrix toMatrix() {
+		Matrix res = new Matrix(this.hoehe, this.breite);
+		double[] d = res.getData();
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = this.offset + i * this.stride;
+			int r = i * this.breite;
+			for (int j = 0; j < this.breite; j++) {
+				d[r + j] = this.data[a + j];
+			}
+		}
+		return res;
+	}
+
+	public float get(int i, int j) {
+		return this.data[this.offset + i * this.stride + j];
+	}
+
+	public void set(int i, int j, float value) {
+		this.data[this.offset + i * this.stride + j] = value;
+	}
+
+	public float[] getData() {
+		return this.data;
+	}
+
+	public int getOffset() {
+		return this.offset;
+	}
+
+	public int getStride() {
+		return this.stride;
+	}
+
+	public boolean isContiguous() {
+		return this.stride == this.breite;
+	}
+
+	public FloatMatrix view(int startRow, int rows, int startColumn, int columns) {
+		if (startRow < 0 || startColumn < 0 || rows < 0 || columns < 0 || startRow + rows > this.hoehe
+				|| startColumn + columns > this.breite) {
+			throw new MatrixDimensionException("View (" + startRow + "," + startColumn + ")+(" + rows + ","
+					+ columns + ") exceeds dimensions " + this.hoehe + "," + this.breite);
+		}
+		return new FloatMatrix(rows, columns, this.data, this.offset + startRow * this.stride + startColumn,
+				this.stride);
+	}
+
+	public FloatMatrix copy() {
+		return new FloatMatrix(this.hoehe, this.breite).copyFrom(this);
+	}
+
+	public FloatMatrix copyFrom(FloatMatrix m) {
+		this.checkSameDimensions(m.hoehe, m.breite);
+		for (int i = 0; i < this.hoehe; i++) {
+			System.arraycopy(m.data, m.offset + i * m.stride, this.data, this.offset + i * this.stride, this.breite);
+		}
+		return this;
+	}
+
+	/**
+	 * Copies m into this matrix, rounding every element to the nearest float
+	 */
+	public FloatMatrix copyFrom(Matrix m) {
+		this.checkSameDimensions(m.hoehe, m.breite);
+		double[] src = m.getData();
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = m.getOffset() + i * m.getStride();
+			int r = this.offset + i * this.stride;
+			for (int j = 0; j < this.breite; j++) {
+				this.data[r + j] = (float) src[a + j];
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Copies the rows indices[from], ..., indices[from + dest.hoehe - 1] of
+	 * this matrix into the rows of dest
+	 */
+	public FloatMatrix gatherRowsInto(int[] indices, int from, FloatMatrix dest) {
+		if (dest.breite != this.breite || from + dest.hoehe > indices.length) {
+			throw new MatrixDimensionException("Destination does not fit " + dest.hoehe + " rows of width "
+					+ this.breite);
+		}
+		for (int i = 0; i < dest.hoehe; i++) {
+			System.arraycopy(this.data, this.offset + indices[from + i] * this.stride, dest.data,
+					dest.offset + i * dest.stride, this.breite);
+		}
+		return dest;
+	}
+
+	public FloatMatrix fill(float value) {
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = this.offset + i * this.stride;
+			for (int j = 0; j < this.breite; j++) {
+				this.data[a + j] = value;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * this += alpha * x, without an intermediate matrix
+	 */
+	public FloatMatrix axpy(float alpha, FloatMatrix x) {
+		this.checkSameDimensions(x.hoehe, x.breite);
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = this.offset + i * this.stride;
+			int b = x.offset + i * x.stride;
+			for (int j = 0; j < this.breite; j++) {
+				this.data[a + j] += alpha * x.data[b + j];
+			}
+		}
+		return this;
+	}
+
+	public FloatMatrix scaleInPlace(float f) {
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = this.offset + i * this.stride;
+			for (int j = 0; j < this.breite; j++) {
+				this.data[a + j] *= f;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * this = this .* m, element by element
+	 */
+	public FloatMatrix hadamardInPlace(FloatMatrix m) {
+		this.checkSameDimensions(m.hoehe, m.breite);
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = this.offset + i * this.stride;
+			int b = m.offset + i * m.stride;
+			for (int j = 0; j < this.breite; j++) {
+				this.data[a + j] *= m.data[b + j];
+			}
+		}
+		return this;
+	}
+
+	private void checkSameDimensions(int hoehe, int breite) {
+		if (breite != this.breite || hoehe != this.hoehe) {
+			throw new IllegalArgumentException("Given Matrix does not have corresponding dimensions!");
+		}
+	}
+
+	public FloatMatrix multiply(FloatMatrix m) {
+		return this.multiplyInto(m, new FloatMatrix(this.hoehe, m.breite));
+	}
+
+	/**
+	 * dest = this * m. dest may not share its array with this or m.
+	 */
+	public FloatMatrix multiplyInto(FloatMatrix m, FloatMatrix dest) {
+		return gemm(this, false, m, false, dest, false);
+	}
+
+	/**
+	 * dest = this * m^T. dest may not share its array with this or m.
+	 */
+	public FloatMatrix multiplyTransposedInto(FloatMatrix m, FloatMatrix dest) {
+		return gemm(this, false, m, true, dest, false);
+	}
+
+	/**
+	 * dest += this^T * m, fused into the multiplication. dest may not share its
+	 * array with this or m.
+	 */
+	public FloatMatrix transposeMultiplyAddInto(FloatMatrix m, FloatMatrix dest) {
+		return gemm(this, true, m, false, dest, true);
+	}
+
+	private static FloatMatrix gemm(FloatMatrix a, boolean transA, FloatMatrix b, boolean transB, FloatMatrix dest,
+			boolean accumulate) {
+		int m = transA ? a.breite : a.hoehe;
+		int k = transA ? a.hoehe : a.breite;
+		int bk = transB ? b.breite : b.hoehe;
+		int n = transB ? b.hoehe : b.breite;
+		if (k != bk) {
+			throw new MatrixDimensionException("The given Matrix does not have the given dimensions (" + k + ",X"
+					+ ") to be multiplied");
+		}
+		if (dest.hoehe != m || dest.breite != n) {
+			throw new MatrixDimensionException(
+					"Destination does not have the dimensions " + m + "," + n + " of the product");
+		}
+		if (dest.data == a.data || dest.data == b.data) {
+			throw new IllegalArgumentException("Destination may not share its array with a factor");
+		}
+		FloatGemm.multiply(m, n, k, a.data, a.offset, transA ? 1 : a.stride, transA ? a.stride : 1, b.data,
+				b.offset, transB ? 1 : b.stride, transB ? b.stride : 1, dest.data, dest.offset, dest.stride,
+				accumulate);
+		return dest;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = this.offset + i * this.stride;
+			for (int j = 0; j < this.breite; j++) {
+				out.writeFloat(this.data[a + j]);
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.data = new float[this.hoehe * this.breite];
+		this.offset = 0;
+		this.stride = this.breite;
+		for (int i = 0; i < this.data.length; i++) {
+			this.data[i] = in.readFloat();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.toMatrix().toString();
+	}
+}
@@ -0,0 +1,358 @@
+package matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Cache-blocked, register-tiled kernel behind {@link Matrix#multiply(Matrix)}.
+ * <p>
+ * Every operand is described by its array, offset, row stride and column
+ * stride, so transposed operands can be passed by just swapping the strides.
+ * The K and M dimensions are cut into blocks that fit into the caches, both
+ * blocks are packed into contiguous panels of {@value #MR} rows or
+ * {@value #NR} columns and a {@value #MR}x{@value #NR} micro kernel keeps its
+ * partial sums in registers.
+ * </p>
+ * <p>
+ * Products above {@value #PARALLEL_FLOPS} multiply-adds are split into blocks
+ * of output rows that run on one {@link ForkJoinPool} for the whole process.
+ * The pool is never replaced; the parallelism of a thread only limits the
+ * amount of blocks its products are split into, see
+ * {@link Matrix#setParallelism(int)} and
+ * {@link Matrix#setThreadParallelism(int)}.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+final class Gemm {
+	static final int MR = 4;
+	static final int NR = 4;
+	// Budgets in doubles: one A and one B micro panel should stay in L1, the
+	// packed A block in L2 and the packed B block in the outer cache
+	private static final int L1_DOUBLES = 4 * 1024;
+	private static final int L2_DOUBLES = 16 * 1024;
+	private static final int L3_DOUBLES = 128 * 1024;
+	// Below this amount of multiply-adds packing costs more than it saves
+	private static final long SMALL_FLOPS = 16 * 1024;
+	// Below this amount of multiply-adds forking costs more than it saves
+	static final long PARALLEL_FLOPS = 1024 * 1024;
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	// Split limit of all threads, and of the threads that set their own
+	private static volatile int parallelism = POOL.getParallelism();
+	private static final ThreadLocal<int[]> threadParallelism = ThreadLocal.withInitial(() -> new int[1]);
+
+	private static final Kernels KERNELS = Kernels.get();
+
+	private static final ThreadLocal<double[][]> packBuffers = ThreadLocal.withInitial(() -> new double[2][0]);
+
+	private Gemm() {
+	}
+
+	/**
+	 * Tile sizes chosen for a (m,k)x(k,n) product
+	 */
+	static final class Tiles {
+		final int mc;
+		final int kc;
+		final int nc;
+
+		Tiles(int m, int n, int k) {
+			this(m, n, k, 1);
+		}
+
+		/**
+		 * @param perDouble
+		 *            elements that fit into the space of one double
+		 */
+		Tiles(int m, int n, int k, int perDouble) {
+			this.kc = Math.max(1, Math.min(k, perDouble * L1_DOUBLES / (MR + NR)));
+			this.mc = clamp(perDouble * L2_DOUBLES / this.kc, MR, roundUp(m, MR));
+			this.nc = clamp(perDouble * L3_DOUBLES / this.kc, NR, roundUp(n, NR));
+		}
+
+		private static int clamp(int budget, int unit, int max) {
+			int v = Math.max(unit, budget / unit * unit);
+			return Math.min(v, max);
+		}
+	}
+
+	static void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism has to be at least 1");
+		}
+		Gemm.parallelism = parallelism;
+	}
+
+	/**
+	 * @return the previous parallelism of the calling thread, 0 if it had
+	 *         none of its own
+	 */
+	static int setThreadParallelism(int parallelism) {
+		if (parallelism < 0) {
+			throw new IllegalArgumentException("Parallelism may not be negative");
+		}
+		int[] own = threadParallelism.get();
+		int previous = own[0];
+		own[0] = parallelism;
+		return previous;
+	}
+
+	/**
+	 * @return the split limit of the calling thread
+	 */
+	static int getParallelism() {
+		int own = threadParallelism.get()[0];
+		return own > 0 ? own : parallelism;
+	}
+
+	/**
+	 * @return the amount of row blocks a (m,k)x(k,n) product of the calling
+	 *         thread is split into, 1 if it runs on the calling thread. At
+	 *         most the parallelism of the thread, and none smaller than a
+	 *         fourth of {@value #PARALLEL_FLOPS} multiply-adds.
+	 */
+	static int blocks(int m, int n, int k) {
+		int limit = getParallelism();
+		long flops = (long) m * n * k;
+		if (limit < 2 || flops < PARALLEL_FLOPS || m < 2 * MR) {
+			return 1;
+		}
+		return (int) Math.min(Math.min(limit, m / MR), flops / (PARALLEL_FLOPS / 4));
+	}
+
+	/**
+	 * Runs the task on the pool, or right away if the calling thread is one
+	 * of its workers
+	 */
+	static void invoke(RecursiveAction task) {
+		Thread current = Thread.currentThread();
+		if (current instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) current).getPool() == POOL) {
+			task.invoke();
+		} else {
+			POOL.invoke(task);
+		}
+	}
+
+	/**
+	 * @return the first row of the second part when rows rows are split into
+	 *         a part of leftBlocks and one of blocks - leftBlocks blocks
+	 */
+	static int split(int from, int rows, int blocks, int leftBlocks) {
+		return from + Math.min(rows, roundUp((int) ((long) rows * leftBlocks / blocks), MR));
+	}
+
+	static int roundUp(int x, int unit) {
+		return (x + unit - 1) / unit * unit;
+	}
+
+	/**
+	 * C = A*B, or C += A*B if accumulate is set, where A is (m,k), B is (k,n)
+	 * and C is (m,n). C must not overlap A or B.
+	 */
+	static void multiply(int m, int n, int k, double[] a, int aOff, int aRs, int aCs, double[] b, int bOff,
+			int bRs, int bCs, double[] c, int cOff, int cRs, boolean accumulate) {
+		if (m == 0 || n == 0) {
+			return;
+		}
+		if (!accumulate) {
+			for (int i = 0; i < m; i++) {
+				int row = cOff + i * cRs;
+				for (int j = 0; j < n; j++) {
+					c[row + j] = 0;
+				}
+			}
+		}
+		if (k == 0) {
+			return;
+		}
+		if ((long) m * n * k <= SMALL_FLOPS || n == 1) {
+			multiplySmall(m, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+			return;
+		}
+		Tiles t = new Tiles(m, n, k);
+		int blocks = blocks(m, n, k);
+		if (blocks > 1) {
+			invoke(new RowBlockTask(t, 0, m, blocks, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs));
+			return;
+		}
+		multiplyBlocked(t, m, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+	}
+
+	/**
+	 * Halves its range of output rows and its amount of blocks until it is one
+	 * block, then runs the sequential blocked kernel on it
+	 */
+	private static final class RowBlockTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Tiles t;
+		private final int from, to, blocks, n, k;
+		private final double[] a, b, c;
+		private final int aOff, aRs, aCs, bOff, bRs, bCs, cOff, cRs;
+
+		RowBlockTask(Tiles t, int from, int to, int blocks, int n, int k, double[] a, int aOff, int aRs, int aCs,
+				double[] b, int bOff, int bRs, int bCs, double[] c, int cOff, int cRs) {
+			this.t = t;
+			this.from = from;
+			this.to = to;
+			this.blocks = blocks;
+			this.n = n;
+			this.k = k;
+			this.a = a;
+			this.aOff = aOff;
+			this.aRs = aRs;
+			this.aCs = aCs;
+			this.b = b;
+			this.bOff = bOff;
+			this.bRs = bRs;
+			this.bCs = bCs;
+			this.c = c;
+			this.cOff = cOff;
+			this.cRs = cRs;
+		}
+
+		@Override
+		protected void compute() {
+			int rows = this.to - this.from;
+			if (this.blocks <= 1) {
+				if (rows == 0) {
+					return;
+				}
+				multiplyBlocked(this.t, rows, this.n, this.k, this.a, this.aOff + this.from * this.aRs, this.aRs,
+						this.aCs, this.b, this.bOff, this.bRs, this.bCs, this.c, this.cOff + this.from * this.cRs,
+						this.cRs);
+				return;
+			}
+			int left = this.blocks / 2;
+			int mid = split(this.from, rows, this.blocks, left);
+			invokeAll(
+					new RowBlockTask(this.t, this.from, mid, left, this.n, this.k, this.a, this.aOff,
+							this.aRs, this.aCs, this.b, this.bOff, this.bRs, this.bCs, this.c, this.cOff, this.cRs),
+					new RowBlockTask(this.t, mid, this.to, this.blocks - left, this.n, this.k, this.a, this.aOff, this.aRs,
+							this.aCs, this.b, this.bOff, this.bRs, this.bCs, this.c, this.cOff, this.cRs));
+		}
+	}
+
+	/**
+	 * Unpacked kernel for small products and matrix-vector products
+	 */
+	private static void multiplySmall(int m, int n, int k, double[] a, int aOff, int aRs, int aCs, double[] b,
+			int bOff, int bRs, int bCs, double[] c, int cOff, int cRs) {
+		if (n == 1) {
+			for (int i = 0; i < m; i++) {
+				int ai = aOff + i * aRs;
+				double sum;
+				if (aCs == 1 && bRs == 1) {
+					sum = KERNELS.dot(a, ai, b, bOff, k);
+				} else {
+					sum = 0;
+					for (int p = 0; p < k; p++) {
+						sum += a[ai + p * aCs] * b[bOff + p * bRs];
+					}
+				}
+				c[cOff + i * cRs] += sum;
+			}
+			return;
+		}
+		for (int i = 0; i < m; i++) {
+			int ai = aOff + i * aRs;
+			int ci = cOff + i * cRs;
+			for (int p = 0; p < k; p++) {
+				double aip = a[ai + p * aCs];
+				if (aip == 0) {
+					continue;
+				}
+				int bp = bOff + p * bRs;
+				if (bCs == 1) {
+					KERNELS.axpy(aip, b, bp, c, ci, n);
+					continue;
+				}
+				for (int j = 0; j < n; j++) {
+					c[ci + j] += aip * b[bp + j * bCs];
+				}
+			}
+		}
+	}
+
+	static void multiplyBlocked(Tiles t, int m, int n, int k, double[] a, int aOff, int aRs, int aCs, double[] b,
+			int bOff, int bRs, int bCs, double[] c, int cOff, int cRs) {
+		double[][] buffers = packBuffers.get();
+		if (buffers[0].length < t.mc * t.kc) {
+			buffers[0] = new double[t.mc * t.kc];
+		}
+		if (buffers[1].length < t.kc * t.nc) {
+			buffers[1] = new double[t.kc * t.nc];
+		}
+		double[] ap = buffers[0];
+		double[] bp = buffers[1];
+		for (int jc = 0; jc < n; jc += t.nc) {
+			int nb = Math.min(t.nc, n - jc);
+			for (int pc = 0; pc < k; pc += t.kc) {
+				int kb = Math.min(t.kc, k - pc);
+				packB(kb, nb, b, bOff + pc * bRs + jc * bCs, bRs, bCs, bp);
+				for (int ic = 0; ic < m; ic += t.mc) {
+					int mb = Math.min(t.mc, m - ic);
+					packA(mb, kb, a, aOff + ic * aRs + pc * aCs, aRs, aCs, ap);
+					macroKernel(mb, nb, kb, ap, bp, c, cOff + ic * cRs + jc, cRs);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Packs a (mb,kb) block of A into panels of MR rows, column after column.
+	 * Rows beyond mb are zero padded.
+	 */
+	private static void packA(int mb, int kb, double[] a, int off, int rs, int cs, double[] ap) {
+		int idx = 0;
+		for (int ir = 0; ir < mb; ir += MR) {
+			int rows = Math.min(MR, mb - ir);
+			for (int p = 0; p < kb; p++) {
+				int src = off + ir * rs + p * cs;
+				for (int r = 0; r < rows; r++) {
+					ap[idx + r] = a[src + r * rs];
+				}
+				for (int r = rows; r < MR; r++) {
+					ap[idx + r] = 0;
+				}
+				idx += MR;
+			}
+		}
+	}
+
+	/**
+	 * Packs a (kb,nb) block of B into panels of NR columns, row after row.
+	 * Columns beyond nb are zero padded.
+	 */
+	private static void packB(int kb, int nb, double[] b, int off, int rs, int cs, double[] bp) {
+		int idx = 0;
+		for (int jr = 0; jr < nb; jr += NR) {
+			int cols = Math.min(NR, nb - jr);
+			for (int p = 0; p < kb; p++) {
+				int src = off + p * rs + jr * cs;
+				for (int col = 0; col < cols; col++) {
+					bp[idx + col] = b[src + col * cs];
+				}
+				for (int col = cols; col < NR; col++) {
+					bp[idx + col] = 0;
+				}
+				idx += NR;
+			}
+		}
+	}
+
+	private static void macroKernel(int mb, int nb, int kb, double[] ap, double[] bp, double[] c, int cOff,
+			int cRs) {
+		for (int jr = 0; jr < nb; jr += NR) {
+			int cols = Math.min(NR, nb - jr);
+			int bPanel = jr / NR * kb * NR;
+			for (int ir = 0; ir < mb; ir += MR) {
+				int rows = Math.min(MR, mb - ir);
+				int aPanel = ir / MR * kb * MR;
+				KERNELS.microKernel(kb, ap, aPanel, bp, bPanel, c, cOff + ir * cRs + jr, cRs, rows, cols);
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package matrix;
+
+/**
+ * Innermost loops of the matrix operations and activation functions.
+ * <p>
+ * The implementation is picked once at startup: the SIMD kernels built on the
+ * JDK Vector API ({@code jdk.incubator.vector}) if their classes are on the
+ * classpath, the module is added to the JVM
+ * ({@code --add-modules jdk.incubator.vector}) and the CPU has 256 bit
+ * vectors, the scalar loops otherwise. Setting the system property
+ * {@code matrix.simd} to {@code false} forces the scalar loops.
+ * </p>
+ * <p>
+ * All arrays are addressed by offset and length; the kernels never allocate.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public abstract class Kernels {
+	private static final Kernels SCALAR = new ScalarKernels();
+	private static final Kernels ACTIVE = load();
+
+	/**
+	 * @return the kernels picked at startup
+	 */
+	public static Kernels get() {
+		return ACTIVE;
+	}
+
+	/**
+	 * @return the scalar kernels, e.g. as baseline of a benchmark
+	 */
+	public static Kernels scalar() {
+		return SCALAR;
+	}
+
+	private static Kernels load() {
+		if (!Boolean.parseBoolean(System.getProperty("matrix.simd", "true"))) {
+			return SCALAR;
+		}
+		try {
+			return (Kernels) Class.forName("matrix.VectorKernels").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			// Vector API not available or CPU without suitable vectors
+			return SCALAR;
+		}
+	}
+
+	public abstract String getName();
+
+	/**
+	 * c = a + b
+	 */
+	public abstract void add(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int length);
+
+	/**
+	 * c = alpha * a
+	 */
+	public abstract void scale(double alpha, double[] a, int aOff, double[] c, int cOff, int length);
+
+	/**
+	 * y += alpha * x
+	 */
+	public abstract void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length);
+
+	/**
+	 * @return sum of a[aOff + i] * b[bOff + i]
+	 */
+	public abstract double dot(double[] a, int aOff, double[] b, int bOff, int length);
+
+	/**
+	 * Adds the product of a packed panel of {@value Gemm#MR} rows of A and a
+	 * packed panel of {@value Gemm#NR} columns of B to the (rows,cols) tile of
+	 * C at ci, see {@link Gemm}
+	 */
+	abstract void microKernel(int kb, double[] ap, int ai, double[] bp, int bi, double[] c, int ci, int cRs,
+			int rows, int cols);
+
+	/**
+	 * Single precision micro kernel of {@link FloatGemm}
+	 */
+	abstract void microKernel(int kb, float[] ap, int ai, float[] bp, int bi, float[] c, int ci, int cRs,
+			int rows, int cols);
+
+	public abstract void sigmoid(double[] in, int inOff, double[] out, int outOff, int length);
+
+	public abstract void sigmoidDerivative(double[] in, int inOff, double[] out, int outOff, int length);
+
+	/**
+	 * 2 * sigmoid(x) - 1, the form used by {@code neuralnet.TanH}
+	 */
+	public abstract void tanh(double[] in, int inOff, double[] out, int outOff, int length);
+
+	public abstract void tanhDerivative(double[] in, int inOff, double[] out, int outOff, int length);
+
+	public abstract void relu(double[] in, int inOff, double[] out, int outOff, int length);
+
+	public abstract void reluDerivative(double[] in, int inOff, double[] out, int outOff, int length);
+
+	@Override
+	public String toString() {
+		return this.getName();
+	}
+}
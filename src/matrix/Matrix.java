@@ -1,140 +1,436 @@
 package matrix;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.function.DoubleFunction;;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleUnaryOperator;
 
+/**
+ * Row-major matrix backed by a single flat {@code double[]}.
+ * <p>
+ * Element (i,j) lives at {@code data[offset + i * stride + j]}. A matrix
+ * created through {@link #view(int, int, int, int)} or
+ * {@link #subMatrix(int, int)} shares the array of its parent, so writes
+ * through a view are visible in the parent and vice versa.
+ * </p>
+ * <p>
+ * {@link #getMatrix()} and {@link #setMatrix(double[][])} remain as adapters
+ * to the old jagged representation; they copy and should be kept out of hot
+ * loops.
+ * </p>
+ * <p>
+ * Every operation that returns a new matrix also has an in-place variant
+ * ({@code addInPlace}, {@code scaleInPlace}, {@code applyInPlace},
+ * {@link #axpy(double, Matrix)}) or one writing into a given destination
+ * ({@code addInto}, {@code multiplyInto}, {@code applyInto},
+ * {@code transposeInto}), so training loops can reuse their buffers.
+ * </p>
+ */
 public class Matrix implements Serializable {
 
 	private static final long serialVersionUID = 10L;
-	private double[][] matrix;
+	// Keep the serialized form of the former double[][] layout, so that
+	// already saved nets can still be loaded
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("matrix", double[][].class), new ObjectStreamField("hoehe", int.class),
+			new ObjectStreamField("breite", int.class) };
+	private double[] data;
+	private int offset;
+	private int stride;
+	private boolean view;
 	public int hoehe;
 	public int breite;
 
 	public Matrix(int hoehe, int breite) {
+		this(hoehe, breite, new double[hoehe * breite]);
+	}
+
+	public Matrix(int hoehe, int breite, double[] data) {
+		if (data.length < hoehe * breite) {
+			throw new MatrixDimensionException(
+					"Array of length " + data.length + " is too small for dimensions " + hoehe + "," + breite);
+		}
+		this.hoehe = hoehe;
+		this.breite = breite;
+		this.data = data;
+		this.offset = 0;
+		this.stride = breite;
+	}
+
+	private Matrix(int hoehe, int breite, double[] data, int offset, int stride) {
 		this.hoehe = hoehe;
 		this.breite = breite;
+		this.data = data;
+		this.offset = offset;
+		this.stride = stride;
+		this.view = true;
+	}
+
+	/**
+	 * Sets into how many blocks at most the large matrix multiplications of
+	 * all threads without a parallelism of their own are split. The blocks
+	 * run on a fork/join pool shared by the whole process, which is never
+	 * replaced. Products below a size threshold always run on the calling
+	 * thread.
+	 * 
+	 * @param parallelism
+	 *            amount of threads, 1 disables parallel multiplication
+	 */
+	public static void setParallelism(int parallelism) {
+		Gemm.setParallelism(parallelism);
+	}
+
+	/**
+	 * Sets the parallelism of the calling thread only, see
+	 * {@link #setParallelism(int)}. Training sets it for its run and puts the
+	 * previous value back afterwards.
+	 * 
+	 * @param parallelism
+	 *            amount of threads, 0 to use the one of all threads again
+	 * @return the previous parallelism of the thread, 0 if it had none
+	 */
+	public static int setThreadParallelism(int parallelism) {
+		return Gemm.setThreadParallelism(parallelism);
+	}
+
+	/**
+	 * @return the parallelism of the calling thread
+	 */
+	public static int getParallelism() {
+		return Gemm.getParallelism();
+	}
+
+	public double get(int i, int j) {
+		return this.data[this.offset + i * this.stride + j];
+	}
+
+	public void set(int i, int j, double value) {
+		this.data[this.offset + i * this.stride + j] = value;
+	}
+
+	public double[] getData() {
+		return this.data;
+	}
+
+	public int getOffset() {
+		return this.offset;
+	}
+
+	public int getStride() {
+		return this.stride;
+	}
+
+	public boolean isContiguous() {
+		return this.stride == this.breite;
+	}
+
+	public double[] getRow(int i) {
+		double[] row = new double[this.breite];
+		System.arraycopy(this.data, this.offset + i * this.stride, row, 0, this.breite);
+		return row;
+	}
+
+	public Matrix view(int startRow, int rows, int startColumn, int columns) {
+		if (startRow < 0 || startColumn < 0 || rows < 0 || columns < 0 || startRow + rows > this.hoehe
+				|| startColumn + columns > this.breite) {
+			throw new MatrixDimensionException("View (" + startRow + "," + startColumn + ")+(" + rows + ","
+					+ columns + ") exceeds dimensions " + this.hoehe + "," + this.breite);
+		}
+		return new Matrix(rows, columns, this.data, this.offset + startRow * this.stride + startColumn,
+				this.stride);
 	}
 
 	public Matrix transpose() {
-		Matrix res = new Matrix(this.breite, this.hoehe);
-		double[][] data = new double[this.breite][this.hoehe];
-		for (int i = 0; i < this.breite; i++) {
-			for (int j = 0; j < this.hoehe; j++) {
-				data[i][j] = this.matrix[j][i];
+		return this.transposeInto(new Matrix(this.breite, this.hoehe));
+	}
+
+	public Matrix transposeInto(Matrix dest) {
+		if (dest.hoehe != this.breite || dest.breite != this.hoehe) {
+			throw new MatrixDimensionException("Destination does not have the transposed dimensions " + this.breite
+					+ "," + this.hoehe);
+		}
+		if (dest.data == this.data) {
+			throw new IllegalArgumentException("Destination may not share its array with the transposed matrix");
+		}
+		for (int i = 0; i < this.hoehe; i++) {
+			int row = this.offset + i * this.stride;
+			int col = dest.offset + i;
+			for (int j = 0; j < this.breite; j++) {
+				dest.data[col + j * dest.stride] = this.data[row + j];
 			}
 		}
-		res.setMatrix(data);
-		return res;
+		return dest;
 	}
 
 	public void addZeile(double[] zeile) {
 		if (zeile.length != this.breite) {
 			throw new IllegalArgumentException("Row does not correspont with dimension of Matrix");
 		}
-		this.hoehe += 1;
-		double[][] newM = new double[this.hoehe][this.breite];
-		for (int i = 0; i < this.hoehe - 1; i++) {
-			newM[i] = this.matrix[i];
+		int size = this.hoehe * this.breite;
+		if (this.view || this.data.length < size + this.breite) {
+			// Capacity grows geometrically, so repeated appends stay amortized
+			// O(1) per element
+			double[] newD = new double[Math.max(size + this.breite, size + (size >> 1))];
+			this.copyTo(newD);
+			this.data = newD;
+			this.offset = 0;
+			this.stride = this.breite;
+			this.view = false;
 		}
-		newM[this.hoehe - 1] = zeile;
-		this.matrix = newM;
+		System.arraycopy(zeile, 0, this.data, size, this.breite);
+		this.hoehe += 1;
 	}
 
 	public Matrix add(Matrix m) {
-		if (m.breite != this.breite || m.hoehe != this.hoehe) {
-			throw new IllegalArgumentException("Given Matrix does not have corresponding dimensions!");
+		return this.addInto(m, new Matrix(this.hoehe, this.breite));
+	}
+
+	public Matrix addInPlace(Matrix m) {
+		return this.addInto(m, this);
+	}
+
+	public Matrix addInto(Matrix m, Matrix dest) {
+		this.checkSameDimensions(m);
+		this.checkSameDimensions(dest);
+		Kernels k = Kernels.get();
+		if (this.isContiguous() && m.isContiguous() && dest.isContiguous()) {
+			k.add(this.data, this.offset, m.data, m.offset, dest.data, dest.offset, this.hoehe * this.breite);
+			return dest;
+		}
+		for (int i = 0; i < this.hoehe; i++) {
+			k.add(this.data, this.offset + i * this.stride, m.data, m.offset + i * m.stride, dest.data,
+					dest.offset + i * dest.stride, this.breite);
+		}
+		return dest;
+	}
+
+	/**
+	 * this += alpha * x, without an intermediate matrix
+	 */
+	public Matrix axpy(double alpha, Matrix x) {
+		this.checkSameDimensions(x);
+		Kernels k = Kernels.get();
+		if (this.isContiguous() && x.isContiguous()) {
+			k.axpy(alpha, x.data, x.offset, this.data, this.offset, this.hoehe * this.breite);
+			return this;
+		}
+		for (int i = 0; i < this.hoehe; i++) {
+			k.axpy(alpha, x.data, x.offset + i * x.stride, this.data, this.offset + i * this.stride, this.breite);
+		}
+		return this;
+	}
+
+	public Matrix multiply(double d) {
+		return this.multiplyInto(d, new Matrix(this.hoehe, this.breite));
+	}
+
+	public Matrix scaleInPlace(double d) {
+		return this.multiplyInto(d, this);
+	}
+
+	public Matrix multiplyInto(double d, Matrix dest) {
+		this.checkSameDimensions(dest);
+		Kernels k = Kernels.get();
+		if (this.isContiguous() && dest.isContiguous()) {
+			k.scale(d, this.data, this.offset, dest.data, dest.offset, this.hoehe * this.breite);
+			return dest;
 		}
-		Matrix res = new Matrix(this.hoehe, this.breite);
-		double[][] resM = new double[this.hoehe][this.breite];
 		for (int i = 0; i < this.hoehe; i++) {
-			double[] resRow = new double[this.breite];
+			k.scale(d, this.data, this.offset + i * this.stride, dest.data, dest.offset + i * dest.stride,
+					this.breite);
+		}
+		return dest;
+	}
+
+	/**
+	 * this = this .* m, element by element
+	 */
+	public Matrix hadamardInPlace(Matrix m) {
+		this.checkSameDimensions(m);
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = this.offset + i * this.stride;
+			int b = m.offset + i * m.stride;
 			for (int j = 0; j < this.breite; j++) {
-				resRow[j] = this.matrix[i][j] + m.getMatrix()[i][j];
+				this.data[a + j] *= m.data[b + j];
 			}
-			resM[i] = resRow;
 		}
-		res.setMatrix(resM);
-		return res;
+		return this;
 	}
 
-	public Matrix multiply(double d) {
-		Matrix res = new Matrix(this.hoehe, this.breite);
-		double[][] resM = new double[this.hoehe][this.breite];
+	/**
+	 * Copies the rows indices[from], ..., indices[from + dest.hoehe - 1] of
+	 * this matrix into the rows of dest
+	 */
+	public Matrix gatherRowsInto(int[] indices, int from, Matrix dest) {
+		if (dest.breite != this.breite || from + dest.hoehe > indices.length) {
+			throw new MatrixDimensionException("Destination does not fit " + dest.hoehe + " rows of width "
+					+ this.breite);
+		}
+		for (int i = 0; i < dest.hoehe; i++) {
+			System.arraycopy(this.data, this.offset + indices[from + i] * this.stride, dest.data,
+					dest.offset + i * dest.stride, this.breite);
+		}
+		return dest;
+	}
+
+	public Matrix fill(double value) {
 		for (int i = 0; i < this.hoehe; i++) {
-			double[] resRow = new double[this.breite];
+			int a = this.offset + i * this.stride;
 			for (int j = 0; j < this.breite; j++) {
-				resRow[j] = this.matrix[i][j] * d;
+				this.data[a + j] = value;
 			}
-			resM[i] = resRow;
 		}
-		res.setMatrix(resM);
-		return res;
+		return this;
+	}
+
+	public Matrix copyFrom(Matrix m) {
+		this.checkSameDimensions(m);
+		for (int i = 0; i < this.hoehe; i++) {
+			System.arraycopy(m.data, m.offset + i * m.stride, this.data, this.offset + i * this.stride, this.breite);
+		}
+		return this;
+	}
+
+	private void checkSameDimensions(Matrix m) {
+		if (m.breite != this.breite || m.hoehe != this.hoehe) {
+			throw new IllegalArgumentException("Given Matrix does not have corresponding dimensions!");
+		}
 	}
 
 	public Matrix subMatrix(int startingHeight, int endHeight) {
 		if (startingHeight < 0 || endHeight > this.hoehe || startingHeight > endHeight) {
 			throw new IllegalArgumentException();
 		}
-		Matrix res = new Matrix(endHeight + 1 - startingHeight, this.breite);
-		double[][] newM = new double[endHeight + 1 - startingHeight][this.breite];
-		for (int i = 0; i < newM.length; i++) {
-			double[] newMRow = this.matrix[startingHeight + i];
-			newM[i] = newMRow;
-		}
-		res.setMatrix(newM);
-		return res;
+		return this.view(startingHeight, endHeight + 1 - startingHeight, 0, this.breite);
 	}
 
 	public Matrix multiply(Matrix m) {
-		Matrix res = new Matrix(this.hoehe, m.breite);
-		if (this.breite == m.hoehe) {
-			double[][] resM = new double[this.hoehe][m.breite];
-			for (int i = 0; i < this.hoehe; i++) {
-				double[] arr1 = this.matrix[i];
-				resM[i] = new double[m.breite];
-				for (int k = 0; k < m.breite; k++) {
-					double sum = 0;
-					for (int j = 0; j < arr1.length; j++) {
-						sum += arr1[j] * m.getMatrix()[j][k];
-					}
-					resM[i][k] = sum;
-				}
-			}
-			res.setMatrix(resM);
-			return res;
-		} else {
-			throw new MatrixDimensionException("The given Matrix does not have the given dimensions (" + this.breite
-					+ ",X" + ") to be multiplied");
+		return this.multiplyInto(m, new Matrix(this.hoehe, m.breite));
+	}
+
+	/**
+	 * dest = this * m. dest may not share its array with this or m.
+	 */
+	public Matrix multiplyInto(Matrix m, Matrix dest) {
+		return this.multiplyInto(m, dest, false);
+	}
+
+	/**
+	 * dest += this * m, fused into the multiplication. dest may not share its
+	 * array with this or m.
+	 */
+	public Matrix multiplyAddInto(Matrix m, Matrix dest) {
+		return this.multiplyInto(m, dest, true);
+	}
+
+	private Matrix multiplyInto(Matrix m, Matrix dest, boolean accumulate) {
+		return gemm(this, false, m, false, dest, accumulate);
+	}
+
+	/**
+	 * this * m^T, without transposing m first
+	 */
+	public Matrix multiplyTransposed(Matrix m) {
+		return this.multiplyTransposedInto(m, new Matrix(this.hoehe, m.hoehe));
+	}
+
+	/**
+	 * dest = this * m^T. dest may not share its array with this or m.
+	 */
+	public Matrix multiplyTransposedInto(Matrix m, Matrix dest) {
+		return gemm(this, false, m, true, dest, false);
+	}
+
+	/**
+	 * this^T * m, without transposing this first
+	 */
+	public Matrix transposeMultiply(Matrix m) {
+		return this.transposeMultiplyInto(m, new Matrix(this.breite, m.breite));
+	}
+
+	/**
+	 * dest = this^T * m. dest may not share its array with this or m.
+	 */
+	public Matrix transposeMultiplyInto(Matrix m, Matrix dest) {
+		return gemm(this, true, m, false, dest, false);
+	}
+
+	/**
+	 * dest += this^T * m, fused into the multiplication. dest may not share its
+	 * array with this or m.
+	 */
+	public Matrix transposeMultiplyAddInto(Matrix m, Matrix dest) {
+		return gemm(this, true, m, false, dest, true);
+	}
+
+	private static Matrix gemm(Matrix a, boolean transA, Matrix b, boolean transB, Matrix dest,
+			boolean accumulate) {
+		int m = transA ? a.breite : a.hoehe;
+		int k = transA ? a.hoehe : a.breite;
+		int bk = transB ? b.breite : b.hoehe;
+		int n = transB ? b.hoehe : b.breite;
+		if (k != bk) {
+			throw new MatrixDimensionException("The given Matrix does not have the given dimensions (" + k + ",X"
+					+ ") to be multiplied");
+		}
+		if (dest.hoehe != m || dest.breite != n) {
+			throw new MatrixDimensionException(
+					"Destination does not have the dimensions " + m + "," + n + " of the product");
 		}
+		if (dest.data == a.data || dest.data == b.data) {
+			throw new IllegalArgumentException("Destination may not share its array with a factor");
+		}
+		Gemm.multiply(m, n, k, a.data, a.offset, transA ? 1 : a.stride, transA ? a.stride : 1, b.data, b.offset,
+				transB ? 1 : b.stride, transB ? b.stride : 1, dest.data, dest.offset, dest.stride, accumulate);
+		return dest;
 	}
 
 	public Matrix applyFunctionOnMatrix(DoubleFunction<Double> aMethod) {
 		Matrix m = new Matrix(this.hoehe, this.breite);
-		double[][] mAfter = new double[this.hoehe][this.breite];
-		for (int i = 0; i < this.matrix.length; i++) {
-			double[] mArr = new double[this.breite];
+		double[] mD = m.data;
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = this.offset + i * this.stride;
+			int r = i * this.breite;
 			for (int j = 0; j < this.breite; j++) {
-				mArr[j] = aMethod.apply(this.matrix[i][j]);
+				mD[r + j] = aMethod.apply(this.data[a + j]);
 			}
-			mAfter[i] = mArr;
 		}
-		m.setMatrix(mAfter);
 		return m;
 	}
 
+	public Matrix applyInPlace(DoubleUnaryOperator aMethod) {
+		return this.applyInto(aMethod, this);
+	}
+
+	public Matrix applyInto(DoubleUnaryOperator aMethod, Matrix dest) {
+		this.checkSameDimensions(dest);
+		for (int i = 0; i < this.hoehe; i++) {
+			int a = this.offset + i * this.stride;
+			int r = dest.offset + i * dest.stride;
+			for (int j = 0; j < this.breite; j++) {
+				dest.data[r + j] = aMethod.applyAsDouble(this.data[a + j]);
+			}
+		}
+		return dest;
+	}
+
 	public Matrix copy() {
 		Matrix newMe = new Matrix(this.hoehe, this.breite);
-		// Kopieren der Arrays
-		double[][] newMatrix = new double[this.hoehe][this.breite];
-		for (int i = 0; i < this.matrix.length; i++) {
-			double[] newArr = new double[this.breite];
-			for (int j = 0; j < this.matrix[i].length; j++) {
-				newArr[j] = this.matrix[i][j];
+		this.copyTo(newMe.data);
+		return newMe;
+	}
+
+	private void copyTo(double[] dest) {
+		if (this.isContiguous()) {
+			System.arraycopy(this.data, this.offset, dest, 0, this.hoehe * this.breite);
+		} else {
+			for (int i = 0; i < this.hoehe; i++) {
+				System.arraycopy(this.data, this.offset + i * this.stride, dest, i * this.breite, this.breite);
 			}
-			newMatrix[i] = newArr;
 		}
-		newMe.setMatrix(newMatrix);
-		return newMe;
 	}
 
 	public boolean istGueltigeMatrix(double[][] matrix) {
@@ -153,7 +449,9 @@ public class Matrix implements Serializable {
 
 	public void setMatrix(double[][] matrix) {
 		if (istGueltigeMatrix(matrix)) {
-			this.matrix = matrix;
+			for (int i = 0; i < this.hoehe; i++) {
+				System.arraycopy(matrix[i], 0, this.data, this.offset + i * this.stride, this.breite);
+			}
 		} else {
 			throw new MatrixDimensionException(
 					"Invalid Dimensions: The given matrix does not match with the given dimensions " + this.hoehe + ","
@@ -162,17 +460,41 @@ public class Matrix implements Serializable {
 	}
 
 	public double[][] getMatrix() {
-		return this.matrix;
+		double[][] matrix = new double[this.hoehe][];
+		for (int i = 0; i < this.hoehe; i++) {
+			matrix[i] = this.getRow(i);
+		}
+		return matrix;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("matrix", this.getMatrix());
+		fields.put("hoehe", this.hoehe);
+		fields.put("breite", this.breite);
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		this.hoehe = fields.get("hoehe", 0);
+		this.breite = fields.get("breite", 0);
+		this.data = new double[this.hoehe * this.breite];
+		this.offset = 0;
+		this.stride = this.breite;
+		double[][] matrix = (double[][]) fields.get("matrix", null);
+		if (matrix != null) {
+			this.setMatrix(matrix);
+		}
 	}
 
 	public String toExactString() {
 		String s = "";
 		int maxLength = -1;
 		int[][] lengths = new int[this.hoehe][this.breite];
-		for (int i = 0; i < this.matrix.length; i++) {
-			double[] reihe = this.matrix[i];
-			for (int j = 0; j < reihe.length; j++) {
-				double d = reihe[j];
+		for (int i = 0; i < this.hoehe; i++) {
+			for (int j = 0; j < this.breite; j++) {
+				double d = this.get(i, j);
 				double rounded = d;
 				int length = String.valueOf(rounded).length();
 				lengths[i][j] = length;
@@ -182,23 +504,23 @@ public class Matrix implements Serializable {
 			}
 		}
 		s += "[";
-		for (int i = 0; i < this.matrix.length; i++) {
+		for (int i = 0; i < this.hoehe; i++) {
 			if (i == 0) {
 				s += "[";
 			} else {
 				s += " [";
 			}
-			for (int j = 0; j < this.matrix[i].length; j++) {
-				double rounded = this.matrix[i][j];
+			for (int j = 0; j < this.breite; j++) {
+				double rounded = this.get(i, j);
 				s += rounded;
 				for (int m = 0; m < maxLength - lengths[i][j]; m++) {
 					s += " ";
 				}
-				if (j != this.matrix[i].length - 1) {
+				if (j != this.breite - 1) {
 					s += ", ";
 				}
 			}
-			if (i != this.matrix.length - 1) {
+			if (i != this.hoehe - 1) {
 				s += "]\n";
 			} else {
 				s += "]]\n";
@@ -212,10 +534,9 @@ public class Matrix implements Serializable {
 		String s = "";
 		int maxLength = -1;
 		int[][] lengths = new int[this.hoehe][this.breite];
-		for (int i = 0; i < this.matrix.length; i++) {
-			double[] reihe = this.matrix[i];
-			for (int j = 0; j < reihe.length; j++) {
-				double d = reihe[j];
+		for (int i = 0; i < this.hoehe; i++) {
+			for (int j = 0; j < this.breite; j++) {
+				double d = this.get(i, j);
 				double rounded = d * 100;
 				rounded -= rounded % 1;
 				rounded /= 100;
@@ -227,25 +548,25 @@ public class Matrix implements Serializable {
 			}
 		}
 		s += "[";
-		for (int i = 0; i < this.matrix.length; i++) {
+		for (int i = 0; i < this.hoehe; i++) {
 			if (i == 0) {
 				s += "[";
 			} else {
 				s += " [";
 			}
-			for (int j = 0; j < this.matrix[i].length; j++) {
-				double rounded = this.matrix[i][j] * 100;
+			for (int j = 0; j < this.breite; j++) {
+				double rounded = this.get(i, j) * 100;
 				rounded -= rounded % 1;
 				rounded /= 100;
 				s += rounded;
 				for (int m = 0; m < maxLength - lengths[i][j]; m++) {
 					s += " ";
 				}
-				if (j != this.matrix[i].length - 1) {
+				if (j != this.breite - 1) {
 					s += ", ";
 				}
 			}
-			if (i != this.matrix.length - 1) {
+			if (i != this.hoehe - 1) {
 				s += "]\n";
 			} else {
 				s += "]]\n";
@@ -254,26 +575,3 @@ public class Matrix implements Serializable {
 		return s;
 	}
 }
-
-class MatrixDimensionException extends RuntimeException {
-	/**
-	 * 
-	 */
-	private static final long serialVersionUID = 1L;
-
-	public MatrixDimensionException() {
-		super();
-	}
-
-	public MatrixDimensionException(String s) {
-		super(s);
-	}
-
-	public MatrixDimensionException(String s, Throwable throwable) {
-		super(s, throwable);
-	}
-
-	public MatrixDimensionException(Throwable throwable) {
-		super(throwable);
-	}
-}
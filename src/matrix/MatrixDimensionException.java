@@ -0,0 +1,24 @@
+package matrix;
+
+class MatrixDimensionException extends RuntimeException {
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public MatrixDimensionException() {
+		super();
+	}
+
+	public MatrixDimensionException(String s) {
+		super(s);
+	}
+
+	public MatrixDimensionException(String s, Throwable throwable) {
+		super(s, throwable);
+	}
+
+	public MatrixDimensionException(Throwable throwable) {
+		super(throwable);
+	}
+}
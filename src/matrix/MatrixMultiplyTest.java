@@ -0,0 +1,149 @@
+package matrix;
+
+import java.util.Random;
+
+/**
+ * Manual correctness check of {@link Matrix#multiply(Matrix)} against the
+ * former naive triple loop on {@code double[][]}.
+ * <p>
+ * Covers the small and the blocked kernel, edge tiles that do not fill a full
+ * micro tile, products with a transposed factor, accumulating products, views
+ * with a row stride, the layer shapes of the XOR, 4BitXOR, Hamming and MNIST
+ * nets and batched products, each sequentially and on the fork/join pool.
+ * The float kernel of {@link FloatMatrix} is checked on the same shapes with
+ * a tolerance for single precision.
+ * Output is to be found on the command line, the exit code is 1 if any
+ * product differs.
+ * </p>
+ * 
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class MatrixMultiplyTest {
+	private static final double EPS = 1e-9;
+	private static final double FLOAT_EPS = 1e-4;
+	private static final Random r = new Random(42);
+	private static int failed = 0;
+
+	public static void main(String[] args) {
+		int[][] shapes = {
+				// m, k, n
+				{ 1, 1, 1 }, { 2, 3, 1 }, { 3, 3, 3 }, { 4, 4, 4 }, { 5, 7, 3 }, { 7, 5, 9 }, { 17, 13, 11 },
+				{ 33, 65, 31 }, { 64, 64, 64 }, { 129, 257, 67 }, { 300, 600, 5 }, { 5, 600, 300 },
+				{ 1, 1000, 1000 }, { 1000, 1000, 1 },
+				// weights * activations per sample: XOR, 4BitXOR, Hamming, MNIST
+				{ 2, 3, 1 }, { 1, 3, 1 }, { 8, 5, 1 }, { 20, 12, 1 }, { 4, 21, 1 }, { 100, 785, 1 }, { 10, 101, 1 },
+				// batched products on MNIST shapes
+				{ 20, 785, 100 }, { 100, 20, 785 }, { 10, 20, 101 }, { 250, 785, 100 },
+				// large enough to be split across the pool
+				{ 61, 300, 200 }, { 1001, 257, 63 } };
+		for (int parallelism : new int[] { 1, 4 }) {
+			Matrix.setParallelism(parallelism);
+			System.out.println("Parallelism " + parallelism + ":");
+			for (int[] s : shapes) {
+				check(s[0], s[1], s[2]);
+				checkFloat(s[0], s[1], s[2]);
+			}
+			checkViews();
+		}
+		if (failed == 0) {
+			System.out.println("All " + shapes.length + " shapes and views passed");
+		} else {
+			System.out.println(failed + " checks failed");
+			System.exit(1);
+		}
+	}
+
+	private static void check(int m, int k, int n) {
+		Matrix a = random(m, k);
+		Matrix b = random(k, n);
+		compare("(" + m + "," + k + ")x(" + k + "," + n + ")", naive(a.getMatrix(), b.getMatrix()), a.multiply(b));
+		Matrix bt = b.transpose();
+		compare("(" + m + "," + k + ")x(" + n + "," + k + ")^T", naive(a.getMatrix(), b.getMatrix()),
+				a.multiplyTransposed(bt));
+		Matrix at = a.transpose();
+		compare("(" + k + "," + m + ")^Tx(" + k + "," + n + ")", naive(a.getMatrix(), b.getMatrix()),
+				at.transposeMultiply(b));
+		Matrix acc = random(m, n);
+		double[][] expected = naive(a.getMatrix(), b.getMatrix());
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				expected[i][j] += acc.get(i, j);
+			}
+		}
+		compare("(" + k + "," + m + ")^Tx(" + k + "," + n + ") accumulated", expected,
+				at.transposeMultiplyAddInto(b, acc));
+	}
+
+	private static void checkFloat(int m, int k, int n) {
+		FloatMatrix a = FloatMatrix.of(random(m, k));
+		FloatMatrix b = FloatMatrix.of(random(k, n));
+		double[][] expected = naive(a.toMatrix().getMatrix(), b.toMatrix().getMatrix());
+		compare("float (" + m + "," + k + ")x(" + k + "," + n + ")", expected, a.multiply(b).toMatrix(), FLOAT_EPS);
+		FloatMatrix bt = FloatMatrix.of(b.toMatrix().transpose());
+		compare("float (" + m + "," + k + ")x(" + n + "," + k + ")^T", expected,
+				a.multiplyTransposedInto(bt, new FloatMatrix(m, n)).toMatrix(), FLOAT_EPS);
+		FloatMatrix at = FloatMatrix.of(a.toMatrix().transpose());
+		compare("float (" + k + "," + m + ")^Tx(" + k + "," + n + ") accumulated", expected,
+				at.transposeMultiplyAddInto(b, new FloatMatrix(m, n)).toMatrix(), FLOAT_EPS);
+	}
+
+	private static void checkViews() {
+		Matrix big = random(90, 120);
+		Matrix a = big.view(3, 37, 5, 71);
+		Matrix b = big.view(10, 71, 40, 43);
+		compare("views", naive(a.getMatrix(), b.getMatrix()), a.multiply(b));
+		Matrix col = big.view(0, 71, 7, 1);
+		compare("column view", naive(a.getMatrix(), col.getMatrix()), a.multiply(col));
+		Matrix t = big.view(2, 50, 1, 60).transpose().view(0, 60, 0, 37);
+		Matrix c = a.view(0, 37, 0, 9);
+		compare("transposed view", naive(t.getMatrix(), c.getMatrix()), t.multiply(c));
+	}
+
+	private static void compare(String name, double[][] expected, Matrix actual) {
+		compare(name, expected, actual, EPS);
+	}
+
+	private static void compare(String name, double[][] expected, Matrix actual, double eps) {
+		double maxDiff = 0;
+		for (int i = 0; i < expected.length; i++) {
+			for (int j = 0; j < expected[i].length; j++) {
+				double scale = Math.max(1, Math.abs(expected[i][j]));
+				maxDiff = Math.max(maxDiff, Math.abs(expected[i][j] - actual.get(i, j)) / scale);
+			}
+		}
+		boolean ok = actual.hoehe == expected.length && maxDiff < eps;
+		if (!ok) {
+			failed++;
+		}
+		System.out.println((ok ? "ok     " : "FAILED ") + name + " max relative difference " + maxDiff);
+	}
+
+	private static Matrix random(int hoehe, int breite) {
+		Matrix m = new Matrix(hoehe, breite);
+		for (int i = 0; i < hoehe; i++) {
+			for (int j = 0; j < breite; j++) {
+				m.set(i, j, r.nextGaussian());
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * The multiplication as it was before the blocked kernel
+	 */
+	private static double[][] naive(double[][] a, double[][] b) {
+		double[][] resM = new double[a.length][b[0].length];
+		for (int i = 0; i < a.length; i++) {
+			double[] arr1 = a[i];
+			for (int k = 0; k < b[0].length; k++) {
+				double sum = 0;
+				for (int j = 0; j < arr1.length; j++) {
+					sum += arr1[j] * b[j][k];
+				}
+				resM[i][k] = sum;
+			}
+		}
+		return resM;
+	}
+}
@@ -0,0 +1,255 @@
+package matrix;
+
+/**
+ * Plain loops, the fallback if the Vector API is not available
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+final class ScalarKernels extends Kernels {
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public void add(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int length) {
+		for (int i = 0; i < length; i++) {
+			c[cOff + i] = a[aOff + i] + b[bOff + i];
+		}
+	}
+
+	@Override
+	public void scale(double alpha, double[] a, int aOff, double[] c, int cOff, int length) {
+		for (int i = 0; i < length; i++) {
+			c[cOff + i] = a[aOff + i] * alpha;
+		}
+	}
+
+	@Override
+	public void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length) {
+		for (int i = 0; i < length; i++) {
+			y[yOff + i] += alpha * x[xOff + i];
+		}
+	}
+
+	@Override
+	public double dot(double[] a, int aOff, double[] b, int bOff, int length) {
+		double sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += a[aOff + i] * b[bOff + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void sigmoid(double[] in, int inOff, double[] out, int outOff, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOff + i] = 1 / (1 + Math.exp(-in[inOff + i]));
+		}
+	}
+
+	@Override
+	public void sigmoidDerivative(double[] in, int inOff, double[] out, int outOff, int length) {
+		for (int i = 0; i < length; i++) {
+			double s = 1 / (1 + Math.exp(-in[inOff + i]));
+			out[outOff + i] = s * (1 - s);
+		}
+	}
+
+	@Override
+	public void tanh(double[] in, int inOff, double[] out, int outOff, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOff + i] = 2 * (1 / (1 + Math.exp(-in[inOff + i]))) - 1;
+		}
+	}
+
+	@Override
+	public void tanhDerivative(double[] in, int inOff, double[] out, int outOff, int length) {
+		for (int i = 0; i < length; i++) {
+			double t = 2 * (1 / (1 + Math.exp(-in[inOff + i]))) - 1;
+			out[outOff + i] = 1 - t * t;
+		}
+	}
+
+	@Override
+	public void relu(double[] in, int inOff, double[] out, int outOff, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOff + i] = Math.max(0, in[inOff + i]);
+		}
+	}
+
+	@Override
+	public void reluDerivative(double[] in, int inOff, double[] out, int outOff, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOff + i] = in[inOff + i] < 0 ? 0.0 : 1.0;
+		}
+	}
+
+	@Override
+	void microKernel(int kb, double[] ap, int ai, double[] bp, int bi, double[] c, int ci, int cRs,
+			int rows, int cols) {
+		double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+		double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+		double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+		double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+		for (int p = 0; p < kb; p++) {
+			double a0 = ap[ai];
+			double a1 = ap[ai + 1];
+			double a2 = ap[ai + 2];
+			double a3 = ap[ai + 3];
+			double b0 = bp[bi];
+			double b1 = bp[bi + 1];
+			double b2 = bp[bi + 2];
+			double b3 = bp[bi + 3];
+			c00 += a0 * b0;
+			c01 += a0 * b1;
+			c02 += a0 * b2;
+			c03 += a0 * b3;
+			c10 += a1 * b0;
+			c11 += a1 * b1;
+			c12 += a1 * b2;
+			c13 += a1 * b3;
+			c20 += a2 * b0;
+			c21 += a2 * b1;
+			c22 += a2 * b2;
+			c23 += a2 * b3;
+			c30 += a3 * b0;
+			c31 += a3 * b1;
+			c32 += a3 * b2;
+			c33 += a3 * b3;
+			ai += Gemm.MR;
+			bi += Gemm.NR;
+		}
+		if (rows == Gemm.MR && cols == Gemm.NR) {
+			c[ci] += c00;
+			c[ci + 1] += c01;
+			c[ci + 2] += c02;
+			c[ci + 3] += c03;
+			ci += cRs;
+			c[ci] += c10;
+			c[ci + 1] += c11;
+			c[ci + 2] += c12;
+			c[ci + 3] += c13;
+			ci += cRs;
+			c[ci] += c20;
+			c[ci + 1] += c21;
+			c[ci + 2] += c22;
+			c[ci + 3] += c23;
+			ci += cRs;
+			c[ci] += c30;
+			c[ci + 1] += c31;
+			c[ci + 2] += c32;
+			c[ci + 3] += c33;
+			return;
+		}
+		// Edge tile
+		addRow(c, ci, cols, c00, c01, c02, c03);
+		if (rows > 1) {
+			addRow(c, ci + cRs, cols, c10, c11, c12, c13);
+		}
+		if (rows > 2) {
+			addRow(c, ci + 2 * cRs, cols, c20, c21, c22, c23);
+		}
+		if (rows > 3) {
+			addRow(c, ci + 3 * cRs, cols, c30, c31, c32, c33);
+		}
+	}
+
+	private static void addRow(double[] c, int ci, int cols, double v0, double v1, double v2, double v3) {
+		c[ci] += v0;
+		if (cols > 1) {
+			c[ci + 1] += v1;
+		}
+		if (cols > 2) {
+			c[ci + 2] += v2;
+		}
+		if (cols > 3) {
+			c[ci + 3] += v3;
+		}
+	}
+
+	@Override
+	void microKernel(int kb, float[] ap, int ai, float[] bp, int bi, float[] c, int ci, int cRs,
+			int rows, int cols) {
+		float c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+		float c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+		float c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+		float c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+		for (int p = 0; p < kb; p++) {
+			float a0 = ap[ai];
+			float a1 = ap[ai + 1];
+			float a2 = ap[ai + 2];
+			float a3 = ap[ai + 3];
+			float b0 = bp[bi];
+			float b1 = bp[bi + 1];
+			float b2 = bp[bi + 2];
+			float b3 = bp[bi + 3];
+			c00 += a0 * b0;
+			c01 += a0 * b1;
+			c02 += a0 * b2;
+			c03 += a0 * b3;
+			c10 += a1 * b0;
+			c11 += a1 * b1;
+			c12 += a1 * b2;
+			c13 += a1 * b3;
+			c20 += a2 * b0;
+			c21 += a2 * b1;
+			c22 += a2 * b2;
+			c23 += a2 * b3;
+			c30 += a3 * b0;
+			c31 += a3 * b1;
+			c32 += a3 * b2;
+			c33 += a3 * b3;
+			ai += Gemm.MR;
+			bi += Gemm.NR;
+		}
+		if (rows == Gemm.MR && cols == Gemm.NR) {
+			c[ci] += c00;
+			c[ci + 1] += c01;
+			c[ci + 2] += c02;
+			c[ci + 3] += c03;
+			ci += cRs;
+			c[ci] += c10;
+			c[ci + 1] += c11;
+			c[ci + 2] += c12;
+			c[ci + 3] += c13;
+			ci += cRs;
+			c[ci] += c20;
+			c[ci + 1] += c21;
+			c[ci + 2] += c22;
+			c[ci + 3] += c23;
+			ci += cRs;
+			c[ci] += c30;
+			c[ci + 1] += c31;
+			c[ci + 2] += c32;
+			c[ci + 3] += c33;
+			return;
+		}
+		// Edge tile
+		addRow(c, ci, cols, c00, c01, c02, c03);
+		if (rows > 1) {
+			addRow(c, ci + cRs, cols, c10, c11, c12, c13);
+		}
+		if (rows > 2) {
+			addRow(c, ci + 2 * cRs, cols, c20, c21, c22, c23);
+		}
+		if (rows > 3) {
+			addRow(c, ci + 3 * cRs, cols, c30, c31, c32, c33);
+		}
+	}
+
+	private static void addRow(float[] c, int ci, int cols, float v0, float v1, float v2, float v3) {
+		c[ci] += v0;
+		if (cols > 1) {
+			c[ci + 1] += v1;
+		}
+		if (cols > 2) {
+			c[ci + 2] += v2;
+		}
+		if (cols > 3) {
+			c[ci + 3] += v3;
+		}
+	}
+}
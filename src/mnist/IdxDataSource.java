@@ -0,0 +1,63 @@
+package mnist;
+
+import backpropagation.DataSource;
+
+/**
+ * {@link DataSource} decoding images and one-hot labels from two memory
+ * mapped {@link IdxFile}s on demand, so the set is never on the heap as a
+ * whole.
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class IdxDataSource implements DataSource {
+	private final IdxFile images;
+	private final IdxFile labels;
+	private final double scale;
+	private final int classes;
+
+	/**
+	 * @param scale
+	 *            factor the pixels are decoded with
+	 * @param classes
+	 *            length of the one-hot labels
+	 */
+	public IdxDataSource(IdxFile images, IdxFile labels, double scale, int classes) {
+		if (images.size() != labels.size()) {
+			throw new IllegalArgumentException("Images and labels do not have the same amount of rows!");
+		}
+		this.images = images;
+		this.labels = labels;
+		this.scale = scale;
+		this.classes = classes;
+	}
+
+	@Override
+	public int size() {
+		return this.images.size();
+	}
+
+	@Override
+	public int inputSize() {
+		return this.images.rowLength();
+	}
+
+	@Override
+	public int labelSize() {
+		return this.classes;
+	}
+
+	@Override
+	public void fetch(int row, double[] input, int inputOffset, double[] label, int labelOffset) {
+		this.images.decodeRow(row, this.scale, input, inputOffset);
+		this.labels.decodeOneHot(row, this.classes, label, labelOffset);
+	}
+
+	/**
+	 * Checksum of the raw files, much faster than decoding every sample
+	 */
+	@Override
+	public long checksum() {
+		return (31 * this.images.checksum() + this.labels.checksum()) & 0xffffffffL;
+	}
+}
@@ -0,0 +1,218 @@
+package mnist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import matrix.Matrix;
+
+/**
+ * Memory mapped IDX file of unsigned bytes, the format of the MNIST images and
+ * labels.
+ * <p>
+ * The file is mapped read-only, so the raw bytes stay off the heap in the page
+ * cache and are only paged in when they are read. A file of n items of shape
+ * (d1, ..., dk) is seen as n rows of d1 * ... * dk bytes; rows are decoded on
+ * demand into doubles, e.g. into the reused buffer of a mini-batch. Reading
+ * only uses absolute positions, so one file can be decoded from several
+ * threads at once.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class IdxFile {
+	private static final int UNSIGNED_BYTE = 0x08;
+
+	private final ByteBuffer bytes;
+	private final int[] dimensions;
+	private final int rows;
+	private final int rowLength;
+	private final int dataOffset;
+
+	/**
+	 * Maps the file at path
+	 *
+	 * @throws IOException
+	 *             if the file can not be read or is no IDX file of unsigned
+	 *             bytes
+	 */
+	public IdxFile(String path) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(path + " is too large to be mapped");
+			}
+			// The mapping stays valid after the channel is closed
+			this.bytes = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (this.bytes.capacity() < 4) {
+			throw new IOException(path + " is no IDX file");
+		}
+		int magicNumber = this.bytes.getInt(0);
+		if ((magicNumber >>> 16) != 0 || ((magicNumber >>> 8) & 0xff) != UNSIGNED_BYTE) {
+			throw new IOException(path + " is no IDX file of unsigned bytes, magic number " + magicNumber);
+		}
+		int k = magicNumber & 0xff;
+		this.dataOffset = 4 + 4 * k;
+		if (k == 0 || this.bytes.capacity() < this.dataOffset) {
+			throw new IOException(path + " has an incomplete header");
+		}
+		this.dimensions = new int[k];
+		long rowLength = 1;
+		for (int i = 0; i < k; i++) {
+			this.dimensions[i] = this.bytes.getInt(4 + 4 * i);
+			if (this.dimensions[i] < 0) {
+				throw new IOException(path + " has a negative dimension");
+			}
+			if (i > 0) {
+				rowLength *= this.dimensions[i];
+			}
+		}
+		this.rows = this.dimensions[0];
+		if (this.dataOffset + this.rows * rowLength > this.bytes.capacity()) {
+			throw new IOException(path + " is shorter than its header says");
+		}
+		this.rowLength = (int) rowLength;
+	}
+
+	/**
+	 * @return the amount of items, the first dimension
+	 */
+	public int size() {
+		return this.rows;
+	}
+
+	/**
+	 * @return the amount of bytes of an item, the product of the other
+	 *         dimensions
+	 */
+	public int rowLength() {
+		return this.rowLength;
+	}
+
+	public int[] getDimensions() {
+		return Arrays.copyOf(this.dimensions, this.dimensions.length);
+	}
+
+	/**
+	 * @return CRC32 of the whole file
+	 */
+	public long checksum() {
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[1 << 16];
+		ByteBuffer b = this.bytes.duplicate();
+		b.clear();
+		while (b.hasRemaining()) {
+			int n = Math.min(chunk.length, b.remaining());
+			b.get(chunk, 0, n);
+			crc.update(chunk, 0, n);
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * @return the unsigned byte at (row, column)
+	 */
+	public int get(int row, int column) {
+		if (row < 0 || row >= this.rows || column < 0 || column >= this.rowLength) {
+			throw new IndexOutOfBoundsException("(" + row + ", " + column + ") outside of " + this.rows + "x"
+					+ this.rowLength);
+		}
+		return this.bytes.get(this.dataOffset + row * this.rowLength + column) & 0xff;
+	}
+
+	/**
+	 * Decodes row times scale into dest, starting at offset
+	 */
+	public void decodeRow(int row, double scale, double[] dest, int offset) {
+		if (row < 0 || row >= this.rows) {
+			throw new IndexOutOfBoundsException("Row " + row + " outside of " + this.rows + " rows");
+		}
+		int start = this.dataOffset + row * this.rowLength;
+		for (int j = 0; j < this.rowLength; j++) {
+			dest[offset + j] = (this.bytes.get(start + j) & 0xff) * scale;
+		}
+	}
+
+	/**
+	 * Decodes the rows indices[from], ..., indices[from + dest.hoehe - 1]
+	 * times scale into the rows of dest, like
+	 * {@link Matrix#gatherRowsInto(int[], int, Matrix)}
+	 */
+	public Matrix decodeRowsInto(int[] indices, int from, double scale, Matrix dest) {
+		if (dest.breite != this.rowLength || from + dest.hoehe > indices.length) {
+			throw new IllegalArgumentException("Destination does not fit " + dest.hoehe + " rows of width "
+					+ this.rowLength);
+		}
+		for (int i = 0; i < dest.hoehe; i++) {
+			this.decodeRow(indices[from + i], scale, dest.getData(), dest.getOffset() + i * dest.getStride());
+		}
+		return dest;
+	}
+
+	/**
+	 * Decodes the rows from, ..., from + dest.hoehe - 1 times scale into the
+	 * rows of dest
+	 */
+	public Matrix decodeRowsInto(int from, double scale, Matrix dest) {
+		if (dest.breite != this.rowLength || from < 0 || from + dest.hoehe > this.rows) {
+			throw new IllegalArgumentException("Rows " + from + " to " + (from + dest.hoehe) + " of width "
+					+ this.rowLength + " do not fit");
+		}
+		for (int i = 0; i < dest.hoehe; i++) {
+			this.decodeRow(from + i, scale, dest.getData(), dest.getOffset() + i * dest.getStride());
+		}
+		return dest;
+	}
+
+	/**
+	 * Writes the single byte of row as one-hot vector of length classes into
+	 * dest, starting at offset. Used for label files.
+	 */
+	public void decodeOneHot(int row, int classes, double[] dest, int offset) {
+		int label = this.get(row, 0);
+		if (this.rowLength != 1 || label >= classes) {
+			throw new IllegalArgumentException("Row " + row + " is no label below " + classes);
+		}
+		Arrays.fill(dest, offset, offset + classes, 0);
+		dest[offset + label] = 1;
+	}
+
+	/**
+	 * One-hot version of {@link #decodeRowsInto(int[], int, double, Matrix)}
+	 * for label files, dest has classes columns
+	 */
+	public Matrix decodeOneHotRowsInto(int[] indices, int from, Matrix dest) {
+		if (from + dest.hoehe > indices.length) {
+			throw new IllegalArgumentException("Destination does not fit " + dest.hoehe + " rows");
+		}
+		for (int i = 0; i < dest.hoehe; i++) {
+			this.decodeOneHot(indices[from + i], dest.breite, dest.getData(),
+					dest.getOffset() + i * dest.getStride());
+		}
+		return dest;
+	}
+
+	/**
+	 * @return all rows times scale in a new matrix
+	 */
+	public Matrix toMatrix(double scale) {
+		return this.decodeRowsInto(0, scale, new Matrix(this.rows, this.rowLength));
+	}
+
+	/**
+	 * @return all labels as one-hot rows of length classes in a new matrix
+	 */
+	public Matrix toOneHotMatrix(int classes) {
+		Matrix m = new Matrix(this.rows, classes);
+		for (int i = 0; i < this.rows; i++) {
+			this.decodeOneHot(i, classes, m.getData(), i * classes);
+		}
+		return m;
+	}
+}
@@ -1,99 +1,149 @@
 package mnist;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 import matrix.Matrix;
 
+/**
+ * Maps the four MNIST IDX files and decodes them on demand.
+ * <p>
+ * Constructing the reader only maps the files, the pixels stay as raw bytes
+ * off the heap. The whole sets are only decoded into matrices when one of the
+ * getters is called, otherwise rows can be decoded straight into the buffers
+ * of a batch through the {@link IdxFile}s. Pixels are decoded with
+ * {@link #PIXEL_SCALE}.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
 public class MnistDataReader {
-	Matrix trainD;
-	Matrix trainL;
-	Matrix testD;
-	Matrix testL;
+	/**
+	 * Factor pixels are decoded with. The saved MNIST nets were trained on
+	 * the raw values 0 to 255, so they are not normalised.
+	 */
+	public static final double PIXEL_SCALE = 1;
+	public static final int CLASSES = 10;
+
+	private final IdxFile trainImages;
+	private final IdxFile trainLabelFile;
+	private final IdxFile testImages;
+	private final IdxFile testLabelFile;
+	private final IdxDataSource trainSource;
+	private final IdxDataSource testSource;
+	private Matrix trainD;
+	private Matrix trainL;
+	private Matrix testD;
+	private Matrix testL;
 
 	public MnistDataReader(String relative_path) {
-		this.trainD = this.readData(relative_path + "train-images.idx3-ubyte");
-		this.trainL = this.readLabel(relative_path + "train-labels.idx1-ubyte");
-		this.testD = this.readData(relative_path + "t10k-images.idx3-ubyte");
-		this.testL = this.readLabel(relative_path + "t10k-labels.idx1-ubyte");
+		this.trainImages = map(relative_path + "train-images.idx3-ubyte");
+		this.trainLabelFile = map(relative_path + "train-labels.idx1-ubyte");
+		this.testImages = map(relative_path + "t10k-images.idx3-ubyte");
+		this.testLabelFile = map(relative_path + "t10k-labels.idx1-ubyte");
+		this.trainSource = new IdxDataSource(this.trainImages, this.trainLabelFile, PIXEL_SCALE, CLASSES);
+		this.testSource = new IdxDataSource(this.testImages, this.testLabelFile, PIXEL_SCALE, CLASSES);
 	}
 
-	public Matrix readLabel(String path) {
-		DataInputStream diS = null;
+	private static IdxFile map(String path) {
 		try {
-			File file = new File(path);
-			diS = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
-			int magicNumber = diS.readInt();
-			if (magicNumber != 2049) {
-				throw new IOException("magic number not 2049");
-			}
-			int labels = diS.readInt();
-			double[][] labelM = new double[labels][10];
-			for (int i = 0; i < labels; i++) {
-				double[] labelRow = new double[10];
-				int label = (int) (diS.readUnsignedByte());
-				for (int j = 0; j < 10; j++) {
-					labelRow[j] = 0;
-				}
-				labelRow[label] = 1;
-				labelM[i] = labelRow;
+			return new IdxFile(path);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not map " + path, e);
+		}
+	}
+
+	public IdxFile getTrainImages() {
+		return this.trainImages;
+	}
+
+	public IdxFile getTrainLabelFile() {
+		return this.trainLabelFile;
+	}
 
+	public IdxFile getTestImages() {
+		return this.testImages;
+	}
+
+	public IdxFile getTestLabelFile() {
+		return this.testLabelFile;
+	}
+
+	/**
+	 * @return the train set, decoded batch by batch from the mapped files
+	 */
+	public IdxDataSource getTrainSource() {
+		return this.trainSource;
+	}
+
+	public IdxDataSource getTestSource() {
+		return this.testSource;
+	}
+
+	/**
+	 * @return the decoded train images, decoded on the first call
+	 */
+	public synchronized Matrix getTrainData() {
+		if (this.trainD == null) {
+			this.trainD = this.trainImages.toMatrix(PIXEL_SCALE);
+		}
+		return this.trainD;
+	}
+
+	public synchronized Matrix getTrainLabels() {
+		if (this.trainL == null) {
+			this.trainL = this.trainLabelFile.toOneHotMatrix(CLASSES);
+		}
+		return this.trainL;
+	}
+
+	public synchronized Matrix getTestData() {
+		if (this.testD == null) {
+			this.testD = this.testImages.toMatrix(PIXEL_SCALE);
+		}
+		return this.testD;
+	}
+
+	public synchronized Matrix getTestLabels() {
+		if (this.testL == null) {
+			this.testL = this.testLabelFile.toOneHotMatrix(CLASSES);
+		}
+		return this.testL;
+	}
+
+	/**
+	 * @return the heap memory of the matrices decoded so far, the mapped
+	 *         files are not counted
+	 */
+	public synchronized long decodedBytes() {
+		long bytes = 0;
+		for (Matrix m : new Matrix[] { this.trainD, this.trainL, this.testD, this.testL }) {
+			if (m != null) {
+				bytes += 8L * m.hoehe * m.breite;
 			}
-			Matrix res = new Matrix(labels, 10);
-			res.setMatrix(labelM);
-			return res;
+		}
+		return bytes;
+	}
+
+	public Matrix readLabel(String path) {
+		try {
+			return new IdxFile(path).toOneHotMatrix(CLASSES);
 		} catch (IOException e) {
 			e.printStackTrace();
-		} finally {
-			try {
-				diS.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
 		}
 		return null;
 	}
 
 	public Matrix readData(String path) {
-		DataInputStream diS = null;
 		try {
-			File file = new File(path);
-			diS = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
-			int magicNumber = diS.readInt();
-			if (magicNumber != 2051) {
-				throw new IOException("magic number not 2049");
-			}
-			int numImages = diS.readInt();
-			int height = diS.readInt();
-			int width = diS.readInt();
-			if (height != 28 || width != 28) {
+			IdxFile file = new IdxFile(path);
+			if (file.rowLength() != 28 * 28) {
 				throw new IOException("Width or height does not match");
 			}
-			double[][] data = new double[numImages][width * height];
-			for (int i = 0; i < numImages; i++) {
-				double[] dataRow = new double[width * height];
-				for (int j = 0; j < height; j++) {
-					for (int k = 0; k < width; k++) {
-						dataRow[j * height + k] = diS.readUnsignedByte();
-					}
-				}
-
-				data[i] = dataRow;
-			}
-			Matrix res = new Matrix(numImages, height * width);
-			res.setMatrix(data);
-			return res;
+			return file.toMatrix(PIXEL_SCALE);
 		} catch (IOException e) {
 			e.printStackTrace();
-		} finally {
-			try {
-				diS.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
 		}
 		return null;
 	}
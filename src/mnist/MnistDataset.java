@@ -1,10 +1,14 @@
 package mnist;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import backpropagation.DataSource;
 import backpropagation.Dataset;
+import ea.CheckpointWriter;
 import matrix.Matrix;
+import neuralnet.Evaluation;
 import neuralnet.NeuralNet;
 import processing.core.PApplet;
 
@@ -12,7 +16,6 @@ public class MnistDataset implements Dataset {
 	MnistDataReader mr;
 
 	public MnistDataset() {
-		// TODO
 		String path = "./";
 		mr = new MnistDataReader(path);
 
@@ -30,35 +33,26 @@ public class MnistDataset implements Dataset {
 		 * new NeuralNet(784,10,hiddenNeurons,activationFunctions);
 		 */
 
-		NeuralNet nn = (NeuralNet) ea.ObjectLoader.loadObject("mnistclassifier02.nn");
-		// train(500,nn,"mnistclassifier03.nn");
+		NeuralNet nn = ea.ModelLoader.loadModel("mnistclassifier02.nn");
+		// train(500,nn,"mnistclassifier03.nnb");
 		visualize(nn);
 
 	}
 
 	public static void train(int epochs, NeuralNet nn, String path) {
 		MnistDataReader mnr = new MnistDataReader("./");
-		for (int i = 0; i < epochs; i++) {
-			int correct = 0;
-			int insg = mnr.testD.hoehe;
-			for (int j = 0; j < insg; j++) {
-				Matrix res = nn.feedForward(mnr.testD.getMatrix()[j]);
-				double max = -1;
-				int mI = -1;
-				for (int m = 0; m < 10; m++) {
-					double vergleich = res.getMatrix()[m][0];
-					if (vergleich > max) {
-						max = vergleich;
-						mI = m;
-					}
-				}
-				if (mnr.testL.getMatrix()[j][mI] == 1) {
-					correct++;
-				}
+		// Checkpoints are written in the background, the last three are kept
+		try (CheckpointWriter checkpoints = new CheckpointWriter(path, CheckpointWriter.DEFAULT_KEEP)) {
+			for (int i = 0; i < epochs; i++) {
+				Evaluation e = nn.evaluateAll(DataSource.of(mnr.getTestData(), mnr.getTestLabels()));
+				System.out.println("Classification rate in Epoch " + i + ": " + e.getAccuracy() + ", log-loss: "
+						+ e.getLogLoss());
+				nn.SGD(mnr.getTrainData(), mnr.getTrainLabels(), mnr.getTestData(), mnr.getTestLabels(), 20, 1, 2,
+						0.01, 4, false);
+				checkpoints.save(nn);
 			}
-			System.out.println("Classification rate in Epoch " + i + ": " + (correct + 0.0) / insg);
-			nn.SGD(mnr.trainD, mnr.trainL, mnr.testD, mnr.testL, 20, 1, 2, 0.01, 4, false);
-			ea.ObjectWriter.saveObject(path, nn);
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 	}
 
@@ -68,15 +62,15 @@ public class MnistDataset implements Dataset {
 		List<double[]> inputs = new ArrayList<>();
 		List<Double> certainity = new ArrayList<>();
 		List<Integer> prediction = new ArrayList<>();
-		int insg = mnr.testD.hoehe;
+		int insg = mnr.getTestData().hoehe;
+		Matrix outputs = nn.feedForwardBatch(mnr.getTestData());
 		for (int j = 0; j < insg; j++) {
-			inputs.add(mnr.testD.getMatrix()[j]);
-			labels.add((int) mnr.testL.getMatrix()[j][0]);
-			Matrix res = nn.feedForward(mnr.testD.getMatrix()[j]);
+			inputs.add(mnr.getTestData().getRow(j));
+			labels.add((int) mnr.getTestLabels().get(j, 0));
 			double max = -1;
 			int mI = -1;
 			for (int m = 0; m < 10; m++) {
-				double vergleich = res.getMatrix()[m][0];
+				double vergleich = outputs.get(j, m);
 				if (vergleich > max) {
 					max = vergleich;
 					mI = m;
@@ -91,21 +85,36 @@ public class MnistDataset implements Dataset {
 
 	@Override
 	public Matrix getTrainData() {
-		return mr.trainD;
+		return mr.getTrainData();
 	}
 
 	@Override
 	public Matrix getTrainLabels() {
-		return mr.trainL;
+		return mr.getTrainLabels();
 	}
 
 	@Override
 	public Matrix getTestData() {
-		return mr.testD;
+		return mr.getTestData();
 	}
 
 	@Override
 	public Matrix getTestLabels() {
-		return mr.testL;
+		return mr.getTestLabels();
+	}
+
+	@Override
+	public DataSource getTrainSource() {
+		return mr.getTrainSource();
+	}
+
+	@Override
+	public DataSource getTestSource() {
+		return mr.getTestSource();
+	}
+
+	@Override
+	public long estimatedBytes() {
+		return mr.decodedBytes();
 	}
 }
@@ -2,11 +2,42 @@ package neuralnet;
 
 import java.io.Serializable;
 
+/**
+ * Activation function of a layer.
+ * <p>
+ * An activator is applied on whole arrays without boxing. Most activators act
+ * on every neuron separately and extend {@link ElementWiseActivator}, which
+ * adds the scalar methods. Others like {@link Softmax} depend on the whole
+ * layer and only have the array methods. The float overloads serve
+ * {@link FloatNeuralNet} and compute in double precision as well.
+ * </p>
+ */
 public abstract class Activator implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
-	public abstract double transform(double x);
+	/**
+	 * @return whether every neuron only depends on its own input. Activators
+	 *         that are not treat the range of the array methods as one layer
+	 *         and are applied row by row.
+	 */
+	public boolean isElementWise() {
+		return false;
+	}
 
-	public abstract double transformDerivative(double x);
+	public void transform(double[] in, double[] out) {
+		this.transform(in, 0, out, 0, in.length);
+	}
+
+	public abstract void transform(double[] in, int inOffset, double[] out, int outOffset, int length);
+
+	public void transformDerivative(double[] in, double[] out) {
+		this.transformDerivative(in, 0, out, 0, in.length);
+	}
+
+	public abstract void transformDerivative(double[] in, int inOffset, double[] out, int outOffset, int length);
+
+	public abstract void transform(float[] in, int inOffset, float[] out, int outOffset, int length);
+
+	public abstract void transformDerivative(float[] in, int inOffset, float[] out, int outOffset, int length);
 }
@@ -0,0 +1,50 @@
+package neuralnet;
+
+import matrix.Matrix;
+
+/**
+ * Adam: running means of the gradient and of its square, corrected for their
+ * start at zero, scale the step of every weight on its own
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class Adam extends Optimizer {
+	private static final long serialVersionUID = 1L;
+
+	public Adam() {
+		this(0.9, 0.999, 1e-8);
+	}
+
+	public Adam(double beta1, double beta2, double epsilon) {
+		super(2, beta1, beta2, epsilon);
+	}
+
+	@Override
+	public String getName() {
+		return "Adam";
+	}
+
+	@Override
+	protected void update(Matrix weights, Matrix gradients, Matrix[] state, double learning_rate, int samples,
+			long step) {
+		double beta1 = this.parameters[0];
+		double beta2 = this.parameters[1];
+		double epsilon = this.parameters[2];
+		double scale = 1.0 / samples;
+		// Bias correction of both moments folded into the step size
+		double alpha = learning_rate * Math.sqrt(1 - Math.pow(beta2, step)) / (1 - Math.pow(beta1, step));
+		double[] w = weights.getData();
+		double[] g = gradients.getData();
+		double[] m = state[0].getData();
+		double[] v = state[1].getData();
+		int wo = weights.getOffset();
+		int go = gradients.getOffset();
+		for (int i = 0, n = weights.hoehe * weights.breite; i < n; i++) {
+			double d = scale * g[go + i];
+			m[i] = beta1 * m[i] + (1 - beta1) * d;
+			v[i] = beta2 * v[i] + (1 - beta2) * d * d;
+			w[wo + i] -= alpha * m[i] / (Math.sqrt(v[i]) + epsilon);
+		}
+	}
+}
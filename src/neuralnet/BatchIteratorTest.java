@@ -0,0 +1,253 @@
+package neuralnet;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import backpropagation.DataSource;
+import backpropagation.MatrixDataSource;
+import matrix.Matrix;
+
+/**
+ * Manual correctness check of the mini-batches of {@link MiniBatchIterator},
+ * {@link BatchPrefetcher} and {@link TrainingBatches}.
+ * <p>
+ * Covers every sample being used exactly once per epoch, with its own label
+ * and a short final batch, for the prefetcher both on a producer thread and
+ * on the training thread, skipping the rest of an epoch without fetching it,
+ * failures of the data source and {@link BatchPrefetcher#close()} during an
+ * epoch. Output is to be found on the command line, the exit code is 1 if any
+ * check fails.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class BatchIteratorTest {
+	private static final int SAMPLES = 23;
+	private static final int BATCH = 5;
+	private static final Random r = new Random(42);
+	private static int failed = 0;
+
+	public static void main(String[] args) throws InterruptedException {
+		checkMiniBatchIterator();
+		checkPrefetcher(false);
+		checkPrefetcher(true);
+		checkSkip();
+		checkFailure(false);
+		checkFailure(true);
+		checkClose();
+		Matrix samples = counting(SAMPLES).inputs();
+		checkTrainingBatches(new MatrixDataSource(samples, samples), "in memory");
+		checkTrainingBatches(counting(SAMPLES), "streamed");
+		if (failed == 0) {
+			System.out.println("All checks passed");
+		} else {
+			System.out.println(failed + " checks failed");
+			System.exit(1);
+		}
+	}
+
+	private static void checkMiniBatchIterator() {
+		MiniBatchIterator it = new MiniBatchIterator(counting(SAMPLES), BATCH, true, r);
+		for (int epoch = 0; epoch < 3; epoch++) {
+			if (epoch > 0) {
+				it.nextEpoch();
+			}
+			check("MiniBatchIterator epoch " + epoch, epoch(it, SAMPLES, BATCH));
+		}
+	}
+
+	private static void checkPrefetcher(boolean background) {
+		String mode = background ? " in the background" : " on the training thread";
+		BatchPrefetcher prefetcher = new BatchPrefetcher(counting(SAMPLES), BATCH, 2, r, background);
+		prefetcher.start(3);
+		for (int epoch = 0; epoch < 3; epoch++) {
+			if (epoch > 0) {
+				prefetcher.nextEpoch();
+			}
+			check("BatchPrefetcher epoch " + epoch + mode, epoch(prefetcher, SAMPLES, BATCH));
+		}
+		prefetcher.nextEpoch();
+		check("BatchPrefetcher ends after its epochs" + mode, !prefetcher.hasNext());
+		prefetcher.close();
+	}
+
+	/**
+	 * Skipping the rest of a large epoch may not fetch it
+	 */
+	private static void checkSkip() {
+		Counting source = counting(1000);
+		BatchPrefetcher prefetcher = new BatchPrefetcher(source, 10, 2, r, true);
+		prefetcher.start(2);
+		prefetcher.next();
+		prefetcher.next();
+		prefetcher.nextEpoch();
+		boolean ok = epoch(prefetcher, 1000, 10);
+		prefetcher.close();
+		// At most the batches taken, the ones in the ring and the one being
+		// fetched of the skipped epoch
+		int skipped = source.fetched.get() - 1000;
+		check("skipped epoch is not fetched", ok && skipped <= 10 * (2 + 2 + 1), skipped);
+	}
+
+	/**
+	 * Every call after the data source failed has to throw, not block
+	 */
+	private static void checkFailure(boolean background) throws InterruptedException {
+		String mode = background ? " in the background" : " on the training thread";
+		Counting source = counting(SAMPLES);
+		source.failAt = 12;
+		BatchPrefetcher prefetcher = new BatchPrefetcher(source, BATCH, 2, r, background);
+		prefetcher.start(1);
+		int[] thrown = new int[1];
+		Thread training = new Thread(() -> {
+			for (int i = 0; i < 3; i++) {
+				try {
+					while (prefetcher.hasNext()) {
+						prefetcher.next();
+					}
+				} catch (RuntimeException e) {
+					thrown[0]++;
+				}
+			}
+		});
+		training.start();
+		training.join(5000);
+		check("every call after a failure throws" + mode, !training.isAlive() && thrown[0] == 3, thrown[0]);
+		prefetcher.close();
+	}
+
+	private static void checkClose() throws InterruptedException {
+		BatchPrefetcher prefetcher = new BatchPrefetcher(counting(1000), 10, 2, r, true);
+		prefetcher.start(5);
+		prefetcher.next();
+		prefetcher.next();
+		prefetcher.close();
+		check("close during an epoch stops the producer", !producerAlive());
+		check("closed prefetcher has no batches", !prefetcher.hasNext());
+		prefetcher.start(1);
+		check("restarted prefetcher uses every sample once", epoch(prefetcher, 1000, 10));
+		prefetcher.close();
+	}
+
+	private static void checkTrainingBatches(DataSource source, String name) {
+		TrainingBatches batches = new TrainingBatches(source, BATCH, 3);
+		boolean ok = true;
+		for (int epoch = 0; epoch < 3; epoch++) {
+			Iterator<Matrix[]> it = batches.nextEpoch();
+			if (epoch == 1) {
+				// Skips the rest of the epoch
+				it.next();
+				continue;
+			}
+			ok &= epoch(it, SAMPLES, BATCH);
+		}
+		check("TrainingBatches " + name + " uses every sample once per epoch", ok);
+		boolean done = false;
+		try {
+			batches.nextEpoch();
+		} catch (IllegalStateException e) {
+			done = true;
+		}
+		check("TrainingBatches " + name + " ends after its epochs", done);
+		batches.close();
+		check("TrainingBatches " + name + " stops the producer", !producerAlive());
+	}
+
+	/**
+	 * Takes the batches of one epoch and checks that every sample is in one
+	 * of them exactly once with its label, and that only the last batch is
+	 * shorter than batchSize
+	 */
+	private static boolean epoch(Iterator<Matrix[]> it, int samples, int batchSize) {
+		int[] seen = new int[samples];
+		int batches = 0;
+		boolean ok = true;
+		while (it.hasNext()) {
+			Matrix[] batch = it.next();
+			int expected = Math.min(batchSize, samples - batches * batchSize);
+			ok &= batch[0].hoehe == expected && batch[1].hoehe == expected;
+			for (int i = 0; i < batch[0].hoehe; i++) {
+				int sample = (int) batch[0].get(i, 0);
+				ok &= batch[1].get(i, 0) == sample;
+				seen[sample]++;
+			}
+			batches++;
+		}
+		int[] once = new int[samples];
+		Arrays.fill(once, 1);
+		return ok && Arrays.equals(seen, once);
+	}
+
+	private static boolean producerAlive() {
+		for (Thread t : Thread.getAllStackTraces().keySet()) {
+			if (t.getName().equals("Batch prefetcher") && t.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void check(String name, boolean ok) {
+		check(name, ok, 0);
+	}
+
+	private static void check(String name, boolean ok, double value) {
+		if (!ok) {
+			failed++;
+		}
+		System.out.println((ok ? "ok     " : "FAILED ") + name + " " + value);
+	}
+
+	private static Counting counting(int samples) {
+		return new Counting(samples);
+	}
+
+	/**
+	 * Sample i has input and label i and counts how often it is fetched
+	 */
+	private static final class Counting implements DataSource {
+		private final int samples;
+		private final AtomicInteger fetched = new AtomicInteger();
+		private volatile int failAt = -1;
+
+		private Counting(int samples) {
+			this.samples = samples;
+		}
+
+		private Matrix inputs() {
+			Matrix m = new Matrix(this.samples, 1);
+			for (int i = 0; i < this.samples; i++) {
+				m.set(i, 0, i);
+			}
+			return m;
+		}
+
+		@Override
+		public int size() {
+			return this.samples;
+		}
+
+		@Override
+		public int inputSize() {
+			return 1;
+		}
+
+		@Override
+		public int labelSize() {
+			return 1;
+		}
+
+		@Override
+		public void fetch(int row, double[] input, int inputOffset, double[] label, int labelOffset) {
+			if (row == this.failAt) {
+				throw new IllegalStateException("Sample " + row + " is broken");
+			}
+			this.fetched.incrementAndGet();
+			input[inputOffset] = row;
+			label[labelOffset] = row;
+		}
+	}
+}
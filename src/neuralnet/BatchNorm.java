@@ -0,0 +1,193 @@
+package neuralnet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import matrix.Matrix;
+
+/**
+ * Batch normalization: every input is normalized to mean 0 and variance 1
+ * over the batch, then scaled and shifted by the learned gamma and beta of
+ * its column.
+ * <p>
+ * The parameters are one matrix of shape(2, size), gamma in the first and
+ * beta in the second row. While training the layer keeps exponential moving
+ * averages of the batch means and variances, outside of training it
+ * normalizes with them instead. The statistics are always those of the
+ * whole mini-batch, so the {@link TrainingExecutor} does not split batches
+ * of models with this layer and the moving averages are updated once per
+ * step.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class BatchNorm implements Layer {
+
+	private static final long serialVersionUID = 1L;
+	public static final double EPSILON = 1e-5;
+	private final int size;
+	private final double momentum;
+	private final Matrix parameters;
+	private final double[] runningMean;
+	private final double[] runningVariance;
+
+	public BatchNorm(int size) {
+		this(size, 0.9);
+	}
+
+	/**
+	 * @param momentum
+	 *            weight of the old value of the moving averages, in [0, 1)
+	 */
+	public BatchNorm(int size, double momentum) {
+		if (momentum < 0 || momentum >= 1) {
+			throw new IllegalArgumentException("Momentum has to be in [0, 1)");
+		}
+		this.size = size;
+		this.momentum = momentum;
+		this.parameters = new Matrix(2, size);
+		this.parameters.view(0, 1, 0, size).fill(1);
+		this.runningMean = new double[size];
+		this.runningVariance = new double[size];
+		Arrays.fill(this.runningVariance, 1);
+	}
+
+	@Override
+	public int getInputSize() {
+		return this.size;
+	}
+
+	@Override
+	public int getOutputSize() {
+		return this.size;
+	}
+
+	@Override
+	public List<Matrix> getParameters() {
+		return Collections.singletonList(this.parameters);
+	}
+
+	@Override
+	public boolean isBatchDependent() {
+		return true;
+	}
+
+	/**
+	 * Keeps the normalized inputs in slot 0, the outputs in slot 1 and the
+	 * batch means and inverse standard deviations in slot 2
+	 */
+	@Override
+	public Matrix forward(Matrix input, LayerBuffers buffers, boolean training) {
+		int batch = input.hoehe;
+		Matrix normalized = buffers.get(0, batch, this.size);
+		Matrix out = buffers.get(1, batch, this.size);
+		Matrix stats = buffers.get(2, 2, this.size);
+		double[] st = stats.getData();
+		int meanRow = stats.getOffset();
+		int invRow = meanRow + stats.getStride();
+		double[] in = input.getData();
+		if (training) {
+			stats.fill(0);
+			for (int i = 0; i < batch; i++) {
+				int row = input.getOffset() + i * input.getStride();
+				for (int j = 0; j < this.size; j++) {
+					st[meanRow + j] += in[row + j];
+				}
+			}
+			for (int j = 0; j < this.size; j++) {
+				st[meanRow + j] /= batch;
+			}
+			for (int i = 0; i < batch; i++) {
+				int row = input.getOffset() + i * input.getStride();
+				for (int j = 0; j < this.size; j++) {
+					double d = in[row + j] - st[meanRow + j];
+					st[invRow + j] += d * d;
+				}
+			}
+			synchronized (this) {
+				for (int j = 0; j < this.size; j++) {
+					double variance = st[invRow + j] / batch;
+					// The moving average of the variance is unbiased
+					double unbiased = batch > 1 ? st[invRow + j] / (batch - 1) : variance;
+					this.runningMean[j] = this.momentum * this.runningMean[j]
+							+ (1 - this.momentum) * st[meanRow + j];
+					this.runningVariance[j] = this.momentum * this.runningVariance[j]
+							+ (1 - this.momentum) * unbiased;
+					st[invRow + j] = 1 / Math.sqrt(variance + EPSILON);
+				}
+			}
+		} else {
+			synchronized (this) {
+				for (int j = 0; j < this.size; j++) {
+					st[meanRow + j] = this.runningMean[j];
+					st[invRow + j] = 1 / Math.sqrt(this.runningVariance[j] + EPSILON);
+				}
+			}
+		}
+		double[] p = this.parameters.getData();
+		int beta = this.parameters.getOffset() + this.parameters.getStride();
+		double[] n = normalized.getData();
+		double[] o = out.getData();
+		for (int i = 0; i < batch; i++) {
+			int inRow = input.getOffset() + i * input.getStride();
+			int nRow = normalized.getOffset() + i * normalized.getStride();
+			int oRow = out.getOffset() + i * out.getStride();
+			for (int j = 0; j < this.size; j++) {
+				double x = (in[inRow + j] - st[meanRow + j]) * st[invRow + j];
+				n[nRow + j] = x;
+				o[oRow + j] = p[this.parameters.getOffset() + j] * x + p[beta + j];
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * dgamma = sum dy * x^, dbeta = sum dy and dx = gamma / (sigma * n) * (n *
+	 * dy - sum dy - x^ * sum dy * x^) per column
+	 */
+	@Override
+	public Matrix backward(Matrix error, LayerBuffers buffers, List<Matrix> gradients, boolean propagate) {
+		int batch = error.hoehe;
+		Matrix normalized = buffers.get(0, batch, this.size);
+		Matrix stats = buffers.get(2, 2, this.size);
+		Matrix sums = buffers.get(3, 2, this.size).fill(0);
+		double[] e = error.getData();
+		double[] n = normalized.getData();
+		double[] s = sums.getData();
+		int dyRow = sums.getOffset();
+		int dyxRow = dyRow + sums.getStride();
+		for (int i = 0; i < batch; i++) {
+			int eRow = error.getOffset() + i * error.getStride();
+			int nRow = normalized.getOffset() + i * normalized.getStride();
+			for (int j = 0; j < this.size; j++) {
+				s[dyRow + j] += e[eRow + j];
+				s[dyxRow + j] += e[eRow + j] * n[nRow + j];
+			}
+		}
+		Matrix g = gradients.get(0);
+		g.view(0, 1, 0, this.size).axpy(1, sums.view(1, 1, 0, this.size));
+		g.view(1, 1, 0, this.size).axpy(1, sums.view(0, 1, 0, this.size));
+		if (!propagate) {
+			return null;
+		}
+		double[] p = this.parameters.getData();
+		double[] inv = stats.getData();
+		int invRow = stats.getOffset() + stats.getStride();
+		for (int i = 0; i < batch; i++) {
+			int eRow = error.getOffset() + i * error.getStride();
+			int nRow = normalized.getOffset() + i * normalized.getStride();
+			for (int j = 0; j < this.size; j++) {
+				double scale = p[this.parameters.getOffset() + j] * inv[invRow + j] / batch;
+				e[eRow + j] = scale * (batch * e[eRow + j] - s[dyRow + j] - n[nRow + j] * s[dyxRow + j]);
+			}
+		}
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchNorm(" + this.size + ")";
+	}
+}
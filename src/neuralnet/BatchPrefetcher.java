@@ -0,0 +1,301 @@
+package neuralnet;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import backpropagation.DataSource;
+import matrix.Matrix;
+
+/**
+ * Streams shuffled mini-batches like {@link MiniBatchIterator}, but prepares
+ * them ahead on a background thread.
+ * <p>
+ * {@link #start(int)} starts a producer thread for the given amount of
+ * epochs. It shuffles the sample order at the start of every epoch and
+ * fetches the next batches from the {@link DataSource}, which gathers, decodes
+ * and scales them, into a ring of depth pairs of buffers. Filled buffers are
+ * handed to the training thread through a bounded queue and come back through
+ * a second one once the next batch is taken, so the producer runs up to depth
+ * batches ahead, across epoch boundaries, and nothing is allocated after
+ * construction. The training thread only waits if fetching a batch takes
+ * longer than training on one. Every batch is tagged with its epoch; if the
+ * training thread skips the rest of an epoch, the producer stops fetching it
+ * and the batches of it that are already waiting are handed back unused. On
+ * a single processor there is nothing to overlap, so the batches are fetched
+ * on the training thread instead.
+ * </p>
+ * <p>
+ * As with {@link MiniBatchIterator}, the returned array and its matrices are
+ * only valid until the next call of {@link #next()}. {@link #close()} stops
+ * the producer; it has to be called once training ends, also if it ends with
+ * an exception. Once the producer failed, every further call of
+ * {@link #next()} throws its failure.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class BatchPrefetcher implements Iterator<Matrix[]>, AutoCloseable {
+	public static final int DEFAULT_DEPTH = 4;
+	// Handed to the training thread if the producer failed
+	private static final Slot FAILED = new Slot();
+
+	private final DataSource source;
+	private final int size;
+	private final int batchSize;
+	private final Random random;
+	private final int[] permutation;
+	private final Slot[] slots;
+	private final BlockingQueue<Slot> free;
+	private final BlockingQueue<Slot> filled;
+	private final boolean background;
+	private boolean running;
+	private Thread producer;
+	private volatile Throwable failure;
+	// The epoch the training thread is in, batches of earlier ones are skipped
+	private volatile int trainingEpoch;
+	private boolean failed;
+	private Slot current;
+	private int epochs;
+	private int epoch;
+	private int position;
+
+	public BatchPrefetcher(DataSource source, int batchSize) {
+		this(source, batchSize, DEFAULT_DEPTH, new Random());
+	}
+
+	public BatchPrefetcher(DataSource source, int batchSize, int depth, Random random) {
+		this(source, batchSize, depth, random, Runtime.getRuntime().availableProcessors() > 1);
+	}
+
+	/**
+	 * @param background
+	 *            whether the batches are fetched on a producer thread or on
+	 *            the training thread
+	 */
+	BatchPrefetcher(DataSource source, int batchSize, int depth, Random random, boolean background) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size has to be at least 1");
+		}
+		if (depth < 1) {
+			throw new IllegalArgumentException("At least one batch has to be prefetched");
+		}
+		this.source = source;
+		this.size = source.size();
+		this.batchSize = Math.min(batchSize, Math.max(1, this.size));
+		this.random = random;
+		this.permutation = new int[this.size];
+		for (int i = 0; i < this.permutation.length; i++) {
+			this.permutation[i] = i;
+		}
+		this.background = background;
+		this.slots = new Slot[depth];
+		this.free = new ArrayBlockingQueue<Slot>(depth);
+		this.filled = new ArrayBlockingQueue<Slot>(depth + 1);
+		for (int i = 0; i < depth; i++) {
+			this.slots[i] = new Slot(this.batchSize, source.inputSize(), source.labelSize());
+			this.free.add(this.slots[i]);
+		}
+	}
+
+	/**
+	 * Starts prefetching the batches of the next epochs epochs; the first of
+	 * them is the current epoch
+	 */
+	public void start(int epochs) {
+		if (this.running) {
+			throw new IllegalStateException("Prefetcher is already running");
+		}
+		this.running = true;
+		this.failure = null;
+		this.failed = false;
+		this.trainingEpoch = 0;
+		this.epochs = epochs;
+		this.epoch = 0;
+		this.position = 0;
+		if (this.background) {
+			this.producer = new Thread(() -> this.produce(epochs), "Batch prefetcher");
+			this.producer.setDaemon(true);
+			this.producer.start();
+		} else {
+			this.shuffle();
+		}
+	}
+
+	public boolean uses(DataSource source, int batchSize) {
+		return this.source.equals(source) && this.batchSize == Math.min(batchSize, Math.max(1, source.size()));
+	}
+
+	public int batchesPerEpoch() {
+		return (this.size + this.batchSize - 1) / this.batchSize;
+	}
+
+	/**
+	 * Continues with the next epoch, skipping the rest of the current one
+	 */
+	public void nextEpoch() {
+		this.epoch++;
+		this.position = 0;
+		if (this.background) {
+			this.trainingEpoch = this.epoch;
+		} else if (this.running && this.epoch < this.epochs) {
+			this.shuffle();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return this.running && this.epoch < this.epochs && this.position < this.batchesPerEpoch();
+	}
+
+	@Override
+	public Matrix[] next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		if (!this.background) {
+			int start = this.position * this.batchSize;
+			this.slots[0].fill(this.source, this.permutation, start, Math.min(this.batchSize, this.size - start));
+			this.position++;
+			return this.slots[0].batch;
+		}
+		if (this.failed) {
+			throw new RuntimeException("Batch prefetcher failed", this.failure);
+		}
+		this.release();
+		Slot s;
+		while (true) {
+			try {
+				s = this.filled.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for a batch", e);
+			}
+			if (s == FAILED) {
+				this.failed = true;
+				throw new RuntimeException("Batch prefetcher failed", this.failure);
+			}
+			if (s.epoch >= this.epoch) {
+				break;
+			}
+			// Left over from a skipped epoch
+			this.free.add(s);
+		}
+		this.current = s;
+		this.position++;
+		return s.batch;
+	}
+
+	/**
+	 * Stops the producer and takes back all buffers
+	 */
+	@Override
+	public void close() {
+		this.running = false;
+		if (this.producer == null) {
+			return;
+		}
+		this.producer.interrupt();
+		boolean interrupted = false;
+		while (true) {
+			try {
+				this.producer.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		this.producer = null;
+		this.release();
+		this.filled.clear();
+		this.free.clear();
+		for (Slot s : this.slots) {
+			this.free.add(s);
+		}
+	}
+
+	private void release() {
+		if (this.current != null) {
+			this.free.add(this.current);
+			this.current = null;
+		}
+	}
+
+	private void produce(int epochs) {
+		try {
+			int e = 0;
+			while (e < epochs) {
+				this.shuffle();
+				for (int start = 0; start < this.size; start += this.batchSize) {
+					Slot s = this.free.take();
+					if (this.trainingEpoch > e) {
+						// The training thread skipped the rest of this epoch
+						this.free.add(s);
+						break;
+					}
+					s.epoch = e;
+					s.fill(this.source, this.permutation, start, Math.min(this.batchSize, this.size - start));
+					this.filled.put(s);
+				}
+				e = Math.max(e + 1, this.trainingEpoch);
+			}
+		} catch (InterruptedException e) {
+			// Stopped by close()
+		} catch (Throwable t) {
+			this.failure = t;
+			this.filled.add(FAILED);
+		}
+	}
+
+	/**
+	 * Fisher-Yates shuffle of the sample order
+	 */
+	private void shuffle() {
+		for (int i = this.permutation.length - 1; i > 0; i--) {
+			int j = this.random.nextInt(i + 1);
+			int tmp = this.permutation[i];
+			this.permutation[i] = this.permutation[j];
+			this.permutation[j] = tmp;
+		}
+	}
+
+	/**
+	 * One pair of batch buffers of the ring
+	 */
+	private static final class Slot {
+		private final Matrix inputs;
+		private final Matrix labels;
+		private final Matrix[] batch;
+		private int epoch;
+
+		private Slot() {
+			this.inputs = null;
+			this.labels = null;
+			this.batch = null;
+		}
+
+		private Slot(int batchSize, int inputSize, int labelSize) {
+			this.inputs = new Matrix(batchSize, inputSize);
+			this.labels = new Matrix(batchSize, labelSize);
+			this.batch = new Matrix[2];
+		}
+
+		private void fill(DataSource source, int[] permutation, int start, int rows) {
+			Matrix in = this.inputs;
+			Matrix lab = this.labels;
+			if (rows < in.hoehe) {
+				in = in.view(0, rows, 0, in.breite);
+				lab = lab.view(0, rows, 0, lab.breite);
+			}
+			source.fetchRowsInto(permutation, start, in, lab);
+			this.batch[0] = in;
+			this.batch[1] = lab;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package neuralnet;
+
+/**
+ * Binary cross-entropy, -sum y * log(p) + (1 - y) * log(1 - p) per sample,
+ * for outputs that are independent bits like the Hamming codes and XOR.
+ * <p>
+ * The outputs are clipped to [{@link #EPSILON}, 1 - {@link #EPSILON}], so a
+ * confident mistake costs a lot but not infinitely much. Fused with a
+ * {@link Sigmoid} output layer.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class BinaryCrossEntropy implements Loss {
+
+	private static final long serialVersionUID = 1L;
+	public static final double EPSILON = 1e-15;
+
+	@Override
+	public String getName() {
+		return "Binary cross-entropy";
+	}
+
+	@Override
+	public double value(double[] outputs, int outputOffset, double[] labels, int labelOffset, int length) {
+		double res = 0;
+		for (int i = 0; i < length; i++) {
+			double p = Math.min(Math.max(outputs[outputOffset + i], EPSILON), 1 - EPSILON);
+			double y = labels[labelOffset + i];
+			// Terms with a factor of 0 are left out, -0 * log(0) would be NaN
+			if (y != 0) {
+				res -= y * Math.log(p);
+			}
+			if (y != 1) {
+				res -= (1 - y) * Math.log(1 - p);
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public void gradient(double[] outputs, int outputOffset, double[] labels, int labelOffset, double[] dest,
+			int destOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			double p = Math.min(Math.max(outputs[outputOffset + i], EPSILON), 1 - EPSILON);
+			dest[destOffset + i] = (p - labels[labelOffset + i]) / (p * (1 - p));
+		}
+	}
+
+	@Override
+	public void gradient(float[] outputs, int outputOffset, float[] labels, int labelOffset, float[] dest,
+			int destOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			double p = Math.min(Math.max(outputs[outputOffset + i], EPSILON), 1 - EPSILON);
+			dest[destOffset + i] = (float) ((p - labels[labelOffset + i]) / (p * (1 - p)));
+		}
+	}
+
+	@Override
+	public boolean isFusedWith(Activator output) {
+		return output instanceof Sigmoid;
+	}
+
+	/**
+	 * @return whether the outputs of the activator are in [0, 1]
+	 */
+	@Override
+	public boolean accepts(Activator output) {
+		return output instanceof Sigmoid || output instanceof Softmax;
+	}
+
+	@Override
+	public String toString() {
+		return this.getName();
+	}
+}
@@ -0,0 +1,70 @@
+package neuralnet;
+
+/**
+ * Categorical cross-entropy, -sum y * log(p) per sample, for one-hot labels
+ * like the digits of MNIST.
+ * <p>
+ * The outputs are clipped to at least {@link BinaryCrossEntropy#EPSILON}.
+ * Fused with a {@link Softmax} output layer.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class CategoricalCrossEntropy implements Loss {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String getName() {
+		return "Categorical cross-entropy";
+	}
+
+	@Override
+	public double value(double[] outputs, int outputOffset, double[] labels, int labelOffset, int length) {
+		double res = 0;
+		for (int i = 0; i < length; i++) {
+			double y = labels[labelOffset + i];
+			if (y != 0) {
+				res -= y * Math.log(Math.max(outputs[outputOffset + i], BinaryCrossEntropy.EPSILON));
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public void gradient(double[] outputs, int outputOffset, double[] labels, int labelOffset, double[] dest,
+			int destOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			dest[destOffset + i] = -labels[labelOffset + i]
+					/ Math.max(outputs[outputOffset + i], BinaryCrossEntropy.EPSILON);
+		}
+	}
+
+	@Override
+	public void gradient(float[] outputs, int outputOffset, float[] labels, int labelOffset, float[] dest,
+			int destOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			dest[destOffset + i] = (float) (-labels[labelOffset + i]
+					/ Math.max(outputs[outputOffset + i], BinaryCrossEntropy.EPSILON));
+		}
+	}
+
+	@Override
+	public boolean isFusedWith(Activator output) {
+		return output instanceof Softmax;
+	}
+
+	/**
+	 * @return whether the outputs of the activator are in [0, 1]
+	 */
+	@Override
+	public boolean accepts(Activator output) {
+		return output instanceof Sigmoid || output instanceof Softmax;
+	}
+
+	@Override
+	public String toString() {
+		return this.getName();
+	}
+}
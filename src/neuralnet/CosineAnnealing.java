@@ -0,0 +1,36 @@
+package neuralnet;
+
+/**
+ * Lowers the learning rate along half a cosine wave, from the initial
+ * learning rate in the epoch of the controller the schedule starts at to
+ * minLearningRate epochs epochs later
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class CosineAnnealing implements TrainingCallback {
+	private final int start;
+	private final int epochs;
+	private final double minLearningRate;
+
+	public CosineAnnealing(int epochs, double minLearningRate) {
+		this(0, epochs, minLearningRate);
+	}
+
+	public CosineAnnealing(int start, int epochs, double minLearningRate) {
+		if (epochs < 1) {
+			throw new IllegalArgumentException("Schedule needs at least one epoch");
+		}
+		this.start = start;
+		this.epochs = epochs;
+		this.minLearningRate = minLearningRate;
+	}
+
+	@Override
+	public void epochStarted(TrainingController controller) {
+		double progress = Math.min(1, Math.max(0, controller.getEpoch() - this.start) / (double) this.epochs);
+		double max = controller.getInitialLearningRate();
+		controller.setLearningRate(
+				this.minLearningRate + 0.5 * (max - this.minLearningRate) * (1 + Math.cos(Math.PI * progress)));
+	}
+}
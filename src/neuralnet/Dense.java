@@ -0,0 +1,189 @@
+package neuralnet;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import matrix.Matrix;
+
+/**
+ * Fully connected layer, outputs = a(inputs * W^T + b).
+ * <p>
+ * The weights are one matrix of shape(outputs, inputs + 1) with the bias of
+ * every neuron in the last column, the layout {@link NeuralNet} and the model
+ * files use. The products run on the view without that column, the bias is
+ * added row by row.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class Dense implements Layer {
+
+	private static final long serialVersionUID = 1L;
+	private final int inputs;
+	private final int outputs;
+	private final Activator activator;
+	private final Matrix weights;
+
+	/**
+	 * Initializes the weights randomly, scaled by sqrt(2 / (inputs + 1))
+	 */
+	public Dense(int inputs, int outputs, Activator activator) {
+		this(initialWeights(inputs, outputs), activator);
+	}
+
+	/**
+	 * @param weights
+	 *            shape(outputs, inputs + 1), used and updated in place
+	 */
+	public Dense(Matrix weights, Activator activator) {
+		if (weights.breite < 2 || !weights.isContiguous()) {
+			throw new IllegalArgumentException("Weights need a bias column and have to be contiguous");
+		}
+		this.inputs = weights.breite - 1;
+		this.outputs = weights.hoehe;
+		this.activator = activator;
+		this.weights = weights;
+	}
+
+	private static Matrix initialWeights(int inputs, int outputs) {
+		Random r = new Random();
+		double scale = Math.sqrt(2.0 / (inputs + 1));
+		Matrix w = new Matrix(outputs, inputs + 1);
+		double[] data = w.getData();
+		for (int i = 0; i < data.length; i++) {
+			data[i] = r.nextGaussian() * scale;
+		}
+		return w;
+	}
+
+	@Override
+	public int getInputSize() {
+		return this.inputs;
+	}
+
+	@Override
+	public int getOutputSize() {
+		return this.outputs;
+	}
+
+	public Activator getActivator() {
+		return this.activator;
+	}
+
+	public Matrix getWeights() {
+		return this.weights;
+	}
+
+	@Override
+	public List<Matrix> getParameters() {
+		return Collections.singletonList(this.weights);
+	}
+
+	/**
+	 * Keeps the weighted sums in slot 0 and the outputs in slot 1
+	 */
+	@Override
+	public Matrix forward(Matrix input, LayerBuffers buffers, boolean training) {
+		int batch = input.hoehe;
+		Matrix sums = input.multiplyTransposedInto(this.weights.view(0, this.outputs, 0, this.inputs),
+				buffers.get(0, batch, this.outputs));
+		double[] w = this.weights.getData();
+		double[] s = sums.getData();
+		for (int i = 0; i < batch; i++) {
+			int row = sums.getOffset() + i * sums.getStride();
+			for (int j = 0; j < this.outputs; j++) {
+				s[row + j] += w[this.weights.getOffset() + j * (this.inputs + 1) + this.inputs];
+			}
+		}
+		Matrix out = buffers.get(1, batch, this.outputs);
+		transform(this.activator, sums, out);
+		return out;
+	}
+
+	/**
+	 * Turns the error of the outputs into the error of the weighted sums,
+	 * with the derivative of the activator or the Jacobian of a
+	 * {@link Softmax}, and continues with
+	 * {@link #backwardSums(Matrix, LayerBuffers, List, boolean)}
+	 */
+	@Override
+	public Matrix backward(Matrix error, LayerBuffers buffers, List<Matrix> gradients, boolean propagate) {
+		int batch = error.hoehe;
+		if (this.activator instanceof Softmax) {
+			Matrix out = buffers.get(1, batch, this.outputs);
+			for (int i = 0; i < batch; i++) {
+				((Softmax) this.activator).backward(out.getData(), out.getOffset() + i * out.getStride(),
+						error.getData(), error.getOffset() + i * error.getStride(), this.outputs);
+			}
+		} else {
+			Matrix derivative = buffers.get(2, batch, this.outputs);
+			transformDerivative(this.activator, buffers.get(0, batch, this.outputs), derivative);
+			error.hadamardInPlace(derivative);
+		}
+		return this.backwardSums(error, buffers, gradients, propagate);
+	}
+
+	/**
+	 * Backward pass from the error of the weighted sums, used directly by
+	 * losses that are fused with the activator. The weight gradient is
+	 * delta^T * inputs, summed over the batch by the product itself.
+	 *
+	 * @param delta
+	 *            error of the weighted sums, shape(batch, outputSize)
+	 */
+	public Matrix backwardSums(Matrix delta, LayerBuffers buffers, List<Matrix> gradients, boolean propagate) {
+		int batch = delta.hoehe;
+		Matrix g = gradients.get(0);
+		delta.transposeMultiplyAddInto(buffers.getInput(), g.view(0, this.outputs, 0, this.inputs));
+		double[] gd = g.getData();
+		double[] d = delta.getData();
+		for (int i = 0; i < batch; i++) {
+			int row = delta.getOffset() + i * delta.getStride();
+			for (int j = 0; j < this.outputs; j++) {
+				gd[g.getOffset() + j * g.getStride() + this.inputs] += d[row + j];
+			}
+		}
+		if (!propagate) {
+			return null;
+		}
+		return delta.multiplyInto(this.weights.view(0, this.outputs, 0, this.inputs),
+				buffers.get(3, batch, this.inputs));
+	}
+
+	/**
+	 * out = a(in) element by element, or row by row for activators that are
+	 * not element-wise, without boxing
+	 */
+	static void transform(Activator a, Matrix in, Matrix out) {
+		if (a.isElementWise() && in.isContiguous() && out.isContiguous()) {
+			a.transform(in.getData(), in.getOffset(), out.getData(), out.getOffset(), in.hoehe * in.breite);
+			return;
+		}
+		for (int i = 0; i < in.hoehe; i++) {
+			a.transform(in.getData(), in.getOffset() + i * in.getStride(), out.getData(),
+					out.getOffset() + i * out.getStride(), in.breite);
+		}
+	}
+
+	/**
+	 * out = a'(in) element by element, without boxing
+	 */
+	static void transformDerivative(Activator a, Matrix in, Matrix out) {
+		if (in.isContiguous() && out.isContiguous()) {
+			a.transformDerivative(in.getData(), in.getOffset(), out.getData(), out.getOffset(),
+					in.hoehe * in.breite);
+			return;
+		}
+		for (int i = 0; i < in.hoehe; i++) {
+			a.transformDerivative(in.getData(), in.getOffset() + i * in.getStride(), out.getData(),
+					out.getOffset() + i * out.getStride(), in.breite);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Dense(" + this.inputs + " -> " + this.outputs + ", " + this.activator + ")";
+	}
+}
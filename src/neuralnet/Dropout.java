@@ -0,0 +1,109 @@
+package neuralnet;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import matrix.Matrix;
+
+/**
+ * Inverted dropout: while training every input is set to 0 with probability
+ * rate and the others are scaled by 1 / (1 - rate), so the expected output
+ * equals the input. Outside of training the inputs are passed on unchanged.
+ * <p>
+ * The masks are drawn from the given {@link Random}, so a seeded one makes
+ * training reproducible as long as the batches are not split across several
+ * workers, whose draws interleave.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class Dropout implements Layer {
+
+	private static final long serialVersionUID = 1L;
+	private final int size;
+	private final double rate;
+	private final Random random;
+
+	public Dropout(int size, double rate) {
+		this(size, rate, new Random());
+	}
+
+	/**
+	 * @param rate
+	 *            probability of dropping an input, in [0, 1)
+	 */
+	public Dropout(int size, double rate, Random random) {
+		if (rate < 0 || rate >= 1) {
+			throw new IllegalArgumentException("Dropout rate has to be in [0, 1)");
+		}
+		this.size = size;
+		this.rate = rate;
+		this.random = random;
+	}
+
+	@Override
+	public int getInputSize() {
+		return this.size;
+	}
+
+	@Override
+	public int getOutputSize() {
+		return this.size;
+	}
+
+	public double getRate() {
+		return this.rate;
+	}
+
+	@Override
+	public List<Matrix> getParameters() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Keeps the mask, 0 or 1 / (1 - rate) per input, in slot 0
+	 */
+	@Override
+	public Matrix forward(Matrix input, LayerBuffers buffers, boolean training) {
+		if (!training || this.rate == 0) {
+			return input;
+		}
+		int batch = input.hoehe;
+		Matrix mask = buffers.get(0, batch, this.size);
+		Matrix out = buffers.get(1, batch, this.size);
+		Random r = this.random;
+		double scale = 1 / (1 - this.rate);
+		double[] m = mask.getData();
+		double[] in = input.getData();
+		double[] o = out.getData();
+		for (int i = 0; i < batch; i++) {
+			int mRow = mask.getOffset() + i * mask.getStride();
+			int inRow = input.getOffset() + i * input.getStride();
+			int oRow = out.getOffset() + i * out.getStride();
+			for (int j = 0; j < this.size; j++) {
+				double keep = r.nextDouble() < this.rate ? 0 : scale;
+				m[mRow + j] = keep;
+				o[oRow + j] = in[inRow + j] * keep;
+			}
+		}
+		return out;
+	}
+
+	@Override
+	public Matrix backward(Matrix error, LayerBuffers buffers, List<Matrix> gradients, boolean propagate) {
+		if (!propagate) {
+			return null;
+		}
+		if (this.rate == 0) {
+			return error;
+		}
+		return error.hadamardInPlace(buffers.get(0, error.hoehe, this.size));
+	}
+
+	@Override
+	public String toString() {
+		return "Dropout(" + this.size + ", " + this.rate + ")";
+	}
+}
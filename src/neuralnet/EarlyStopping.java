@@ -0,0 +1,80 @@
+package neuralnet;
+
+import java.util.ArrayList;
+
+import matrix.Matrix;
+
+/**
+ * Stops the training once the test cost has not improved by more than
+ * minDelta for patience epochs, and optionally puts the weights of the best
+ * epoch back when the training ends. The best weights are copied into
+ * buffers that are allocated once; the state of the optimizer is not
+ * restored.
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class EarlyStopping implements TrainingCallback {
+	private final int patience;
+	private final double minDelta;
+	private final boolean restoreBest;
+	private ArrayList<Matrix> best;
+	private double bestCost = Double.MAX_VALUE;
+	private int bestEpoch = -1;
+
+	public EarlyStopping(int patience, double minDelta, boolean restoreBest) {
+		if (patience < 1) {
+			throw new IllegalArgumentException("Patience has to be at least one epoch");
+		}
+		this.patience = patience;
+		this.minDelta = minDelta;
+		this.restoreBest = restoreBest;
+	}
+
+	@Override
+	public void epochFinished(TrainingController controller, double cost) {
+		if (cost < this.bestCost - this.minDelta) {
+			this.bestCost = cost;
+			this.bestEpoch = controller.getEpoch();
+			if (this.restoreBest) {
+				this.remember(controller.getNet().getParameters());
+			}
+		} else if (controller.getEpoch() - this.bestEpoch >= this.patience) {
+			controller.stop();
+		}
+	}
+
+	@Override
+	public void trainingFinished(TrainingController controller) {
+		if (this.restoreBest && this.best != null && this.bestEpoch != controller.getEpoch()) {
+			ArrayList<Matrix> weights = controller.getNet().getParameters();
+			for (int i = 0; i < weights.size(); i++) {
+				weights.get(i).copyFrom(this.best.get(i));
+			}
+		}
+	}
+
+	private void remember(ArrayList<Matrix> weights) {
+		if (this.best == null) {
+			this.best = new ArrayList<Matrix>();
+			for (Matrix w : weights) {
+				this.best.add(new Matrix(w.hoehe, w.breite));
+			}
+		}
+		for (int i = 0; i < weights.size(); i++) {
+			this.best.get(i).copyFrom(weights.get(i));
+		}
+	}
+
+	public double getBestCost() {
+		return this.bestCost;
+	}
+
+	/**
+	 * @return the epoch with the lowest cost, counted like
+	 *         {@link TrainingController#getEpoch()}
+	 */
+	public int getBestEpoch() {
+		return this.bestEpoch;
+	}
+}
@@ -0,0 +1,59 @@
+package neuralnet;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Activator that acts on every neuron separately, so it is defined on single
+ * values as well and can be applied on a matrix as a scalar function.
+ * <p>
+ * Subclasses override the array methods with plain loops the JIT can unroll,
+ * the default implementations just call the scalar methods element by
+ * element.
+ * </p>
+ */
+public abstract class ElementWiseActivator extends Activator implements DoubleUnaryOperator {
+
+	private static final long serialVersionUID = 1L;
+
+	public abstract double transform(double x);
+
+	public abstract double transformDerivative(double x);
+
+	@Override
+	public double applyAsDouble(double x) {
+		return this.transform(x);
+	}
+
+	@Override
+	public boolean isElementWise() {
+		return true;
+	}
+
+	@Override
+	public void transform(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = this.transform(in[inOffset + i]);
+		}
+	}
+
+	@Override
+	public void transformDerivative(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = this.transformDerivative(in[inOffset + i]);
+		}
+	}
+
+	@Override
+	public void transform(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = (float) this.transform(in[inOffset + i]);
+		}
+	}
+
+	@Override
+	public void transformDerivative(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = (float) this.transformDerivative(in[inOffset + i]);
+		}
+	}
+}
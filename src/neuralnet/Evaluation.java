@@ -0,0 +1,99 @@
+package neuralnet;
+
+/**
+ * Result of evaluating a net on a dataset, see
+ * {@link Network#evaluateAll(backpropagation.DataSource)}.
+ * <p>
+ * All values are means over the samples:
+ * </p>
+ * <ul>
+ * <li>the cost, the {@link Loss} the net is trained with</li>
+ * <li>the log-loss, the {@link CategoricalCrossEntropy} if the output layer
+ * is {@link Softmax}, otherwise the {@link BinaryCrossEntropy}</li>
+ * <li>the accuracy. A sample with a one-hot label is correct if its largest
+ * output is at the position of the 1, any other sample if every output
+ * rounds to its label.</li>
+ * </ul>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public final class Evaluation {
+	private final Loss loss;
+	private final Loss logLossFunction;
+	private double cost;
+	private double logLoss;
+	private int correct;
+	private int samples;
+
+	/**
+	 * @param loss
+	 *            the loss of the net
+	 * @param output
+	 *            the activator of its output layer
+	 */
+	Evaluation(Loss loss, Activator output) {
+		this.loss = loss;
+		this.logLossFunction = output instanceof Softmax ? new CategoricalCrossEntropy() : new BinaryCrossEntropy();
+	}
+
+	/**
+	 * Adds one sample
+	 */
+	void add(double[] outputs, int outputOffset, double[] labels, int labelOffset, int length) {
+		int largestOutput = 0;
+		int hot = -1;
+		boolean oneHot = length > 1;
+		boolean rounded = true;
+		for (int j = 0; j < length; j++) {
+			double p = outputs[outputOffset + j];
+			double y = labels[labelOffset + j];
+			if (p > outputs[outputOffset + largestOutput]) {
+				largestOutput = j;
+			}
+			if (y == 1 && hot == -1) {
+				hot = j;
+			} else if (y != 0) {
+				oneHot = false;
+			}
+			rounded &= (p >= 0.5) == (y >= 0.5);
+		}
+		this.cost += this.loss.value(outputs, outputOffset, labels, labelOffset, length);
+		this.logLoss += this.logLossFunction.value(outputs, outputOffset, labels, labelOffset, length);
+		if (oneHot && hot != -1 ? largestOutput == hot : rounded) {
+			this.correct++;
+		}
+		this.samples++;
+	}
+
+	/**
+	 * @return the mean cost per sample
+	 */
+	public double getCost() {
+		return this.samples == 0 ? 0 : this.cost / this.samples;
+	}
+
+	/**
+	 * @return the mean log-loss per sample
+	 */
+	public double getLogLoss() {
+		return this.samples == 0 ? 0 : this.logLoss / this.samples;
+	}
+
+	/**
+	 * @return the fraction of samples that are classified correctly
+	 */
+	public double getAccuracy() {
+		return this.samples == 0 ? 0 : (this.correct + 0.0) / this.samples;
+	}
+
+	public int getSamples() {
+		return this.samples;
+	}
+
+	@Override
+	public String toString() {
+		return "Cost: " + this.getCost() + ", log-loss: " + this.getLogLoss() + ", accuracy: "
+				+ 100 * this.getAccuracy() + "%";
+	}
+}
@@ -0,0 +1,394 @@
+package neuralnet;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import backpropagation.DataSource;
+import matrix.FloatMatrix;
+import matrix.Matrix;
+
+/**
+ * Single precision version of {@link NeuralNet}.
+ * <p>
+ * The weights, the activations and the gradients are {@link FloatMatrix}es,
+ * the batched forward and backward passes are the same matrix products as in
+ * {@link NeuralNet}. Inputs and outputs stay double precision; every
+ * mini-batch of the train data is converted when it is trained on.
+ * </p>
+ * <p>
+ * {@link #FloatNeuralNet(NeuralNet)} converts an existing, e.g. loaded, net
+ * and {@link #toNeuralNet()} converts back.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class FloatNeuralNet implements Network, Serializable {
+
+	private static final long serialVersionUID = 1L;
+	// Rows fed forward at once when evaluating whole datasets
+	private static final int EVALUATION_BATCH = 256;
+	public int inputNeurons;
+	public int outputNeurons;
+	public ArrayList<Integer> hiddenNeurons;
+	public ArrayList<Activator> activationFunctions;
+	public ArrayList<FloatMatrix> weights;
+	private Loss loss;
+	private transient ThreadLocal<Buffers> buffers;
+	private transient ArrayList<FloatMatrix> gradients;
+
+	public FloatNeuralNet(int inputNeurons, int outputNeurons, ArrayList<Integer> hiddenNeurons,
+			ArrayList<Activator> activationFunctions) {
+		this(new NeuralNet(inputNeurons, outputNeurons, hiddenNeurons, activationFunctions));
+	}
+
+	/**
+	 * Converts the given net, rounding its weights to the nearest float
+	 */
+	public FloatNeuralNet(NeuralNet nn) {
+		this.inputNeurons = nn.inputNeurons;
+		this.outputNeurons = nn.outputNeurons;
+		this.hiddenNeurons = new ArrayList<Integer>(nn.hiddenNeurons);
+		this.activationFunctions = new ArrayList<Activator>(nn.activationFunctions);
+		this.loss = nn.getLoss();
+		this.weights = new ArrayList<FloatMatrix>();
+		for (Matrix w : nn.weights) {
+			this.weights.add(FloatMatrix.of(w));
+		}
+		this.buffers = ThreadLocal.withInitial(Buffers::new);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.buffers = ThreadLocal.withInitial(Buffers::new);
+	}
+
+	/**
+	 * @return a double precision net with the same weights
+	 */
+	public NeuralNet toNeuralNet() {
+		ArrayList<Matrix> w = new ArrayList<Matrix>();
+		for (FloatMatrix m : this.weights) {
+			w.add(m.toMatrix());
+		}
+		NeuralNet nn = new NeuralNet(this.inputNeurons, this.outputNeurons,
+				new ArrayList<Integer>(this.hiddenNeurons), new ArrayList<Activator>(this.activationFunctions), w);
+		nn.setLoss(this.getLoss());
+		return nn;
+	}
+
+	/**
+	 * @see NeuralNet#getLoss()
+	 */
+	public Loss getLoss() {
+		if (this.loss == null) {
+			this.loss = new SumSquaredError();
+		}
+		return this.loss;
+	}
+
+	@Override
+	public Precision getPrecision() {
+		return Precision.FLOAT;
+	}
+
+	/**
+	 * @return outputs, shape(outputNeurons, 1)
+	 */
+	public Matrix feedForward(double[] input) {
+		if (input.length != inputNeurons) {
+			throw new IllegalArgumentException("Amount of inputs does not correspond with amount of input neurons!");
+		}
+		Matrix outputs = this.feedForwardBatch(new Matrix(1, input.length, input));
+		return new Matrix(this.outputNeurons, 1, outputs.getData());
+	}
+
+	@Override
+	public Matrix feedForwardBatch(Matrix inputs) {
+		if (inputs.breite != inputNeurons) {
+			throw new IllegalArgumentException("Amount of inputs does not correspond with amount of input neurons!");
+		}
+		Buffers b = this.buffers.get();
+		b.prepare(this, inputs.hoehe);
+		b.rows(b.ausgaben[0]).view(0, inputs.hoehe, 0, inputNeurons).copyFrom(inputs);
+		return this.feedForward(b).toMatrix();
+	}
+
+	/**
+	 * Batched forward pass over the inputs already copied into the first
+	 * activations of the buffers
+	 */
+	private FloatMatrix feedForward(Buffers b) {
+		int layers = this.weights.size();
+		FloatMatrix currentAusgaben = b.rows(b.ausgaben[0]);
+		for (int i = 0; i < layers; i++) {
+			FloatMatrix w = this.weights.get(i);
+			FloatMatrix currentEingaben = currentAusgaben.multiplyTransposedInto(w, b.rows(b.eingaben[i]));
+			currentAusgaben = b.rows(b.ausgaben[i + 1]);
+			FloatMatrix activated = i == layers - 1 ? currentAusgaben
+					: currentAusgaben.view(0, b.batch, 0, w.hoehe);
+			transform(this.activationFunctions.get(i), currentEingaben, activated, false);
+		}
+		return currentAusgaben;
+	}
+
+	@Override
+	public double evaluate(Matrix testInputs, Matrix testLabels) {
+		if (testInputs.hoehe != testLabels.hoehe || testLabels.breite != this.outputNeurons) {
+			throw new IllegalArgumentException();
+		}
+		return this.evaluate(DataSource.of(testInputs, testLabels));
+	}
+
+	@Override
+	public double evaluate(DataSource test) {
+		return this.evaluateAll(test).getCost();
+	}
+
+	@Override
+	public Evaluation evaluateAll(DataSource test) {
+		if (test.labelSize() != this.outputNeurons || test.inputSize() != this.inputNeurons) {
+			throw new IllegalArgumentException();
+		}
+		Evaluation res = new Evaluation(this.getLoss(),
+				this.activationFunctions.get(this.activationFunctions.size() - 1));
+		double[] row = new double[this.outputNeurons];
+		Buffers b = this.buffers.get();
+		Iterator<Matrix[]> chunks = test.chunks(EVALUATION_BATCH);
+		while (chunks.hasNext()) {
+			Matrix[] chunk = chunks.next();
+			int rows = chunk[0].hoehe;
+			b.prepare(this, rows);
+			b.rows(b.ausgaben[0]).view(0, rows, 0, inputNeurons).copyFrom(chunk[0]);
+			FloatMatrix outputs = this.feedForward(b);
+			Matrix labels = chunk[1];
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < this.outputNeurons; j++) {
+					row[j] = outputs.get(i, j);
+				}
+				res.add(row, 0, labels.getData(), labels.getOffset() + i * labels.getStride(), this.outputNeurons);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Adds the weight gradients of the batch to the given gradients, see
+	 * {@link NeuralNet#backpropagateBatch(Matrix, Matrix, ArrayList)}
+	 *
+	 * @param inputs
+	 *            inputs, shape(batch, inputNeurons)
+	 * @param labels
+	 *            desired outputs, shape(batch, outputNeurons)
+	 */
+	public void backpropagateBatch(FloatMatrix inputs, FloatMatrix labels, ArrayList<FloatMatrix> gradients) {
+		if (inputs.breite != inputNeurons) {
+			throw new IllegalArgumentException("Amount of inputs does not correspond with amount of input neurons!");
+		}
+		if (labels.breite != this.outputNeurons || labels.hoehe != inputs.hoehe) {
+			throw new IllegalArgumentException("Desired output does not correspont with amount of output neurons!");
+		}
+		int layers = this.weights.size();
+		Buffers b = this.buffers.get();
+		b.prepare(this, inputs.hoehe);
+		b.rows(b.ausgaben[0]).view(0, inputs.hoehe, 0, inputNeurons).copyFrom(inputs);
+		FloatMatrix outputs = this.feedForward(b);
+		// Output layer: outputs - labels if the loss is fused with it,
+		// otherwise the gradient of the loss times the derivative, see
+		// NeuralNet.outputDelta
+		FloatMatrix delta = b.rows(b.deltas[layers - 1]);
+		Activator output = this.activationFunctions.get(layers - 1);
+		Loss loss = this.getLoss();
+		FloatMatrix derivative;
+		if (loss.isFusedWith(output)) {
+			delta.copyFrom(outputs).axpy(-1, labels);
+		} else {
+			for (int i = 0; i < delta.hoehe; i++) {
+				loss.gradient(outputs.getData(), outputs.getOffset() + i * outputs.getStride(), labels.getData(),
+						labels.getOffset() + i * labels.getStride(), delta.getData(),
+						delta.getOffset() + i * delta.getStride(), delta.breite);
+			}
+			if (output instanceof Softmax) {
+				for (int i = 0; i < delta.hoehe; i++) {
+					((Softmax) output).backward(outputs.getData(), outputs.getOffset() + i * outputs.getStride(),
+							delta.getData(), delta.getOffset() + i * delta.getStride(), delta.breite);
+				}
+			} else {
+				derivative = b.rows(b.derivatives[layers - 1]);
+				transform(output, b.rows(b.eingaben[layers - 1]), derivative, true);
+				delta.hadamardInPlace(derivative);
+			}
+		}
+		for (int l = layers - 1; l >= 0; l--) {
+			delta.transposeMultiplyAddInto(b.rows(b.ausgaben[l]), gradients.get(l));
+			if (l == 0) {
+				break;
+			}
+			FloatMatrix w = this.weights.get(l);
+			FloatMatrix previousDelta = delta.multiplyInto(w.view(0, w.hoehe, 0, w.breite - 1),
+					b.rows(b.deltas[l - 1]));
+			derivative = b.rows(b.derivatives[l - 1]);
+			transform(this.activationFunctions.get(l - 1), b.rows(b.eingaben[l - 1]), derivative, true);
+			delta = previousDelta.hadamardInPlace(derivative);
+		}
+	}
+
+	/**
+	 * Performs one gradient descent step on the given mini-batch
+	 */
+	public void update_mini_batch(FloatMatrix input, FloatMatrix label, double learning_rate) {
+		if (this.gradients == null) {
+			this.gradients = new ArrayList<FloatMatrix>();
+			for (FloatMatrix w : this.weights) {
+				this.gradients.add(new FloatMatrix(w.hoehe, w.breite));
+			}
+		}
+		for (FloatMatrix g : this.gradients) {
+			g.fill(0);
+		}
+		this.backpropagateBatch(input, label, this.gradients);
+		for (int i = 0; i < this.gradients.size(); i++) {
+			this.weights.get(i).axpy((float) (-1 * learning_rate / input.hoehe), this.gradients.get(i));
+		}
+	}
+
+	/**
+	 * Trains like {@link NeuralNet#SGD}. Large products are split across
+	 * anzahl_cores threads, see {@link Matrix#setThreadParallelism(int)}.
+	 */
+	@Override
+	public void SGD(Matrix train_inputs, Matrix train_labels, Matrix test_inputs, Matrix test_labels,
+			int batch_size, int epochs, int test_every, double learning_rate, int anzahl_cores, boolean ausgabe) {
+		if (train_inputs.hoehe != train_labels.hoehe || train_inputs.breite != this.inputNeurons
+				|| train_inputs.breite != test_inputs.breite || train_labels.breite != this.outputNeurons
+				|| train_labels.breite != test_labels.breite || batch_size > train_inputs.hoehe
+				|| test_inputs.hoehe != test_labels.hoehe) {
+			throw new IllegalArgumentException();
+		}
+		this.SGD(DataSource.of(train_inputs, train_labels), DataSource.of(test_inputs, test_labels), batch_size,
+				epochs, test_every, learning_rate, anzahl_cores, ausgabe);
+	}
+
+	/**
+	 * Trains on the same mini-batches as {@link Sequential#SGD}, which are
+	 * fetched in double precision, prefetched if they are streamed or large,
+	 * and converted into float buffers that are allocated once.
+	 */
+	@Override
+	public void SGD(DataSource train, DataSource test, int batch_size, int epochs, int test_every,
+			double learning_rate, int anzahl_cores, boolean ausgabe) {
+		if (train.inputSize() != this.inputNeurons || test.inputSize() != this.inputNeurons
+				|| train.labelSize() != this.outputNeurons || test.labelSize() != this.outputNeurons
+				|| batch_size > train.size()) {
+			throw new IllegalArgumentException();
+		}
+		if (anzahl_cores > Runtime.getRuntime().availableProcessors()) {
+			throw new IllegalArgumentException(
+					"Amount of Cores may not be greater than the amount of available cores!");
+		}
+		// Products of this thread are split across anzahl_cores threads
+		int parallelism = Matrix.setThreadParallelism(anzahl_cores);
+		FloatMatrix inputBuffer = new FloatMatrix(batch_size, this.inputNeurons);
+		FloatMatrix labelBuffer = new FloatMatrix(batch_size, this.outputNeurons);
+		final long trainingStart = System.currentTimeMillis();
+		try (TrainingBatches batches = new TrainingBatches(train, batch_size, epochs)) {
+			for (int i = 1; i <= epochs; i++) {
+				final long epochStart = System.currentTimeMillis();
+				Iterator<Matrix[]> mini_batches = batches.nextEpoch();
+				while (mini_batches.hasNext()) {
+					Matrix[] batch = mini_batches.next();
+					int rows = batch[0].hoehe;
+					FloatMatrix input = inputBuffer.view(0, rows, 0, this.inputNeurons).copyFrom(batch[0]);
+					FloatMatrix label = labelBuffer.view(0, rows, 0, this.outputNeurons).copyFrom(batch[1]);
+					this.update_mini_batch(input, label, learning_rate);
+				}
+				// Evaluating epoch
+				final long epochTime = System.currentTimeMillis() - epochStart;
+				if (ausgabe) {
+					if (i % test_every == 0) {
+						double fehler = this.evaluate(test);
+						System.out.println("Epoch " + i + " complete in " + epochTime + " ms with Cost: " + fehler);
+					} else {
+						System.out.println("Epoch " + i + " complete in " + epochTime + " ms");
+					}
+				}
+			}
+		} finally {
+			Matrix.setThreadParallelism(parallelism);
+		}
+		final long trainingStop = System.currentTimeMillis();
+		if (ausgabe) {
+			System.out.println("Training complete in " + (trainingStop - trainingStart) + "ms");
+		}
+	}
+
+	/**
+	 * out = a(in), or a'(in) if derivative is set, element by element or row
+	 * by row
+	 */
+	private static void transform(Activator a, FloatMatrix in, FloatMatrix out, boolean derivative) {
+		int rows = a.isElementWise() && in.isContiguous() && out.isContiguous() ? 1 : in.hoehe;
+		int length = rows == 1 ? in.hoehe * in.breite : in.breite;
+		for (int i = 0; i < rows; i++) {
+			int inOffset = in.getOffset() + i * in.getStride();
+			int outOffset = out.getOffset() + i * out.getStride();
+			if (derivative) {
+				a.transformDerivative(in.getData(), inOffset, out.getData(), outOffset, length);
+			} else {
+				a.transform(in.getData(), inOffset, out.getData(), outOffset, length);
+			}
+		}
+	}
+
+	/**
+	 * Activation caches of one thread, grown to the largest batch seen
+	 */
+	private static final class Buffers {
+		private int capacity;
+		private int batch;
+		private FloatMatrix[] eingaben;
+		// Activations of every layer, all but the outputs with a bias column
+		private FloatMatrix[] ausgaben;
+		private FloatMatrix[] deltas;
+		private FloatMatrix[] derivatives;
+
+		void prepare(FloatNeuralNet nn, int batch) {
+			int layers = nn.weights.size();
+			boolean fits = this.eingaben != null && this.eingaben.length == layers && batch <= this.capacity
+					&& this.ausgaben[0].breite == nn.inputNeurons + 1;
+			for (int l = 0; fits && l < layers; l++) {
+				fits = this.eingaben[l].breite == nn.weights.get(l).hoehe;
+			}
+			if (!fits) {
+				this.capacity = Math.max(batch, this.capacity);
+				this.eingaben = new FloatMatrix[layers];
+				this.ausgaben = new FloatMatrix[layers + 1];
+				this.deltas = new FloatMatrix[layers];
+				this.derivatives = new FloatMatrix[layers];
+				this.ausgaben[0] = new FloatMatrix(this.capacity, nn.inputNeurons + 1);
+				for (int l = 0; l < layers; l++) {
+					int neurons = nn.weights.get(l).hoehe;
+					this.eingaben[l] = new FloatMatrix(this.capacity, neurons);
+					this.deltas[l] = new FloatMatrix(this.capacity, neurons);
+					this.derivatives[l] = new FloatMatrix(this.capacity, neurons);
+					this.ausgaben[l + 1] = new FloatMatrix(this.capacity, l == layers - 1 ? neurons : neurons + 1);
+				}
+				for (int l = 0; l < layers; l++) {
+					FloatMatrix a = this.ausgaben[l];
+					a.view(0, this.capacity, a.breite - 1, 1).fill(1);
+				}
+			}
+			this.batch = batch;
+		}
+
+		FloatMatrix rows(FloatMatrix m) {
+			if (m.hoehe == this.batch) {
+				return m;
+			}
+			return m.view(0, this.batch, 0, m.breite);
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package neuralnet;
+
+import matrix.Matrix;
+
+/**
+ * Plain stochastic gradient descent, w -= learning_rate * mean gradient.
+ * <p>
+ * This is the default optimizer of a {@link NeuralNet} and has no state.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class GradientDescent extends Optimizer {
+	private static final long serialVersionUID = 1L;
+
+	public GradientDescent() {
+		super(0);
+	}
+
+	@Override
+	public String getName() {
+		return "SGD";
+	}
+
+	@Override
+	protected void update(Matrix weights, Matrix gradients, Matrix[] state, double learning_rate, int samples,
+			long step) {
+		weights.axpy(-1 * learning_rate / samples, gradients);
+	}
+}
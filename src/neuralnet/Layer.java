@@ -0,0 +1,70 @@
+package neuralnet;
+
+import java.io.Serializable;
+import java.util.List;
+
+import matrix.Matrix;
+
+/**
+ * One layer of a {@link Sequential} model.
+ * <p>
+ * Layers work on whole batches, one sample per row. Everything a pass writes
+ * lives in the {@link LayerBuffers} it is given, the layer itself only holds
+ * its parameters, so any amount of threads can run passes through the same
+ * layer with their own buffers.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public interface Layer extends Serializable {
+
+	public int getInputSize();
+
+	public int getOutputSize();
+
+	/**
+	 * @return the matrices the optimizer updates, empty for layers without
+	 *         parameters
+	 */
+	public List<Matrix> getParameters();
+
+	/**
+	 * @return whether the outputs of a sample depend on the other samples of
+	 *         the batch while training, like the statistics of
+	 *         {@link BatchNorm}. Batches of models with such a layer are not
+	 *         split across the workers of the {@link TrainingExecutor}.
+	 */
+	public default boolean isBatchDependent() {
+		return false;
+	}
+
+	/**
+	 * @param input
+	 *            inputs, shape(batch, inputSize)
+	 * @param training
+	 *            whether the pass is followed by
+	 *            {@link #backward(Matrix, LayerBuffers, List, boolean)}. Layers
+	 *            like {@link Dropout} behave differently while training.
+	 * @return outputs, shape(batch, outputSize). The matrix belongs to the
+	 *         buffers, or is the input itself, and has to stay unchanged
+	 *         until the backward pass.
+	 */
+	public Matrix forward(Matrix input, LayerBuffers buffers, boolean training);
+
+	/**
+	 * Backward pass of the last forward pass on the given buffers
+	 *
+	 * @param error
+	 *            error of the outputs, shape(batch, outputSize). May be
+	 *            overwritten.
+	 * @param gradients
+	 *            one matrix per parameter with the same dimensions, the
+	 *            gradients of this batch are added to it
+	 * @param propagate
+	 *            whether the error of the inputs is needed
+	 * @return error of the inputs, shape(batch, inputSize), or null if not
+	 *         propagated
+	 */
+	public Matrix backward(Matrix error, LayerBuffers buffers, List<Matrix> gradients, boolean propagate);
+}
@@ -0,0 +1,58 @@
+package neuralnet;
+
+import matrix.Matrix;
+
+/**
+ * Batch buffers of one {@link Layer} in a {@link Workspace}.
+ * <p>
+ * A layer asks for its buffers by slot number. A slot keeps its matrix as
+ * long as the amount of columns stays the same and the batch fits, so a
+ * backward pass finds what the forward pass of the same batch left in it,
+ * and training with a fixed batch size allocates nothing after the first
+ * batch.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public final class LayerBuffers {
+	private Matrix[] slots = new Matrix[0];
+	// Input and output of the last forward pass, set by Sequential
+	Matrix input;
+	Matrix output;
+
+	/**
+	 * @return the first rows rows of the matrix of the given slot, shape(rows,
+	 *         columns)
+	 */
+	public Matrix get(int slot, int rows, int columns) {
+		if (slot >= this.slots.length) {
+			Matrix[] slots = new Matrix[slot + 1];
+			System.arraycopy(this.slots, 0, slots, 0, this.slots.length);
+			this.slots = slots;
+		}
+		Matrix m = this.slots[slot];
+		if (m == null || m.breite != columns || m.hoehe < rows) {
+			m = new Matrix(m != null && m.breite == columns ? Math.max(rows, m.hoehe) : rows, columns);
+			this.slots[slot] = m;
+		}
+		if (m.hoehe == rows) {
+			return m;
+		}
+		return m.view(0, rows, 0, columns);
+	}
+
+	/**
+	 * @return the input of the last forward pass through the layer
+	 */
+	public Matrix getInput() {
+		return this.input;
+	}
+
+	/**
+	 * @return the output of the last forward pass through the layer
+	 */
+	public Matrix getOutput() {
+		return this.output;
+	}
+}
@@ -0,0 +1,213 @@
+package neuralnet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import matrix.Matrix;
+
+/**
+ * Manual correctness check of the backward passes of the {@link Layer}s of a
+ * {@link Sequential} model against central differences of its loss.
+ * <p>
+ * Covers stacks of {@link Dense}, {@link BatchNorm} and {@link Dropout} with
+ * every {@link Loss} and output activation, the single-sample backpropagation
+ * against the batch one, steps split across the workers of the
+ * {@link TrainingExecutor} against one pass on the calling thread, and the
+ * masks of {@link Dropout}.
+ * Output is to be found on the command line, the exit code is 1 if any
+ * check fails.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class LayerGradientTest {
+	private static final double H = 1e-6;
+	private static final double EPS = 1e-5;
+	private static final Random r = new Random(42);
+	private static int failed = 0;
+
+	public static void main(String[] args) {
+		checkGradients(new SumSquaredError(), new Sigmoid());
+		checkGradients(new SumSquaredError(), new Softmax());
+		checkGradients(new BinaryCrossEntropy(), new Sigmoid());
+		checkGradients(new CategoricalCrossEntropy(), new Softmax());
+		checkSingleSample();
+		checkExecutor(false);
+		checkExecutor(true);
+		checkDropout();
+		if (failed == 0) {
+			System.out.println("All checks passed");
+		} else {
+			System.out.println(failed + " checks failed");
+			System.exit(1);
+		}
+	}
+
+	private static Sequential model(Loss loss, Activator output) {
+		Sequential nn = new Sequential(new Dense(4, 6, new Sigmoid()), new BatchNorm(6), new Dense(6, 5, new Sigmoid()),
+				new Dropout(5, 0), new BatchNorm(5), new Dense(5, 3, output));
+		nn.setLoss(loss);
+		for (Matrix p : nn.getParameters()) {
+			double[] d = p.getData();
+			for (int i = 0; i < d.length; i++) {
+				d[i] += 0.3 * r.nextGaussian();
+			}
+		}
+		return nn;
+	}
+
+	private static void checkGradients(Loss loss, Activator output) {
+		Sequential nn = model(loss, output);
+		Matrix x = random(7, 4);
+		Matrix y = labels(7, 3);
+		ArrayList<Matrix> gradients = nn.backpropagateBatch(x, y);
+		double maxDiff = 0;
+		for (int l = 0; l < gradients.size(); l++) {
+			Matrix w = nn.getParameters().get(l);
+			for (int i = 0; i < w.hoehe; i++) {
+				for (int j = 0; j < w.breite; j++) {
+					double old = w.get(i, j);
+					w.set(i, j, old + H);
+					double plus = cost(nn, x, y);
+					w.set(i, j, old - H);
+					double minus = cost(nn, x, y);
+					w.set(i, j, old);
+					double numeric = (plus - minus) / (2 * H);
+					double analytic = gradients.get(l).get(i, j);
+					maxDiff = Math.max(maxDiff, Math.abs(numeric - analytic) / Math.max(1, Math.abs(numeric)));
+				}
+			}
+		}
+		check(loss.getName() + " with " + output + " gradients", maxDiff < EPS, maxDiff);
+	}
+
+	/**
+	 * Loss of a training mode pass, which is what the gradients are of. The
+	 * moving averages of the BatchNorm layers change, but are not used.
+	 */
+	private static double cost(Sequential nn, Matrix x, Matrix y) {
+		Matrix current = x;
+		for (Layer layer : nn.getLayers()) {
+			current = layer.forward(current, new LayerBuffers(), true);
+		}
+		return nn.getLoss().value(current, y);
+	}
+
+	private static void checkSingleSample() {
+		Sequential nn = new Sequential(new Dense(5, 8, new Relu()), new Dense(8, 3, new Softmax()));
+		nn.setLoss(new CategoricalCrossEntropy());
+		Matrix x = random(1, 5);
+		Matrix y = labels(1, 3);
+		ArrayList<Matrix> batch = nn.backpropagateBatch(x, y);
+		nn.feedForward(x.getData());
+		ArrayList<Matrix> single = nn.backpropagate(y.getData());
+		check("single sample equals batch of one", maxDiff(batch, single) == 0, maxDiff(batch, single));
+	}
+
+	/**
+	 * One step on the executor with 3 workers against one pass on the calling
+	 * thread. Models with BatchNorm are not split and have to be bit
+	 * identical.
+	 */
+	private static void checkExecutor(boolean batchNorm) {
+		Sequential a = batchNorm ? new Sequential(new Dense(6, 8, new Relu()), new BatchNorm(8),
+				new Dense(8, 3, new Softmax())) : new Sequential(new Dense(6, 8, new Relu()),
+						new Dense(8, 3, new Softmax()));
+		ArrayList<Layer> copies = new ArrayList<Layer>();
+		for (Layer layer : a.getLayers()) {
+			if (layer instanceof Dense) {
+				Dense d = (Dense) layer;
+				copies.add(new Dense(d.getWeights().copy(), d.getActivator()));
+			} else {
+				copies.add(new BatchNorm(layer.getInputSize()));
+			}
+		}
+		Sequential b = new Sequential(copies);
+		Matrix x = random(50, 6);
+		Matrix y = labels(50, 3);
+		for (int step = 0; step < 3; step++) {
+			a.update_mini_batch(x, y, 0.1, 3);
+			b.update_mini_batch2(x, y, 0.1, 1);
+		}
+		double diff = maxDiff(a.getParameters(), b.getParameters());
+		String name = (batchNorm ? "BatchNorm " : "") + "steps on 3 workers equal one pass";
+		check(name, batchNorm ? diff == 0 : diff < 1e-12, diff);
+	}
+
+	private static void checkDropout() {
+		Dropout dropout = new Dropout(1000, 0.3, new Random(7));
+		LayerBuffers buffers = new LayerBuffers();
+		Matrix in = new Matrix(4, 1000).fill(1);
+		Matrix out = dropout.forward(in, buffers, true);
+		double sum = 0;
+		int zeros = 0;
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 1000; j++) {
+				sum += out.get(i, j);
+				zeros += out.get(i, j) == 0 ? 1 : 0;
+			}
+		}
+		check("dropout rate", Math.abs(zeros / 4000.0 - 0.3) < 0.03, zeros / 4000.0);
+		check("dropout expectation", Math.abs(sum / 4000 - 1) < 0.05, sum / 4000);
+		Matrix error = new Matrix(4, 1000).fill(2);
+		Matrix back = dropout.backward(error, buffers, Collections.<Matrix>emptyList(), true);
+		double diff = 0;
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 1000; j++) {
+				diff = Math.max(diff, Math.abs(back.get(i, j) - 2 * out.get(i, j)));
+			}
+		}
+		check("dropout backward uses the mask", diff == 0, diff);
+		check("dropout inference passes the input", dropout.forward(in, buffers, false) == in, 0);
+		Matrix first = new Dropout(1000, 0.3, new Random(7)).forward(in, new LayerBuffers(), true);
+		check("seeded dropout is reproducible", maxDiff(first, out) == 0, maxDiff(first, out));
+	}
+
+	private static void check(String name, boolean ok, double value) {
+		if (!ok) {
+			failed++;
+		}
+		System.out.println((ok ? "ok     " : "FAILED ") + name + " " + value);
+	}
+
+	private static double maxDiff(ArrayList<Matrix> a, ArrayList<Matrix> b) {
+		double diff = 0;
+		for (int i = 0; i < a.size(); i++) {
+			diff = Math.max(diff, maxDiff(a.get(i), b.get(i)));
+		}
+		return diff;
+	}
+
+	private static double maxDiff(Matrix a, Matrix b) {
+		double diff = 0;
+		for (int i = 0; i < a.hoehe; i++) {
+			for (int j = 0; j < a.breite; j++) {
+				diff = Math.max(diff, Math.abs(a.get(i, j) - b.get(i, j)));
+			}
+		}
+		return diff;
+	}
+
+	private static Matrix random(int hoehe, int breite) {
+		Matrix m = new Matrix(hoehe, breite);
+		for (int i = 0; i < hoehe; i++) {
+			for (int j = 0; j < breite; j++) {
+				m.set(i, j, r.nextGaussian());
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * One-hot labels
+	 */
+	private static Matrix labels(int hoehe, int breite) {
+		Matrix m = new Matrix(hoehe, breite);
+		for (int i = 0; i < hoehe; i++) {
+			m.set(i, r.nextInt(breite), 1);
+		}
+		return m;
+	}
+}
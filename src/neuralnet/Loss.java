@@ -0,0 +1,110 @@
+package neuralnet;
+
+import java.io.Serializable;
+
+import matrix.Matrix;
+
+/**
+ * Cost of the outputs of a net for the desired outputs, see
+ * {@link NeuralNet#setLoss(Loss)}.
+ * <p>
+ * A loss works on the outputs of one sample at a time, given as a range of an
+ * array like the array methods of {@link Activator}, so the single sample
+ * methods, the batched training and the evaluation of the nets all use the
+ * same loops and do not allocate. The matrix methods apply it to every row of
+ * a batch.
+ * </p>
+ * <p>
+ * The value of a sample is summed over its outputs. Training needs the error
+ * of the weighted sums of the output layer; it is the gradient of the loss
+ * times the derivative of the output layer, unless the loss is fused with the
+ * output layer, see {@link #isFusedWith(Activator)}.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public interface Loss extends Serializable {
+	/**
+	 * Names of the losses {@link #create(String)} knows
+	 */
+	public static final String[] NAMES = { "Squared error", "Binary cross-entropy", "Categorical cross-entropy" };
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if name is none of {@link #NAMES}
+	 */
+	public static Loss create(String name) {
+		if (name.equals("Squared error")) {
+			return new SumSquaredError();
+		} else if (name.equals("Binary cross-entropy")) {
+			return new BinaryCrossEntropy();
+		} else if (name.equals("Categorical cross-entropy")) {
+			return new CategoricalCrossEntropy();
+		}
+		throw new IllegalArgumentException("Unknown loss " + name);
+	}
+
+	/**
+	 * @return the name of this loss in {@link #NAMES}
+	 */
+	public String getName();
+
+	/**
+	 * @return the loss of one sample, summed over its outputs
+	 */
+	public double value(double[] outputs, int outputOffset, double[] labels, int labelOffset, int length);
+
+	/**
+	 * dest = the derivative of the loss of one sample by its outputs
+	 */
+	public void gradient(double[] outputs, int outputOffset, double[] labels, int labelOffset, double[] dest,
+			int destOffset, int length);
+
+	/**
+	 * Single precision version of
+	 * {@link #gradient(double[], int, double[], int, double[], int, int)}
+	 */
+	public void gradient(float[] outputs, int outputOffset, float[] labels, int labelOffset, float[] dest,
+			int destOffset, int length);
+
+	/**
+	 * @return whether the error of the weighted sums of an output layer with
+	 *         the given activator is simply outputs - labels, so neither the
+	 *         gradient nor the derivative has to be computed
+	 */
+	public default boolean isFusedWith(Activator output) {
+		return false;
+	}
+
+	/**
+	 * @return whether the loss is defined for the outputs of the given
+	 *         activator
+	 */
+	public default boolean accepts(Activator output) {
+		return true;
+	}
+
+	/**
+	 * @return the loss summed over all rows
+	 */
+	public default double value(Matrix outputs, Matrix labels) {
+		double res = 0;
+		for (int i = 0; i < outputs.hoehe; i++) {
+			res += this.value(outputs.getData(), outputs.getOffset() + i * outputs.getStride(), labels.getData(),
+					labels.getOffset() + i * labels.getStride(), outputs.breite);
+		}
+		return res;
+	}
+
+	/**
+	 * dest = the gradient of every row
+	 */
+	public default void gradient(Matrix outputs, Matrix labels, Matrix dest) {
+		for (int i = 0; i < outputs.hoehe; i++) {
+			this.gradient(outputs.getData(), outputs.getOffset() + i * outputs.getStride(), labels.getData(),
+					labels.getOffset() + i * labels.getStride(), dest.getData(),
+					dest.getOffset() + i * dest.getStride(), outputs.breite);
+		}
+	}
+}
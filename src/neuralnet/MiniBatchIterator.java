@@ -0,0 +1,151 @@
+package neuralnet;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import backpropagation.DataSource;
+import backpropagation.MatrixDataSource;
+import matrix.Matrix;
+
+/**
+ * Streams the mini-batches of one epoch.
+ * <p>
+ * Every epoch starts with a Fisher-Yates shuffle of an index permutation,
+ * which is O(n). The rows of a batch are then fetched from the
+ * {@link DataSource} into two buffers that are allocated once and reused for
+ * every batch of every epoch; the last, smaller batch is a view of the first
+ * rows of the buffers. Without shuffling the batches of a
+ * {@link MatrixDataSource} are views of the data itself and nothing is copied
+ * at all.
+ * </p>
+ * <p>
+ * The returned array and its matrices are only valid until the next call of
+ * {@link #next()}.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class MiniBatchIterator implements Iterator<Matrix[]> {
+	private final DataSource source;
+	private final Matrix inputs;
+	private final Matrix labels;
+	private final int size;
+	private final int batchSize;
+	private final boolean shuffle;
+	private final Random random;
+	private final int[] permutation;
+	private final Matrix inputBuffer;
+	private final Matrix labelBuffer;
+	private final Matrix[] batch;
+	private int position;
+
+	public MiniBatchIterator(Matrix inputs, Matrix labels, int batchSize) {
+		this(DataSource.of(inputs, labels), batchSize);
+	}
+
+	public MiniBatchIterator(Matrix inputs, Matrix labels, int batchSize, boolean shuffle, Random random) {
+		this(DataSource.of(inputs, labels), batchSize, shuffle, random);
+	}
+
+	public MiniBatchIterator(DataSource source, int batchSize) {
+		this(source, batchSize, true, new Random());
+	}
+
+	public MiniBatchIterator(DataSource source, int batchSize, boolean shuffle, Random random) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size has to be at least 1");
+		}
+		this.source = source;
+		if (source instanceof MatrixDataSource) {
+			this.inputs = ((MatrixDataSource) source).getInputs();
+			this.labels = ((MatrixDataSource) source).getLabels();
+		} else {
+			this.inputs = null;
+			this.labels = null;
+		}
+		this.size = source.size();
+		this.batchSize = Math.min(batchSize, Math.max(1, this.size));
+		this.shuffle = shuffle;
+		this.random = random;
+		this.batch = new Matrix[2];
+		if (shuffle) {
+			this.permutation = new int[this.size];
+			for (int i = 0; i < this.permutation.length; i++) {
+				this.permutation[i] = i;
+			}
+		} else {
+			this.permutation = null;
+		}
+		if (shuffle || this.inputs == null) {
+			this.inputBuffer = new Matrix(this.batchSize, source.inputSize());
+			this.labelBuffer = new Matrix(this.batchSize, source.labelSize());
+		} else {
+			this.inputBuffer = null;
+			this.labelBuffer = null;
+		}
+		this.nextEpoch();
+	}
+
+	/**
+	 * Starts a new epoch, reshuffling the rows if shuffling is enabled
+	 */
+	public void nextEpoch() {
+		if (this.shuffle) {
+			for (int i = this.permutation.length - 1; i > 0; i--) {
+				int j = this.random.nextInt(i + 1);
+				int tmp = this.permutation[i];
+				this.permutation[i] = this.permutation[j];
+				this.permutation[j] = tmp;
+			}
+		}
+		this.position = 0;
+	}
+
+	public boolean uses(Matrix inputs, Matrix labels, int batchSize) {
+		return this.inputs == inputs && this.labels == labels
+				&& this.batchSize == Math.min(batchSize, Math.max(1, inputs.hoehe));
+	}
+
+	public boolean uses(DataSource source, int batchSize) {
+		return this.source.equals(source) && this.batchSize == Math.min(batchSize, Math.max(1, source.size()));
+	}
+
+	public int batchesPerEpoch() {
+		return (this.size + this.batchSize - 1) / this.batchSize;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return this.position < this.size;
+	}
+
+	@Override
+	public Matrix[] next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		int rows = Math.min(this.batchSize, this.size - this.position);
+		if (this.inputBuffer != null) {
+			Matrix in = this.inputBuffer;
+			Matrix lab = this.labelBuffer;
+			if (rows < this.batchSize) {
+				in = in.view(0, rows, 0, in.breite);
+				lab = lab.view(0, rows, 0, lab.breite);
+			}
+			if (this.shuffle) {
+				this.source.fetchRowsInto(this.permutation, this.position, in, lab);
+			} else {
+				this.source.fetchRangeInto(this.position, in, lab);
+			}
+			this.batch[0] = in;
+			this.batch[1] = lab;
+		} else {
+			this.batch[0] = this.inputs.view(this.position, rows, 0, this.inputs.breite);
+			this.batch[1] = this.labels.view(this.position, rows, 0, this.labels.breite);
+		}
+		this.position += rows;
+		return this.batch;
+	}
+}
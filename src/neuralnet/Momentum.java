@@ -0,0 +1,43 @@
+package neuralnet;
+
+import matrix.Matrix;
+
+/**
+ * Gradient descent with momentum: v = momentum * v + mean gradient,
+ * w -= learning_rate * v
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class Momentum extends Optimizer {
+	private static final long serialVersionUID = 1L;
+
+	public Momentum() {
+		this(0.9);
+	}
+
+	public Momentum(double momentum) {
+		super(1, momentum);
+	}
+
+	@Override
+	public String getName() {
+		return "Momentum";
+	}
+
+	@Override
+	protected void update(Matrix weights, Matrix gradients, Matrix[] state, double learning_rate, int samples,
+			long step) {
+		double momentum = this.parameters[0];
+		double scale = 1.0 / samples;
+		double[] w = weights.getData();
+		double[] g = gradients.getData();
+		double[] v = state[0].getData();
+		int wo = weights.getOffset();
+		int go = gradients.getOffset();
+		for (int i = 0, n = weights.hoehe * weights.breite; i < n; i++) {
+			v[i] = momentum * v[i] + scale * g[go + i];
+			w[wo + i] -= learning_rate * v[i];
+		}
+	}
+}
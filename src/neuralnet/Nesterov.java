@@ -0,0 +1,45 @@
+package neuralnet;
+
+import matrix.Matrix;
+
+/**
+ * Gradient descent with Nesterov momentum: v = momentum * v + mean gradient,
+ * w -= learning_rate * (mean gradient + momentum * v), which looks ahead
+ * along the velocity
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class Nesterov extends Optimizer {
+	private static final long serialVersionUID = 1L;
+
+	public Nesterov() {
+		this(0.9);
+	}
+
+	public Nesterov(double momentum) {
+		super(1, momentum);
+	}
+
+	@Override
+	public String getName() {
+		return "Nesterov";
+	}
+
+	@Override
+	protected void update(Matrix weights, Matrix gradients, Matrix[] state, double learning_rate, int samples,
+			long step) {
+		double momentum = this.parameters[0];
+		double scale = 1.0 / samples;
+		double[] w = weights.getData();
+		double[] g = gradients.getData();
+		double[] v = state[0].getData();
+		int wo = weights.getOffset();
+		int go = gradients.getOffset();
+		for (int i = 0, n = weights.hoehe * weights.breite; i < n; i++) {
+			double d = scale * g[go + i];
+			v[i] = momentum * v[i] + d;
+			w[wo + i] -= learning_rate * (d + momentum * v[i]);
+		}
+	}
+}
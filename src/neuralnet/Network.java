@@ -0,0 +1,50 @@
+package neuralnet;
+
+import backpropagation.DataSource;
+import matrix.Matrix;
+
+/**
+ * What the trainers need from a net, independent of the precision it
+ * computes in. Inputs and results are always double precision matrices.
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public interface Network {
+
+	public Precision getPrecision();
+
+	/**
+	 * @param inputs
+	 *            inputs, shape(batch, inputNeurons)
+	 * @return outputs, shape(batch, outputNeurons)
+	 */
+	public Matrix feedForwardBatch(Matrix inputs);
+
+	/**
+	 * @return mean cost over all samples, the squared error or the
+	 *         cross-entropy the net is trained with
+	 */
+	public double evaluate(Matrix testInputs, Matrix testLabels);
+
+	/**
+	 * @return mean cost over all samples of the source
+	 */
+	public double evaluate(DataSource test);
+
+	/**
+	 * @return cost, log-loss and accuracy over all samples of the source, in
+	 *         one pass
+	 */
+	public Evaluation evaluateAll(DataSource test);
+
+	public void SGD(Matrix train_inputs, Matrix train_labels, Matrix test_inputs, Matrix test_labels,
+			int batch_size, int epochs, int test_every, double learning_rate, int anzahl_cores, boolean ausgabe);
+
+	/**
+	 * Trains on mini-batches fetched from train, so the train data does not
+	 * have to be in memory as a whole
+	 */
+	public void SGD(DataSource train, DataSource test, int batch_size, int epochs, int test_every,
+			double learning_rate, int anzahl_cores, boolean ausgabe);
+}
@@ -0,0 +1,188 @@
+package neuralnet;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import matrix.Matrix;
+
+/**
+ * Update rule that turns the gradients of a mini-batch into new weights.
+ * <p>
+ * An optimizer belongs to one net. Its state, like the velocities of
+ * {@link Momentum} or the moments of {@link Adam}, is one matrix per buffer
+ * and layer of the shape of the weights; the buffers are allocated on the
+ * first step and updated in place afterwards. The state is serialized with
+ * the net and written to model files, so training continues where a
+ * checkpoint left off.
+ * </p>
+ * <p>
+ * The hyper parameters of an optimizer, like its decay rates, are kept in
+ * {@link #parameters}, so model files can store them without knowing the
+ * optimizer. Every optimizer needs a constructor without arguments for that.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public abstract class Optimizer implements Serializable {
+	private static final long serialVersionUID = 1L;
+	/**
+	 * Names of the optimizers {@link #create(String)} knows
+	 */
+	public static final String[] NAMES = { "SGD", "Momentum", "Nesterov", "Adam", "RMSProp" };
+
+	protected final double[] parameters;
+	private final int buffers;
+	private ArrayList<Matrix[]> state;
+	private long steps;
+
+	/**
+	 * @param buffers
+	 *            amount of state matrices per layer
+	 * @param parameters
+	 *            hyper parameters of the optimizer
+	 */
+	protected Optimizer(int buffers, double... parameters) {
+		this.buffers = buffers;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * @return a new optimizer with its default hyper parameters
+	 * @throws IllegalArgumentException
+	 *             if name is none of {@link #NAMES}
+	 */
+	public static Optimizer create(String name) {
+		if (name.equals("SGD")) {
+			return new GradientDescent();
+		} else if (name.equals("Momentum")) {
+			return new Momentum();
+		} else if (name.equals("Nesterov")) {
+			return new Nesterov();
+		} else if (name.equals("Adam")) {
+			return new Adam();
+		} else if (name.equals("RMSProp")) {
+			return new RMSProp();
+		}
+		throw new IllegalArgumentException("Unknown optimizer " + name);
+	}
+
+	/**
+	 * @return the name of this optimizer in {@link #NAMES}
+	 */
+	public abstract String getName();
+
+	/**
+	 * Updates one layer
+	 *
+	 * @param weights
+	 *            weights of the layer, updated in place
+	 * @param gradients
+	 *            gradients of the layer, summed over samples samples
+	 * @param state
+	 *            the state buffers of the layer
+	 * @param step
+	 *            number of this step, starting at 1
+	 */
+	protected abstract void update(Matrix weights, Matrix gradients, Matrix[] state, double learning_rate,
+			int samples, long step);
+
+	/**
+	 * Performs one step on all layers
+	 *
+	 * @param gradients
+	 *            gradients of the weights, summed over samples samples
+	 */
+	public void step(ArrayList<Matrix> weights, ArrayList<Matrix> gradients, double learning_rate, int samples) {
+		if (this.state == null || !fits(this.state, weights)) {
+			this.state = new ArrayList<Matrix[]>();
+			for (Matrix w : weights) {
+				Matrix[] s = new Matrix[this.buffers];
+				for (int b = 0; b < this.buffers; b++) {
+					s[b] = new Matrix(w.hoehe, w.breite);
+				}
+				this.state.add(s);
+			}
+			this.steps = 0;
+		}
+		this.steps++;
+		for (int i = 0; i < weights.size(); i++) {
+			Matrix w = weights.get(i);
+			Matrix g = gradients.get(i);
+			if (!w.isContiguous() || !g.isContiguous()) {
+				throw new IllegalArgumentException("Optimizers need contiguous weights and gradients");
+			}
+			this.update(w, g, this.state.get(i), learning_rate, samples, this.steps);
+		}
+	}
+
+	/**
+	 * @return amount of state matrices per layer
+	 */
+	public int getBuffers() {
+		return this.buffers;
+	}
+
+	public double[] getParameters() {
+		return this.parameters.clone();
+	}
+
+	public void setParameters(double[] parameters) {
+		if (parameters.length != this.parameters.length) {
+			throw new IllegalArgumentException(
+					this.getName() + " has " + this.parameters.length + " parameters, not " + parameters.length);
+		}
+		System.arraycopy(parameters, 0, this.parameters, 0, parameters.length);
+	}
+
+	/**
+	 * @return amount of steps since the state was allocated
+	 */
+	public long getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * @return the state buffers of every layer, or null before the first step
+	 */
+	public ArrayList<Matrix[]> getState() {
+		return this.state;
+	}
+
+	/**
+	 * Continues from a saved state
+	 *
+	 * @param state
+	 *            {@link #getBuffers()} matrices per layer
+	 */
+	public void setState(long steps, ArrayList<Matrix[]> state) {
+		for (Matrix[] s : state) {
+			if (s.length != this.buffers) {
+				throw new IllegalArgumentException(
+						this.getName() + " has " + this.buffers + " buffers per layer, not " + s.length);
+			}
+		}
+		this.steps = steps;
+		this.state = state;
+	}
+
+	private static boolean fits(ArrayList<Matrix[]> state, ArrayList<Matrix> weights) {
+		if (state.size() != weights.size()) {
+			return false;
+		}
+		for (int i = 0; i < weights.size(); i++) {
+			for (Matrix s : state.get(i)) {
+				if (s.hoehe != weights.get(i).hoehe || s.breite != weights.get(i).breite) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return this.getName() + Arrays.toString(this.parameters);
+	}
+}
@@ -0,0 +1,41 @@
+package neuralnet;
+
+import java.util.ArrayList;
+
+/**
+ * Floating point precision a net stores its weights and computes in
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public enum Precision {
+	/**
+	 * {@link NeuralNet}, 64 bit
+	 */
+	DOUBLE,
+	/**
+	 * {@link FloatNeuralNet}, 32 bit. Half the memory and memory traffic,
+	 * which is accurate enough for nets of the size of MNIST.
+	 */
+	FLOAT;
+
+	/**
+	 * Creates a new, randomly initialized net of this precision
+	 */
+	public Network create(int inputNeurons, int outputNeurons, ArrayList<Integer> hiddenNeurons,
+			ArrayList<Activator> activationFunctions) {
+		NeuralNet nn = new NeuralNet(inputNeurons, outputNeurons, hiddenNeurons, activationFunctions);
+		return this.convert(nn);
+	}
+
+	/**
+	 * Converts an existing, e.g. loaded, net to this precision. The weights
+	 * are copied unless the net already has this precision.
+	 */
+	public Network convert(NeuralNet nn) {
+		if (this == FLOAT) {
+			return new FloatNeuralNet(nn);
+		}
+		return nn;
+	}
+}
@@ -0,0 +1,45 @@
+package neuralnet;
+
+import matrix.Matrix;
+
+/**
+ * RMSProp: the step of every weight is divided by the running root mean
+ * square of its gradients
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class RMSProp extends Optimizer {
+	private static final long serialVersionUID = 1L;
+
+	public RMSProp() {
+		this(0.9, 1e-8);
+	}
+
+	public RMSProp(double decay, double epsilon) {
+		super(1, decay, epsilon);
+	}
+
+	@Override
+	public String getName() {
+		return "RMSProp";
+	}
+
+	@Override
+	protected void update(Matrix weights, Matrix gradients, Matrix[] state, double learning_rate, int samples,
+			long step) {
+		double decay = this.parameters[0];
+		double epsilon = this.parameters[1];
+		double scale = 1.0 / samples;
+		double[] w = weights.getData();
+		double[] g = gradients.getData();
+		double[] s = state[0].getData();
+		int wo = weights.getOffset();
+		int go = gradients.getOffset();
+		for (int i = 0, n = weights.hoehe * weights.breite; i < n; i++) {
+			double d = scale * g[go + i];
+			s[i] = decay * s[i] + (1 - decay) * d * d;
+			w[wo + i] -= learning_rate * d / (Math.sqrt(s[i]) + epsilon);
+		}
+	}
+}
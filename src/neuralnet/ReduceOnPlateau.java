@@ -0,0 +1,36 @@
+package neuralnet;
+
+/**
+ * Multiplies the learning rate by factor once the test cost has not improved
+ * for patience epochs, but not below minLearningRate
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class ReduceOnPlateau implements TrainingCallback {
+	private final int patience;
+	private final double factor;
+	private final double minLearningRate;
+	private double bestCost = Double.MAX_VALUE;
+	private int waited;
+
+	public ReduceOnPlateau(int patience, double factor, double minLearningRate) {
+		if (patience < 1) {
+			throw new IllegalArgumentException("Patience has to be at least one epoch");
+		}
+		this.patience = patience;
+		this.factor = factor;
+		this.minLearningRate = minLearningRate;
+	}
+
+	@Override
+	public void epochFinished(TrainingController controller, double cost) {
+		if (cost < this.bestCost) {
+			this.bestCost = cost;
+			this.waited = 0;
+		} else if (++this.waited >= this.patience) {
+			controller.setLearningRate(Math.max(this.minLearningRate, controller.getLearningRate() * this.factor));
+			this.waited = 0;
+		}
+	}
+}
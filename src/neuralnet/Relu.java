@@ -1,6 +1,8 @@
 package neuralnet;
 
-public class Relu extends Activator {
+import matrix.Kernels;
+
+public class Relu extends ElementWiseActivator {
 
 	/**
 	 * 
@@ -20,6 +22,30 @@ public class Relu extends Activator {
 		return 1.0;
 	}
 
+	@Override
+	public void transform(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		Kernels.get().relu(in, inOffset, out, outOffset, length);
+	}
+
+	@Override
+	public void transformDerivative(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		Kernels.get().reluDerivative(in, inOffset, out, outOffset, length);
+	}
+
+	@Override
+	public void transform(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = Math.max(0f, in[inOffset + i]);
+		}
+	}
+
+	@Override
+	public void transformDerivative(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = in[inOffset + i] < 0 ? 0f : 1f;
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "Relu";
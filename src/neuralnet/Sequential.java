@@ -0,0 +1,512 @@
+package neuralnet;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import backpropagation.DataSource;
+import matrix.Matrix;
+
+/**
+ * A stack of {@link Layer}s, each one fed with the outputs of the one before.
+ * <p>
+ * The model runs the layers forward and backward over whole batches, trains
+ * them with its {@link Loss} and {@link Optimizer} and leaves everything else
+ * to the layers, so new kinds of layers need no change here. A net of
+ * {@link Dense}, {@link BatchNorm} and {@link Dropout} layers is built as
+ * </p>
+ *
+ * <pre>
+ * new Sequential(new Dense(784, 256, new Relu()), new BatchNorm(256), new Dropout(256, 0.2),
+ * 		new Dense(256, 10, new Softmax()));
+ * </pre>
+ * <p>
+ * {@link NeuralNet} is the sequential model of only dense layers the GUI and
+ * the model files know.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class Sequential implements Network, Serializable {
+
+	private static final long serialVersionUID = 1L;
+	// Rows fed forward at once when evaluating whole datasets
+	private static final int EVALUATION_BATCH = 256;
+	private ArrayList<Layer> layers;
+	// Null until set or first used, see getOptimizer() and getLoss()
+	private Optimizer optimizer;
+	private Loss loss;
+	// The parameters of all layers and the index of the first one of every
+	// layer
+	private transient ArrayList<Matrix> parameters;
+	private transient int[] parameterOffsets;
+	// Caches of the methods that are called without a workspace
+	private transient ThreadLocal<Workspace> workspaces;
+
+	public Sequential(Layer... layers) {
+		this(Arrays.asList(layers));
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if there are no layers or the inputs of a layer do not
+	 *             correspond with the outputs of the one before
+	 */
+	public Sequential(List<Layer> layers) {
+		this.workspaces = ThreadLocal.withInitial(Workspace::new);
+		this.setLayers(layers);
+	}
+
+	/**
+	 * For subclasses that set their layers later with
+	 * {@link #setLayers(List)}
+	 */
+	Sequential() {
+		this.workspaces = ThreadLocal.withInitial(Workspace::new);
+	}
+
+	void setLayers(List<Layer> layers) {
+		if (layers.isEmpty()) {
+			throw new IllegalArgumentException("A model needs at least one layer!");
+		}
+		for (int i = 0; i + 1 < layers.size(); i++) {
+			if (layers.get(i).getOutputSize() != layers.get(i + 1).getInputSize()) {
+				throw new IllegalArgumentException("Inputs of " + layers.get(i + 1)
+						+ " do not correspond with the outputs of " + layers.get(i) + "!");
+			}
+		}
+		this.layers = new ArrayList<Layer>(layers);
+		this.parameters = null;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.workspaces = ThreadLocal.withInitial(Workspace::new);
+	}
+
+	/**
+	 * Nets saved before there were sequential models, their layers are set by
+	 * the subclass
+	 */
+	private void readObjectNoData() {
+		this.workspaces = ThreadLocal.withInitial(Workspace::new);
+	}
+
+	public List<Layer> getLayers() {
+		return Collections.unmodifiableList(this.layers);
+	}
+
+	public int getInputSize() {
+		return this.layers.get(0).getInputSize();
+	}
+
+	public int getOutputSize() {
+		return this.layers.get(this.layers.size() - 1).getOutputSize();
+	}
+
+	/**
+	 * @return the parameters of all layers in order, the list the optimizer
+	 *         updates
+	 */
+	public ArrayList<Matrix> getParameters() {
+		if (this.parameters == null) {
+			ArrayList<Matrix> parameters = new ArrayList<Matrix>();
+			int[] offsets = new int[this.layers.size() + 1];
+			for (int i = 0; i < this.layers.size(); i++) {
+				offsets[i] = parameters.size();
+				parameters.addAll(this.layers.get(i).getParameters());
+			}
+			offsets[this.layers.size()] = parameters.size();
+			this.parameterOffsets = offsets;
+			this.parameters = parameters;
+		}
+		return this.parameters;
+	}
+
+	/**
+	 * @return whether a layer depends on the whole batch while training, see
+	 *         {@link Layer#isBatchDependent()}
+	 */
+	public boolean isBatchDependent() {
+		for (Layer l : this.layers) {
+			if (l.isBatchDependent()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the activator of the output layer if it is a {@link Dense}
+	 *         layer, otherwise null
+	 */
+	public Activator getOutputActivator() {
+		Layer output = this.layers.get(this.layers.size() - 1);
+		return output instanceof Dense ? ((Dense) output).getActivator() : null;
+	}
+
+	/**
+	 * @return the optimizer that updates the parameters,
+	 *         {@link GradientDescent} unless another one was set
+	 */
+	public Optimizer getOptimizer() {
+		if (this.optimizer == null) {
+			this.optimizer = new GradientDescent();
+		}
+		return this.optimizer;
+	}
+
+	public void setOptimizer(Optimizer optimizer) {
+		this.optimizer = optimizer;
+	}
+
+	/**
+	 * @return the loss the model is trained with, {@link SumSquaredError}
+	 *         unless another one was set
+	 */
+	public Loss getLoss() {
+		if (this.loss == null) {
+			this.loss = new SumSquaredError();
+		}
+		return this.loss;
+	}
+
+	/**
+	 * Trains the model with the given loss. The cross-entropies are best used
+	 * with the output layer they are fused with, {@link Softmax} for the
+	 * {@link CategoricalCrossEntropy} and {@link Sigmoid} for the
+	 * {@link BinaryCrossEntropy}: the error of the output layer is then
+	 * outputs - labels, so training needs no derivative of the output layer
+	 * and does not slow down for saturated outputs like with the squared
+	 * error.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the loss is not defined for the outputs of the output
+	 *             layer
+	 */
+	public void setLoss(Loss loss) {
+		Activator output = this.getOutputActivator();
+		if (!loss.accepts(output)) {
+			throw new IllegalArgumentException(loss.getName() + " is not defined for the outputs of "
+					+ this.layers.get(this.layers.size() - 1));
+		}
+		this.loss = loss;
+	}
+
+	@Override
+	public Precision getPrecision() {
+		return Precision.DOUBLE;
+	}
+
+	public Matrix feedForward(double[] input) {
+		return this.feedForward(input, this.workspaces.get());
+	}
+
+	/**
+	 * Feeds a single sample forward as a batch of one row and keeps it in the
+	 * given workspace for {@link #backpropagate(double[], Workspace)}
+	 *
+	 * @return outputs, shape(outputNeurons, 1)
+	 */
+	public Matrix feedForward(double[] input, Workspace ws) {
+		if (input.length != this.getInputSize()) {
+			throw new IllegalArgumentException("Amount of inputs does not correspond with amount of input neurons!");
+		}
+		if (ws.sample == null || ws.sample.breite != input.length) {
+			ws.sample = new Matrix(1, input.length);
+		}
+		System.arraycopy(input, 0, ws.sample.getData(), 0, input.length);
+		ws.sampleOutputs = this.feedForwardBatch(ws.sample, ws);
+		return ws.sampleOutputs.transpose();
+	}
+
+	public double[] getFehler(double[] desiredOutput) {
+		return this.getFehler(desiredOutput, this.workspaces.get());
+	}
+
+	/**
+	 * Loss of every output of the last
+	 * {@link #feedForward(double[], Workspace)} on the given workspace
+	 */
+	public double[] getFehler(double[] desiredOutput, Workspace ws) {
+		if (desiredOutput.length != this.getOutputSize()) {
+			throw new IllegalArgumentException("Desired output does not correspond with amount of output neurons!");
+		}
+		Loss loss = this.getLoss();
+		Matrix outputs = ws.sampleOutputs;
+		double[] fehler = new double[desiredOutput.length];
+		for (int i = 0; i < fehler.length; i++) {
+			fehler[i] = loss.value(outputs.getData(), outputs.getOffset() + i, desiredOutput, i, 1);
+		}
+		return fehler;
+	}
+
+	public ArrayList<Matrix> backpropagate(double[] desired_output) {
+		return this.backpropagate(desired_output, this.workspaces.get());
+	}
+
+	/**
+	 * Parameter gradients of the sample of the last
+	 * {@link #feedForward(double[], Workspace)} on the given workspace. The
+	 * sample runs through the layers again in training mode.
+	 */
+	public ArrayList<Matrix> backpropagate(double[] desired_output, Workspace ws) {
+		if (desired_output.length != this.getOutputSize()) {
+			throw new IllegalArgumentException("Desired output does not correspont with amount of output neurons!");
+		}
+		if (ws.sample == null) {
+			throw new IllegalStateException("No sample has been fed forward on the workspace!");
+		}
+		ArrayList<Matrix> gradients = this.zeroGradients();
+		this.backpropagateBatch(ws.sample, new Matrix(1, desired_output.length, desired_output), gradients, ws);
+		return gradients;
+	}
+
+	/**
+	 * Feeds a whole batch forward, one sample per row, with every layer in
+	 * inference mode
+	 *
+	 * @param inputs
+	 *            inputs, shape(batch, inputNeurons)
+	 * @return outputs, shape(batch, outputNeurons)
+	 */
+	@Override
+	public Matrix feedForwardBatch(Matrix inputs) {
+		return this.feedForwardBatch(inputs, this.workspaces.get()).copy();
+	}
+
+	/**
+	 * @return outputs, shape(batch, outputNeurons). The matrix belongs to the
+	 *         workspace and is overwritten by its next batch.
+	 */
+	public Matrix feedForwardBatch(Matrix inputs, Workspace ws) {
+		return this.forward(inputs, ws, false);
+	}
+
+	private Matrix forward(Matrix inputs, Workspace ws, boolean training) {
+		if (inputs.breite != this.getInputSize()) {
+			throw new IllegalArgumentException("Amount of inputs does not correspond with amount of input neurons!");
+		}
+		Matrix current = inputs;
+		for (int i = 0; i < this.layers.size(); i++) {
+			LayerBuffers b = ws.layer(i);
+			b.input = current;
+			current = this.layers.get(i).forward(current, b, training);
+			b.output = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Computes the parameter gradients of a whole batch and adds them to the
+	 * given gradients. The error of the outputs is passed backwards through
+	 * the layers, every layer adds the gradients of its parameters.
+	 *
+	 * @param inputs
+	 *            inputs, shape(batch, inputNeurons)
+	 * @param labels
+	 *            desired outputs, shape(batch, outputNeurons)
+	 * @param gradients
+	 *            one matrix per parameter of {@link #getParameters()} with the
+	 *            same dimensions, the gradients of this batch are added to it
+	 */
+	public void backpropagateBatch(Matrix inputs, Matrix labels, ArrayList<Matrix> gradients) {
+		this.backpropagateBatch(inputs, labels, gradients, this.workspaces.get());
+	}
+
+	public void backpropagateBatch(Matrix inputs, Matrix labels, ArrayList<Matrix> gradients, Workspace ws) {
+		if (labels.breite != this.getOutputSize() || labels.hoehe != inputs.hoehe) {
+			throw new IllegalArgumentException("Desired output does not correspont with amount of output neurons!");
+		}
+		this.getParameters();
+		int last = this.layers.size() - 1;
+		Matrix outputs = this.forward(inputs, ws, true);
+		Matrix error = ws.error(labels.hoehe, labels.breite);
+		Loss loss = this.getLoss();
+		Layer output = this.layers.get(last);
+		if (output instanceof Dense && loss.isFusedWith(((Dense) output).getActivator())) {
+			// The error of the weighted sums is simply outputs - labels
+			error.copyFrom(outputs).axpy(-1, labels);
+			error = ((Dense) output).backwardSums(error, ws.layer(last), this.gradients(gradients, last), last > 0);
+		} else {
+			loss.gradient(outputs, labels, error);
+			error = output.backward(error, ws.layer(last), this.gradients(gradients, last), last > 0);
+		}
+		for (int l = last - 1; l >= 0; l--) {
+			error = this.layers.get(l).backward(error, ws.layer(l), this.gradients(gradients, l), l > 0);
+		}
+	}
+
+	private List<Matrix> gradients(ArrayList<Matrix> gradients, int layer) {
+		return gradients.subList(this.parameterOffsets[layer], this.parameterOffsets[layer + 1]);
+	}
+
+	public ArrayList<Matrix> backpropagateBatch(Matrix inputs, Matrix labels) {
+		ArrayList<Matrix> gradients = this.zeroGradients();
+		this.backpropagateBatch(inputs, labels, gradients);
+		return gradients;
+	}
+
+	/**
+	 * @return one zero matrix per parameter with the same dimensions
+	 */
+	ArrayList<Matrix> zeroGradients() {
+		ArrayList<Matrix> res = new ArrayList<Matrix>();
+		for (Matrix p : this.getParameters()) {
+			res.add(new Matrix(p.hoehe, p.breite));
+		}
+		return res;
+	}
+
+	@Override
+	public double evaluate(Matrix testInputs, Matrix testLabels) {
+		if (testInputs.hoehe != testLabels.hoehe || testLabels.breite != this.getOutputSize()) {
+			throw new IllegalArgumentException();
+		}
+		return this.evaluate(DataSource.of(testInputs, testLabels));
+	}
+
+	@Override
+	public double evaluate(DataSource test) {
+		return this.evaluateAll(test).getCost();
+	}
+
+	@Override
+	public Evaluation evaluateAll(DataSource test) {
+		if (test.labelSize() != this.getOutputSize() || test.inputSize() != this.getInputSize()) {
+			throw new IllegalArgumentException();
+		}
+		Evaluation res = new Evaluation(this.getLoss(), this.getOutputActivator());
+		Workspace ws = this.workspaces.get();
+		Iterator<Matrix[]> chunks = test.chunks(EVALUATION_BATCH);
+		while (chunks.hasNext()) {
+			Matrix[] chunk = chunks.next();
+			Matrix outputs = this.feedForwardBatch(chunk[0], ws);
+			Matrix labels = chunk[1];
+			for (int i = 0; i < labels.hoehe; i++) {
+				res.add(outputs.getData(), outputs.getOffset() + i * outputs.getStride(), labels.getData(),
+						labels.getOffset() + i * labels.getStride(), labels.breite);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Splits the train data into shuffled mini-batches. Every batch is a new
+	 * pair of matrices; {@link MiniBatchIterator} streams the same batches
+	 * through reused buffers instead.
+	 */
+	public ArrayList<Matrix[]> teileInMiniBatchesEin(Matrix train_inputs, Matrix train_labels, int batch_size) {
+		ArrayList<Matrix[]> res = new ArrayList<Matrix[]>();
+		MiniBatchIterator batches = new MiniBatchIterator(train_inputs, train_labels, batch_size);
+		while (batches.hasNext()) {
+			Matrix[] batch = batches.next();
+			res.add(new Matrix[] { batch[0].copy(), batch[1].copy() });
+		}
+		return res;
+	}
+
+	public void update_mini_batch2(Matrix input, Matrix label, double learning_rate, int anzahl_cores) {
+		ArrayList<Matrix> deltaWeights = this.backpropagateBatch(input, label);
+		this.getOptimizer().step(this.getParameters(), deltaWeights, learning_rate, input.hoehe);
+	}
+
+	/**
+	 * Performs one step of the optimizer on the given mini-batch. The batch is
+	 * split across anzahl_cores workers of a persistent
+	 * {@link TrainingExecutor}, which keeps its threads and gradient buffers
+	 * across batches.
+	 */
+	public void update_mini_batch(Matrix input, Matrix label, double learning_rate, int anzahl_cores) {
+		TrainingExecutor.shared(anzahl_cores).update(this, input, label, learning_rate);
+	}
+
+	@Override
+	public void SGD(Matrix train_inputs, Matrix train_labels, Matrix test_inputs, Matrix test_labels, int batch_size,
+			int epochs, int test_every, double learning_rate, int anzahl_cores, boolean ausgabe) {
+		if (train_inputs.hoehe != train_labels.hoehe || train_inputs.breite != this.getInputSize()
+				|| train_inputs.breite != test_inputs.breite || train_labels.breite != this.getOutputSize()
+				|| train_labels.breite != test_labels.breite || batch_size > train_inputs.hoehe
+				|| test_inputs.hoehe != test_labels.hoehe) {
+			throw new IllegalArgumentException();
+		}
+		this.SGD(DataSource.of(train_inputs, train_labels), DataSource.of(test_inputs, test_labels), batch_size,
+				epochs, test_every, learning_rate, anzahl_cores, ausgabe);
+	}
+
+	@Override
+	public void SGD(DataSource train, DataSource test, int batch_size, int epochs, int test_every,
+			double learning_rate, int anzahl_cores, boolean ausgabe) {
+		this.checkTraining(train, test, batch_size, anzahl_cores);
+		// Products of this thread are split across anzahl_cores threads
+		int parallelism = Matrix.setThreadParallelism(anzahl_cores);
+		final long trainingStart = System.currentTimeMillis();
+		try (TrainingBatches batches = new TrainingBatches(train, batch_size, epochs)) {
+			for (int i = 1; i <= epochs; i++) {
+				final long epochStart = System.currentTimeMillis();
+				// Train daten in Mini-Batches aufteilen
+				Iterator<Matrix[]> mini_batches = batches.nextEpoch();
+				while (mini_batches.hasNext()) {
+					Matrix[] batch = mini_batches.next();
+					this.update_mini_batch(batch[0], batch[1], learning_rate, anzahl_cores);
+				}
+				// Evaluating epoch
+				final long epochEnd = System.currentTimeMillis();
+				final long epochTime = epochEnd - epochStart;
+				if (ausgabe) {
+					if (i % test_every == 0) {
+						double fehler = this.evaluate(test);
+						System.out.println("Epoch " + i + " complete in " + epochTime + " ms with Cost: " + fehler);
+					} else {
+						System.out.println("Epoch " + i + " complete in " + epochTime + " ms");
+					}
+				}
+			}
+		} finally {
+			Matrix.setThreadParallelism(parallelism);
+		}
+		final long trainingStop = System.currentTimeMillis();
+		if (ausgabe) {
+			System.out.println("Training complete in " + (trainingStop - trainingStart) + "ms");
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the data does not fit the net, the batch size exceeds
+	 *             the training data or there are not that many cores
+	 */
+	void checkTraining(DataSource train, DataSource test, int batch_size, int anzahl_cores) {
+		if (train.inputSize() != this.getInputSize() || test.inputSize() != this.getInputSize()
+				|| train.labelSize() != this.getOutputSize() || test.labelSize() != this.getOutputSize()
+				|| batch_size > train.size()) {
+			throw new IllegalArgumentException();
+		}
+		if (anzahl_cores > Runtime.getRuntime().availableProcessors()) {
+			throw new IllegalArgumentException(
+					"Amount of Cores may not be greater than the amount of available cores!");
+		}
+	}
+
+	public void SGD(Matrix train_inputs, Matrix train_labels, Matrix test_inputs, Matrix test_labels, int batch_size,
+			int epochs, int test_every, double learning_rate, int anzahl_cores) {
+		this.SGD(train_inputs, train_labels, test_inputs, test_labels, batch_size, epochs, test_every, learning_rate,
+				anzahl_cores, true);
+	}
+
+	@Override
+	public String toString() {
+		String s = "Sequential:\n";
+		for (Layer l : this.layers) {
+			s += l + "\n";
+		}
+		s += "Loss: " + this.getLoss().getName() + "\n";
+		return s;
+	}
+}
@@ -1,6 +1,8 @@
 package neuralnet;
 
-public class Sigmoid extends Activator {
+import matrix.Kernels;
+
+public class Sigmoid extends ElementWiseActivator {
 
 	private static final long serialVersionUID = 2L;
 
@@ -14,6 +16,31 @@ public class Sigmoid extends Activator {
 		return transform(x) * (1 - transform(x));
 	}
 
+	@Override
+	public void transform(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		Kernels.get().sigmoid(in, inOffset, out, outOffset, length);
+	}
+
+	@Override
+	public void transformDerivative(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		Kernels.get().sigmoidDerivative(in, inOffset, out, outOffset, length);
+	}
+
+	@Override
+	public void transform(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = (float) (1 / (1 + Math.exp(-in[inOffset + i])));
+		}
+	}
+
+	@Override
+	public void transformDerivative(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			double s = 1 / (1 + Math.exp(-in[inOffset + i]));
+			out[outOffset + i] = (float) (s * (1 - s));
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "Sigmoid";
@@ -0,0 +1,113 @@
+package neuralnet;
+
+/**
+ * Softmax over the neurons of a layer, e^x_i / sum_j e^x_j.
+ * <p>
+ * Unlike the other activators the output of a neuron depends on the whole
+ * layer, so the array methods treat the given range as the neurons of one
+ * sample and the nets apply it row by row, see {@link #isElementWise()}. It
+ * is not an {@link ElementWiseActivator} and has no scalar methods. The
+ * maximum of the range is subtracted before exponentiating, which does not
+ * change the result but keeps e^x from overflowing.
+ * </p>
+ * <p>
+ * Softmax is meant for the output layer together with the
+ * {@link CategoricalCrossEntropy}. The error of the output layer is then
+ * simply outputs - labels and no derivative is needed at all. With other
+ * losses the nets multiply their gradient with the full Jacobian instead,
+ * see {@link #backward(double[], int, double[], int, int)}.
+ * </p>
+ */
+public class Softmax extends Activator {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public void transform(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < length; i++) {
+			max = Math.max(max, in[inOffset + i]);
+		}
+		double sum = 0;
+		for (int i = 0; i < length; i++) {
+			double e = Math.exp(in[inOffset + i] - max);
+			out[outOffset + i] = e;
+			sum += e;
+		}
+		double inverse = 1 / sum;
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] *= inverse;
+		}
+	}
+
+	/**
+	 * The diagonal of the Jacobian, s_i * (1 - s_i). The nets use
+	 * {@link #backward(double[], int, double[], int, int)} instead.
+	 */
+	@Override
+	public void transformDerivative(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		this.transform(in, inOffset, out, outOffset, length);
+		for (int i = 0; i < length; i++) {
+			double s = out[outOffset + i];
+			out[outOffset + i] = s * (1 - s);
+		}
+	}
+
+	@Override
+	public void transform(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < length; i++) {
+			max = Math.max(max, in[inOffset + i]);
+		}
+		double sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += Math.exp(in[inOffset + i] - max);
+		}
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = (float) (Math.exp(in[inOffset + i] - max) / sum);
+		}
+	}
+
+	@Override
+	public void transformDerivative(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		this.transform(in, inOffset, out, outOffset, length);
+		for (int i = 0; i < length; i++) {
+			float s = out[outOffset + i];
+			out[outOffset + i] = s * (1 - s);
+		}
+	}
+
+	/**
+	 * Turns the error of the outputs of one sample into the error of the
+	 * weighted sums, in place: g_i = s_i * (g_i - sum_j g_j * s_j)
+	 *
+	 * @param s
+	 *            the outputs of the softmax
+	 * @param g
+	 *            the error of the outputs
+	 */
+	public void backward(double[] s, int sOffset, double[] g, int gOffset, int length) {
+		double dot = 0;
+		for (int i = 0; i < length; i++) {
+			dot += g[gOffset + i] * s[sOffset + i];
+		}
+		for (int i = 0; i < length; i++) {
+			g[gOffset + i] = s[sOffset + i] * (g[gOffset + i] - dot);
+		}
+	}
+
+	public void backward(float[] s, int sOffset, float[] g, int gOffset, int length) {
+		double dot = 0;
+		for (int i = 0; i < length; i++) {
+			dot += g[gOffset + i] * s[sOffset + i];
+		}
+		for (int i = 0; i < length; i++) {
+			g[gOffset + i] = (float) (s[sOffset + i] * (g[gOffset + i] - dot));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Softmax";
+	}
+}
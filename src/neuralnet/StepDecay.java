@@ -0,0 +1,33 @@
+package neuralnet;
+
+/**
+ * Multiplies the learning rate by gamma every stepSize epochs, counted from
+ * the epoch of the controller the schedule starts at
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class StepDecay implements TrainingCallback {
+	private final int start;
+	private final int stepSize;
+	private final double gamma;
+
+	public StepDecay(int stepSize, double gamma) {
+		this(0, stepSize, gamma);
+	}
+
+	public StepDecay(int start, int stepSize, double gamma) {
+		if (stepSize < 1) {
+			throw new IllegalArgumentException("Step size has to be at least one epoch");
+		}
+		this.start = start;
+		this.stepSize = stepSize;
+		this.gamma = gamma;
+	}
+
+	@Override
+	public void epochStarted(TrainingController controller) {
+		int steps = Math.max(0, controller.getEpoch() - this.start) / this.stepSize;
+		controller.setLearningRate(controller.getInitialLearningRate() * Math.pow(this.gamma, steps));
+	}
+}
@@ -0,0 +1,50 @@
+package neuralnet;
+
+/**
+ * Squared error, sum (outputs - labels)^2 per sample. It is not divided by
+ * the amount of outputs, so the gradients are those the nets were always
+ * trained with.
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class SumSquaredError implements Loss {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String getName() {
+		return "Squared error";
+	}
+
+	@Override
+	public double value(double[] outputs, int outputOffset, double[] labels, int labelOffset, int length) {
+		double res = 0;
+		for (int i = 0; i < length; i++) {
+			double d = outputs[outputOffset + i] - labels[labelOffset + i];
+			res += d * d;
+		}
+		return res;
+	}
+
+	@Override
+	public void gradient(double[] outputs, int outputOffset, double[] labels, int labelOffset, double[] dest,
+			int destOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			dest[destOffset + i] = 2 * (outputs[outputOffset + i] - labels[labelOffset + i]);
+		}
+	}
+
+	@Override
+	public void gradient(float[] outputs, int outputOffset, float[] labels, int labelOffset, float[] dest,
+			int destOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			dest[destOffset + i] = 2 * (outputs[outputOffset + i] - labels[labelOffset + i]);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.getName();
+	}
+}
@@ -1,6 +1,8 @@
 package neuralnet;
 
-public class TanH extends Activator {
+import matrix.Kernels;
+
+public class TanH extends ElementWiseActivator {
 
 	private static final long serialVersionUID = 3L;
 
@@ -14,6 +16,31 @@ public class TanH extends Activator {
 		return 1 - transform(x) * transform(x);
 	}
 
+	@Override
+	public void transform(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		Kernels.get().tanh(in, inOffset, out, outOffset, length);
+	}
+
+	@Override
+	public void transformDerivative(double[] in, int inOffset, double[] out, int outOffset, int length) {
+		Kernels.get().tanhDerivative(in, inOffset, out, outOffset, length);
+	}
+
+	@Override
+	public void transform(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = (float) (2 * (1 / (1 + Math.exp(-in[inOffset + i]))) - 1);
+		}
+	}
+
+	@Override
+	public void transformDerivative(float[] in, int inOffset, float[] out, int outOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			double t = 2 * (1 / (1 + Math.exp(-in[inOffset + i]))) - 1;
+			out[outOffset + i] = (float) (1 - t * t);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "TanH";
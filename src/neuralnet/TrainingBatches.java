@@ -0,0 +1,85 @@
+package neuralnet;
+
+import java.util.Iterator;
+
+import backpropagation.DataSource;
+import backpropagation.MatrixDataSource;
+import matrix.Matrix;
+
+/**
+ * The mini-batches of one training run, epoch by epoch.
+ * <p>
+ * Streamed data and large batches are prepared ahead by a single
+ * {@link BatchPrefetcher} for the whole run, which keeps running ahead across
+ * the epoch boundaries. Small batches of data in memory are gathered on the
+ * training thread by a {@link MiniBatchIterator}, where handing them over
+ * would cost more than gathering them. {@link #close()} has to be called once
+ * the run ends.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+final class TrainingBatches implements AutoCloseable {
+	// Batches of at least this many inputs are prepared on a background thread
+	private static final int PREFETCH_ELEMENTS = 1 << 14;
+
+	private final int epochs;
+	private final BatchPrefetcher prefetcher;
+	private final MiniBatchIterator batches;
+	private int epoch;
+
+	/**
+	 * @param epochs
+	 *            amount of epochs of the run, {@link Integer#MAX_VALUE} if it
+	 *            is not known in advance
+	 */
+	TrainingBatches(DataSource train, int batch_size, int epochs) {
+		this.epochs = epochs;
+		if (!(train instanceof MatrixDataSource) || batch_size * train.inputSize() >= PREFETCH_ELEMENTS) {
+			this.prefetcher = new BatchPrefetcher(train, batch_size);
+			this.batches = null;
+		} else {
+			this.prefetcher = null;
+			this.batches = new MiniBatchIterator(train, batch_size);
+		}
+	}
+
+	/**
+	 * @return the mini-batches of the next epoch. The rest of the previous
+	 *         epoch is skipped.
+	 */
+	Iterator<Matrix[]> nextEpoch() {
+		if (this.epoch >= this.epochs) {
+			throw new IllegalStateException("All " + this.epochs + " epochs are done");
+		}
+		this.epoch++;
+		if (this.prefetcher != null) {
+			if (this.epoch == 1) {
+				this.prefetcher.start(this.epochs);
+			} else {
+				this.prefetcher.nextEpoch();
+			}
+			return this.prefetcher;
+		}
+		if (this.epoch > 1) {
+			this.batches.nextEpoch();
+		}
+		return this.batches;
+	}
+
+	boolean uses(DataSource train, int batch_size) {
+		return this.prefetcher != null ? this.prefetcher.uses(train, batch_size)
+				: this.batches.uses(train, batch_size);
+	}
+
+	/**
+	 * Stops the prefetcher, if any
+	 */
+	@Override
+	public void close() {
+		if (this.prefetcher != null) {
+			this.prefetcher.close();
+		}
+	}
+}
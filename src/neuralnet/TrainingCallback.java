@@ -0,0 +1,35 @@
+package neuralnet;
+
+/**
+ * Hook into the epochs of a {@link TrainingController}, for example to stop
+ * early or to schedule the learning rate. Callbacks are called in the order
+ * they were added.
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public interface TrainingCallback {
+
+	/**
+	 * Called before every epoch, {@link TrainingController#getEpoch()} is the
+	 * amount of epochs done so far
+	 */
+	public default void epochStarted(TrainingController controller) {
+	}
+
+	/**
+	 * Called after every epoch
+	 *
+	 * @param cost
+	 *            cost on the test data after the epoch
+	 */
+	public default void epochFinished(TrainingController controller, double cost) {
+	}
+
+	/**
+	 * Called once when the training ends, because all epochs are done or
+	 * because it was stopped
+	 */
+	public default void trainingFinished(TrainingController controller) {
+	}
+}
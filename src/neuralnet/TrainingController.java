@@ -0,0 +1,254 @@
+package neuralnet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import backpropagation.DataSource;
+import matrix.Matrix;
+
+/**
+ * Trains a net epoch by epoch and lets {@link TrainingCallback}s act between
+ * the epochs: stop the training, change the learning rate or restore
+ * weights.
+ * <p>
+ * Every epoch is one pass of
+ * {@link Sequential#update_mini_batch(Matrix, Matrix, double, int)} over the
+ * training data followed by the cost on the test data, which the callbacks
+ * get. The mini-batches of all epochs come from one {@link TrainingBatches},
+ * so a prefetcher keeps running ahead across the epochs. The controller can
+ * run all epochs with {@link #train(int, boolean)}, or be driven one epoch at
+ * a time with {@link #epoch()} like the GUI trainers do, which have to call
+ * {@link #close()} if they end without {@link #finish()}.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class TrainingController {
+	/**
+	 * Names of the schedules {@link #schedule(String, int)} knows
+	 */
+	public static final String[] SCHEDULES = { "Constant", "Step", "Cosine", "Plateau" };
+
+	private final Sequential nn;
+	private final DataSource train;
+	private final DataSource test;
+	private int batch_size;
+	private int cores;
+	private double initialLearningRate;
+	private final ArrayList<TrainingCallback> callbacks = new ArrayList<TrainingCallback>();
+	private double learning_rate;
+	private Evaluation evaluation;
+	// Created by the first epoch, null once closed
+	private TrainingBatches batches;
+	private int epoch;
+	private boolean stopped;
+	private boolean finished;
+
+	public TrainingController(Sequential nn, DataSource train, DataSource test, int batch_size, double learning_rate,
+			int cores) {
+		this.nn = nn;
+		this.train = train;
+		this.test = test;
+		this.batch_size = batch_size;
+		this.cores = cores;
+		this.initialLearningRate = learning_rate;
+		this.learning_rate = learning_rate;
+	}
+
+	/**
+	 * @return a learning rate schedule over the given amount of epochs, or
+	 *         null for a constant learning rate
+	 * @throws IllegalArgumentException
+	 *             if name is none of {@link #SCHEDULES}
+	 */
+	public static TrainingCallback schedule(String name, int epochs) {
+		return schedule(name, 0, epochs);
+	}
+
+	/**
+	 * @param start
+	 *            epoch of the controller the schedule starts at, see
+	 *            {@link #getEpoch()}
+	 * @return a learning rate schedule over the given amount of epochs from
+	 *         start on, or null for a constant learning rate
+	 * @throws IllegalArgumentException
+	 *             if name is none of {@link #SCHEDULES}
+	 */
+	public static TrainingCallback schedule(String name, int start, int epochs) {
+		if (name.equals("Constant")) {
+			return null;
+		} else if (name.equals("Step")) {
+			return new StepDecay(start, Math.max(1, epochs / 3), 0.1);
+		} else if (name.equals("Cosine")) {
+			return new CosineAnnealing(start, Math.max(1, epochs), 0);
+		} else if (name.equals("Plateau")) {
+			return new ReduceOnPlateau(5, 0.5, 0);
+		}
+		throw new IllegalArgumentException("Unknown schedule " + name);
+	}
+
+	public TrainingController add(TrainingCallback callback) {
+		if (callback != null) {
+			this.callbacks.add(callback);
+		}
+		return this;
+	}
+
+	public TrainingController remove(TrainingCallback callback) {
+		this.callbacks.remove(callback);
+		return this;
+	}
+
+	/**
+	 * Trains one epoch
+	 *
+	 * @return the cost on the test data after the epoch
+	 */
+	public double epoch() {
+		for (TrainingCallback c : this.callbacks) {
+			c.epochStarted(this);
+		}
+		if (this.batches == null) {
+			this.nn.checkTraining(this.train, this.test, this.batch_size, this.cores);
+			this.batches = new TrainingBatches(this.train, this.batch_size, Integer.MAX_VALUE);
+		}
+		int parallelism = Matrix.setThreadParallelism(this.cores);
+		try {
+			Iterator<Matrix[]> mini_batches = this.batches.nextEpoch();
+			while (mini_batches.hasNext()) {
+				Matrix[] batch = mini_batches.next();
+				this.nn.update_mini_batch(batch[0], batch[1], this.learning_rate, this.cores);
+			}
+			this.epoch++;
+			this.evaluation = this.nn.evaluateAll(this.test);
+		} finally {
+			Matrix.setThreadParallelism(parallelism);
+		}
+		double cost = this.evaluation.getCost();
+		for (TrainingCallback c : this.callbacks) {
+			c.epochFinished(this, cost);
+		}
+		return cost;
+	}
+
+	/**
+	 * Trains until epochs epochs are done or a callback stops the training
+	 */
+	public void train(int epochs, boolean ausgabe) {
+		try {
+			for (int i = 0; i < epochs && !this.stopped; i++) {
+				final long epochStart = System.currentTimeMillis();
+				double cost = this.epoch();
+				if (ausgabe) {
+					System.out.println("Epoch " + this.epoch + " complete in "
+							+ (System.currentTimeMillis() - epochStart) + " ms with Cost: " + cost + ", log-loss "
+							+ this.evaluation.getLogLoss() + ", accuracy " + this.evaluation.getAccuracy()
+							+ ", learning rate " + this.learning_rate);
+				}
+			}
+		} finally {
+			this.close();
+		}
+		this.finish();
+		if (ausgabe && this.stopped) {
+			System.out.println("Training stopped after epoch " + this.epoch);
+		}
+	}
+
+	/**
+	 * Ends the training, the callbacks are told once
+	 */
+	public void finish() {
+		this.close();
+		if (!this.finished) {
+			this.finished = true;
+			for (TrainingCallback c : this.callbacks) {
+				c.trainingFinished(this);
+			}
+		}
+	}
+
+	/**
+	 * Stops the prefetching of batches. A later epoch starts a new one.
+	 */
+	public void close() {
+		if (this.batches != null) {
+			this.batches.close();
+			this.batches = null;
+		}
+	}
+
+	/**
+	 * Stops the training after the current epoch
+	 */
+	public void stop() {
+		this.stopped = true;
+	}
+
+	public boolean isStopped() {
+		return this.stopped;
+	}
+
+	/**
+	 * @return cost, log-loss and accuracy on the test data after the last
+	 *         epoch, or null before the first one
+	 */
+	public Evaluation getEvaluation() {
+		return this.evaluation;
+	}
+
+	public Sequential getNet() {
+		return this.nn;
+	}
+
+	/**
+	 * @return the amount of epochs done
+	 */
+	public int getEpoch() {
+		return this.epoch;
+	}
+
+	public double getLearningRate() {
+		return this.learning_rate;
+	}
+
+	public void setLearningRate(double learning_rate) {
+		this.learning_rate = learning_rate;
+	}
+
+	public double getInitialLearningRate() {
+		return this.initialLearningRate;
+	}
+
+	/**
+	 * Sets the learning rate the schedules start from and the current one
+	 */
+	public void setInitialLearningRate(double learning_rate) {
+		this.initialLearningRate = learning_rate;
+		this.learning_rate = learning_rate;
+	}
+
+	public int getBatchSize() {
+		return this.batch_size;
+	}
+
+	/**
+	 * Takes effect with the next epoch, which prefetches anew if the batch
+	 * size changed
+	 */
+	public void setBatchSize(int batch_size) {
+		if (batch_size != this.batch_size) {
+			this.batch_size = batch_size;
+			this.close();
+		}
+	}
+
+	public int getCores() {
+		return this.cores;
+	}
+
+	public void setCores(int cores) {
+		this.cores = cores;
+	}
+}
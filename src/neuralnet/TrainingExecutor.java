@@ -0,0 +1,240 @@
+package neuralnet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import matrix.Matrix;
+
+/**
+ * Long-lived worker pool for data-parallel mini-batch training.
+ * <p>
+ * The executor keeps its worker threads, one set of gradient buffers and one
+ * {@link Workspace} per worker alive across batches and epochs. A batch is
+ * split into one block of rows per worker, the calling thread takes the first
+ * block. After every
+ * worker has backpropagated its block the gradients are reduced in parallel,
+ * each worker summing a range of rows of every gradient matrix into the
+ * buffers of the first worker. The phases are separated by barriers, so a
+ * batch costs no thread creation and no allocation of gradient or activation
+ * buffers. All workers read the same parameters, the model is never
+ * copied. Every worker runs the products of its block on its own thread
+ * instead of splitting them across the fork/join pool, so n workers keep n
+ * threads busy.
+ * </p>
+ * <p>
+ * One executor per amount of workers is shared by the whole process, see
+ * {@link #shared(int)}. Batches of different nets are serialized on it. If a
+ * worker or the calling thread is interrupted while waiting for the others,
+ * the executor breaks: all its threads end and the next call of
+ * {@link #shared(int)} builds a new one.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+class TrainingExecutor {
+	private static final HashMap<Integer, TrainingExecutor> shared = new HashMap<Integer, TrainingExecutor>();
+
+	private final int workers;
+	private final CyclicBarrier start;
+	private final CyclicBarrier computed;
+	private final CyclicBarrier reduced;
+	private final ArrayList<ArrayList<Matrix>> gradients;
+	private final Workspace[] workspaces;
+	private final Throwable[] errors;
+	private volatile boolean broken;
+	// Current job, published to the workers by the start barrier
+	private Sequential nn;
+	private Matrix input;
+	private Matrix label;
+
+	private TrainingExecutor(int workers) {
+		this.workers = workers;
+		this.start = new CyclicBarrier(workers);
+		this.computed = new CyclicBarrier(workers);
+		this.reduced = new CyclicBarrier(workers);
+		this.gradients = new ArrayList<ArrayList<Matrix>>();
+		for (int i = 0; i < workers; i++) {
+			this.gradients.add(new ArrayList<Matrix>());
+		}
+		this.errors = new Throwable[workers];
+		this.workspaces = new Workspace[workers];
+		for (int i = 0; i < workers; i++) {
+			this.workspaces[i] = new Workspace();
+		}
+		for (int i = 1; i < workers; i++) {
+			final int id = i;
+			Thread t = new Thread(() -> this.work(id), "Training worker " + i);
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	/**
+	 * Returns the executor with the given amount of workers shared by the
+	 * process, building a new one if there is none or it broke
+	 */
+	static synchronized TrainingExecutor shared(int workers) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Amount of workers has to be at least 1");
+		}
+		TrainingExecutor executor = shared.get(workers);
+		if (executor == null || executor.broken) {
+			executor = new TrainingExecutor(workers);
+			shared.put(workers, executor);
+		}
+		return executor;
+	}
+
+	/**
+	 * Performs one step of the optimizer of nn on the given mini-batch. The
+	 * batch of a model with a {@link Layer#isBatchDependent() batch dependent}
+	 * layer is backpropagated as a whole on the calling thread, its products
+	 * still run on the fork/join pool.
+	 */
+	synchronized void update(Sequential nn, Matrix input, Matrix label, double learning_rate) {
+		if (this.broken) {
+			throw new IllegalStateException("Training executor is broken");
+		}
+		for (ArrayList<Matrix> g : this.gradients) {
+			ensureShapes(g, nn.getParameters());
+		}
+		if (nn.isBatchDependent()) {
+			ArrayList<Matrix> g = this.gradients.get(0);
+			for (Matrix m : g) {
+				m.fill(0);
+			}
+			nn.backpropagateBatch(input, label, g, this.workspaces[0]);
+			nn.getOptimizer().step(nn.getParameters(), g, learning_rate, input.hoehe);
+			return;
+		}
+		this.nn = nn;
+		this.input = input;
+		this.label = label;
+		int parallelism = Matrix.setThreadParallelism(1);
+		try {
+			this.await(this.start);
+			this.runPhases(0);
+		} finally {
+			Matrix.setThreadParallelism(parallelism);
+			this.nn = null;
+			this.input = null;
+			this.label = null;
+		}
+		for (int i = 0; i < this.workers; i++) {
+			if (this.errors[i] != null) {
+				Throwable t = this.errors[i];
+				this.errors[i] = null;
+				throw new RuntimeException("Training worker " + i + " failed", t);
+			}
+		}
+		nn.getOptimizer().step(nn.getParameters(), this.gradients.get(0), learning_rate, input.hoehe);
+	}
+
+	private void work(int id) {
+		Matrix.setThreadParallelism(1);
+		try {
+			while (true) {
+				this.await(this.start);
+				this.runPhases(id);
+			}
+		} catch (IllegalStateException e) {
+			// The executor broke, the thread ends
+		}
+	}
+
+	private void runPhases(int id) {
+		try {
+			this.compute(id);
+		} catch (Throwable t) {
+			this.errors[id] = t;
+		}
+		this.await(this.computed);
+		try {
+			this.reduce(id);
+		} catch (Throwable t) {
+			this.errors[id] = t;
+		}
+		this.await(this.reduced);
+	}
+
+	private void compute(int id) {
+		ArrayList<Matrix> g = this.gradients.get(id);
+		for (Matrix m : g) {
+			m.fill(0);
+		}
+		int from = blockStart(this.input.hoehe, id);
+		int rows = blockStart(this.input.hoehe, id + 1) - from;
+		if (rows > 0) {
+			this.nn.backpropagateBatch(this.input.view(from, rows, 0, this.input.breite),
+					this.label.view(from, rows, 0, this.label.breite), g, this.workspaces[id]);
+		}
+	}
+
+	/**
+	 * Sums this worker's share of the rows of every gradient matrix of all
+	 * workers into the gradients of worker 0
+	 */
+	private void reduce(int id) {
+		ArrayList<Matrix> target = this.gradients.get(0);
+		for (int l = 0; l < target.size(); l++) {
+			Matrix t = target.get(l);
+			int from = blockStart(t.hoehe, id) * t.breite;
+			int to = blockStart(t.hoehe, id + 1) * t.breite;
+			double[] res = t.getData();
+			for (int w = 1; w < this.workers; w++) {
+				double[] other = this.gradients.get(w).get(l).getData();
+				for (int i = from; i < to; i++) {
+					res[i] += other[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * First row of the given worker's block when splitting size rows evenly,
+	 * the first size % workers blocks get one row more
+	 */
+	private int blockStart(int size, int id) {
+		int base = size / this.workers;
+		int rest = size % this.workers;
+		return id * base + Math.min(id, rest);
+	}
+
+	private static void ensureShapes(ArrayList<Matrix> g, ArrayList<Matrix> parameters) {
+		boolean matches = g.size() == parameters.size();
+		for (int i = 0; matches && i < g.size(); i++) {
+			matches = g.get(i).hoehe == parameters.get(i).hoehe && g.get(i).breite == parameters.get(i).breite;
+		}
+		if (!matches) {
+			g.clear();
+			for (Matrix p : parameters) {
+				g.add(new Matrix(p.hoehe, p.breite));
+			}
+		}
+	}
+
+	/**
+	 * Waits for the other threads of the executor. A barrier breaks for good
+	 * once a waiting thread is interrupted; all threads of the executor are
+	 * on their way to the same barrier, so they all fail and the executor is
+	 * replaced.
+	 *
+	 * @throws IllegalStateException
+	 *             if the barrier broke
+	 */
+	private void await(CyclicBarrier barrier) {
+		try {
+			barrier.await();
+		} catch (InterruptedException e) {
+			this.broken = true;
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the training workers", e);
+		} catch (BrokenBarrierException e) {
+			this.broken = true;
+			throw new IllegalStateException("Training executor is broken", e);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package neuralnet;
+
+import java.util.ArrayList;
+
+import matrix.Matrix;
+
+/**
+ * Activation caches of one forward/backward pass through a
+ * {@link Sequential} model.
+ * <p>
+ * The model itself only holds its parameters, everything a pass writes lives
+ * in a workspace: one {@link LayerBuffers} per layer and the error of the
+ * outputs. A workspace may only be used by one thread at a time, but any
+ * amount of workspaces can run passes through the same model concurrently.
+ * Methods without a workspace parameter use a thread-local one of the model.
+ * </p>
+ * <p>
+ * The batch buffers grow to the largest batch seen and are reused for all
+ * smaller batches, so training with a fixed batch size allocates no buffers
+ * after the first batch.
+ * </p>
+ *
+ * @author Fabian von der Warth
+ * @version 1.0
+ */
+public class Workspace {
+	private final ArrayList<LayerBuffers> layers = new ArrayList<LayerBuffers>();
+	private final LayerBuffers error = new LayerBuffers();
+	// The sample of the last feedForward(double[], Workspace), as one row
+	Matrix sample;
+	Matrix sampleOutputs;
+
+	LayerBuffers layer(int layer) {
+		while (this.layers.size() <= layer) {
+			this.layers.add(new LayerBuffers());
+		}
+		return this.layers.get(layer);
+	}
+
+	/**
+	 * @return buffer for the error of the outputs
+	 */
+	Matrix error(int rows, int columns) {
+		return this.error.get(0, rows, columns);
+	}
+}